@@ -0,0 +1,69 @@
+package com.gigs2go.money.calculator.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gigs2go.money.calculator.Allocation;
+import com.gigs2go.money.calculator.AllocationResult;
+import com.gigs2go.money.calculator.Allocator;
+import com.gigs2go.money.calculator.allocators.AllocatorStrategy;
+
+/**
+ * Benchmarks each {@link AllocatorStrategy} across a range of split counts.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class AllocatorBenchmark {
+    @Param( { "FRONT_LOADING", "BACK_LOADING", "REMAINDER" } )
+    private AllocatorStrategy strategy;
+
+    @Param( { "2", "13", "1000", "100000", "1000000" } )
+    private int len;
+
+    private Allocator allocator;
+    private Money money;
+    private long[] out;
+
+    @Setup
+    public void setup () {
+        allocator = strategy.getAllocator();
+        money = Money.parse( "GBP 12345678.91" );
+        out = new long[len + 1];
+    }
+
+    @Benchmark
+    public Money[] allocate () {
+        return allocator.allocate( money, len );
+    }
+
+    @Benchmark
+    public int allocateMinorUnits () {
+        return allocator.allocate( money, len, out, 0 );
+    }
+
+    @Benchmark
+    public AllocationResult allocateLazily () {
+        return new AllocationResult( allocator.allocation( money, len ) );
+    }
+
+    @Benchmark
+    public Allocation allocation () {
+        return allocator.allocation( money, len );
+    }
+}
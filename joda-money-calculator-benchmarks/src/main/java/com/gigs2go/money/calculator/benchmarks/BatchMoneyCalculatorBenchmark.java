@@ -0,0 +1,74 @@
+package com.gigs2go.money.calculator.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gigs2go.money.calculator.BatchMoneyCalculator;
+import com.gigs2go.money.calculator.MoneyCalculator;
+
+/**
+ * Compares a {@link BatchMoneyCalculator} with a set/multiply/divide/result
+ * loop over a single {@link MoneyCalculator}.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class BatchMoneyCalculatorBenchmark {
+    private static final BigDecimal RATE = new BigDecimal( "1.0425" );
+
+    @Param( { "1000", "100000" } )
+    private int len;
+
+    private BatchMoneyCalculator batch;
+    private MoneyCalculator calculator;
+    private long[] amounts;
+    private long[] values;
+    private long[] remainders;
+
+    @Setup
+    public void setup () {
+        CurrencyUnit gbp = CurrencyUnit.GBP;
+        batch = new BatchMoneyCalculator( gbp ).multiply( RATE ).divide( 365L );
+        calculator = new MoneyCalculator();
+        Random random = new Random( 42L );
+        amounts = new long[len];
+        for ( int i = 0; i < len; i++ ) {
+            amounts[i] = random.nextInt( 100000000 );
+        }
+        values = new long[len];
+        remainders = new long[len];
+    }
+
+    @Benchmark
+    public long[] calculate () {
+        batch.calculate( amounts, values, remainders );
+        return values;
+    }
+
+    @Benchmark
+    public long[] calculator () {
+        for ( int i = 0; i < len; i++ ) {
+            MoneyCalculator.Result result = calculator.set( Money.ofMinor( CurrencyUnit.GBP, amounts[i] ) ).multiply( RATE ).divide( 365L ).result();
+            values[i] = result.getValue().getAmountMinorLong();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,25 @@
+package com.gigs2go.money.calculator.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>
+ * Runs the benchmarks with the GC profiler always attached, so that every run
+ * reports the allocation rate alongside throughput and the sampled latency
+ * percentiles.
+ * </p>
+ * Usage : java -jar target/benchmarks.jar [JMH options] [benchmark regexp]
+ */
+public class BenchmarkRunner {
+    public static void main ( String[] args ) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions( args );
+        Options options = new OptionsBuilder().parent( commandLine ).addProfiler( GCProfiler.class ).build();
+        new Runner( options ).run();
+    }
+}
@@ -0,0 +1,49 @@
+package com.gigs2go.money.calculator.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gigs2go.money.calculator.MoneyAccumulator;
+import com.gigs2go.money.calculator.MoneyCalculator;
+
+/**
+ * Compares a shared {@link MoneyAccumulator} with a synchronized
+ * {@link MoneyCalculator}, with four threads adding concurrently.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@Threads( 4 )
+public class MoneyAccumulatorBenchmark {
+    private static final Money AMOUNT = Money.parse( "GBP 3.33" );
+
+    private final MoneyAccumulator accumulator = new MoneyAccumulator( CurrencyUnit.GBP );
+    private final MoneyCalculator calculator = new MoneyCalculator().set( Money.zero( CurrencyUnit.GBP ) );
+
+    @Benchmark
+    public MoneyAccumulator accumulator () {
+        return accumulator.add( AMOUNT );
+    }
+
+    @Benchmark
+    public MoneyCalculator synchronizedCalculator () {
+        synchronized ( calculator ) {
+            return calculator.add( AMOUNT );
+        }
+    }
+}
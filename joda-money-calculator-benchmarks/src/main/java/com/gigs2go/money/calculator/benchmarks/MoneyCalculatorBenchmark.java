@@ -0,0 +1,126 @@
+package com.gigs2go.money.calculator.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gigs2go.money.calculator.MoneyCalculator;
+import com.gigs2go.money.calculator.MoneyProgram;
+import com.gigs2go.money.calculator.Rate;
+
+/**
+ * Benchmarks each {@link MoneyCalculator} operation, starting from a freshly
+ * set calculator so that every invocation measures a single set() followed by
+ * the operation under test.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class MoneyCalculatorBenchmark {
+    private MoneyCalculator calculator;
+    private Money initial;
+    private Money amount;
+    private long longFactor;
+    private double doubleFactor;
+    private BigDecimal bigDecimalFactor;
+    private Rate rate;
+    private MoneyProgram program;
+    private MoneyCalculator.Result result;
+
+    @Setup
+    public void setup () {
+        calculator = new MoneyCalculator();
+        initial = Money.parse( "GBP 1243.29" );
+        amount = Money.parse( "GBP 95.63" );
+        longFactor = 13L;
+        doubleFactor = 1.0725;
+        bigDecimalFactor = new BigDecimal( "0.345678" );
+        rate = Rate.of( doubleFactor );
+        program = new MoneyProgram.Builder().multiply( bigDecimalFactor ).divide( longFactor ).add( amount ).build();
+        result = new MoneyCalculator.Result();
+    }
+
+    @Benchmark
+    public MoneyCalculator set () {
+        return calculator.set( initial );
+    }
+
+    @Benchmark
+    public MoneyCalculator add () {
+        return calculator.set( initial ).add( amount );
+    }
+
+    @Benchmark
+    public MoneyCalculator subtract () {
+        return calculator.set( initial ).subtract( amount );
+    }
+
+    @Benchmark
+    public MoneyCalculator multiplyLong () {
+        return calculator.set( initial ).multiply( longFactor );
+    }
+
+    @Benchmark
+    public MoneyCalculator multiplyDouble () {
+        return calculator.set( initial ).multiply( doubleFactor );
+    }
+
+    @Benchmark
+    public MoneyCalculator multiplyBigDecimal () {
+        return calculator.set( initial ).multiply( bigDecimalFactor );
+    }
+
+    @Benchmark
+    public MoneyCalculator multiplyRate () {
+        return calculator.set( initial ).multiply( rate );
+    }
+
+    @Benchmark
+    public MoneyCalculator divideLong () {
+        return calculator.set( initial ).divide( longFactor );
+    }
+
+    @Benchmark
+    public MoneyCalculator divideDouble () {
+        return calculator.set( initial ).divide( doubleFactor );
+    }
+
+    @Benchmark
+    public MoneyCalculator divideBigDecimal () {
+        return calculator.set( initial ).divide( bigDecimalFactor );
+    }
+
+    @Benchmark
+    public MoneyCalculator divideRate () {
+        return calculator.set( initial ).divide( rate );
+    }
+
+    @Benchmark
+    public Money result () {
+        return calculator.set( initial ).divide( longFactor ).result().getValue();
+    }
+
+    @Benchmark
+    public Money chain () {
+        return calculator.set( initial ).multiply( bigDecimalFactor ).divide( longFactor ).add( amount ).result().getValue();
+    }
+
+    @Benchmark
+    public long program () {
+        return program.run( initial, result ).getValueMinorUnits();
+    }
+}
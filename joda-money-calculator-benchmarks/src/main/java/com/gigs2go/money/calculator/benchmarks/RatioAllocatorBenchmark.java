@@ -0,0 +1,66 @@
+package com.gigs2go.money.calculator.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gigs2go.money.calculator.allocators.RatioAllocator;
+import com.gigs2go.money.calculator.allocators.RatioStrategy;
+
+/**
+ * Benchmarks each {@link RatioStrategy} across a range of ratio counts.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class RatioAllocatorBenchmark {
+    @Param( { "LARGEST_REMAINDER", "FRONT_LOADING", "BACK_LOADING" } )
+    private RatioStrategy strategy;
+
+    @Param( { "3", "1000", "100000" } )
+    private int ratioCount;
+
+    private RatioAllocator allocator;
+    private Money money;
+    private long minorUnits;
+    private long[] ratios;
+    private long[] out;
+
+    @Setup
+    public void setup () {
+        allocator = strategy.getAllocator();
+        money = Money.parse( "GBP 12345678.91" );
+        minorUnits = money.getAmountMinorLong();
+        Random random = new Random( 42L );
+        ratios = new long[ratioCount];
+        for ( int i = 0; i < ratioCount; i++ ) {
+            ratios[i] = 1 + random.nextInt( 1000 );
+        }
+        out = new long[ratioCount];
+    }
+
+    @Benchmark
+    public Money[] allocate () {
+        return allocator.allocate( money, ratios );
+    }
+
+    @Benchmark
+    public int allocateMinorUnits () {
+        return allocator.allocate( minorUnits, ratios, out, 0 );
+    }
+}
@@ -0,0 +1,504 @@
+package com.gigs2go.money.calculator;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * An Allocation is a compact, immutable description of the result of an
+ * {@link Allocator}.<br/>
+ * Every division holds either the 'low' or the 'high' number of minor units,
+ * so only those two values, the number of 'high' divisions (the
+ * remainderCount) and their {@link Orientation} are stored. Individual
+ * divisions are calculated on demand, either as minor units or as Money.
+ * </p>
+ * <p>
+ * The high value is one minor unit further from zero than the low value (so
+ * for a negative amount it is actually the lower of the two). When
+ * remainderCount is zero, high is equal to low.<br/>
+ * The total of all divisions is always exactly equal to the amount allocated.
+ * </p>
+ *
+ * @see Allocator
+ * @see Money
+ */
+public final class Allocation {
+    /**
+     * Where the leftover minor units of an Allocation are placed
+     */
+    public enum Orientation {
+        /**
+         * Across the first remainderCount divisions
+         */
+        FRONT,
+        /**
+         * Across the last remainderCount divisions
+         */
+        BACK,
+        /**
+         * As an additional, trailing division
+         */
+        TRAILING
+    }
+
+    private final CurrencyUnit currency;
+    private final int len;
+    private final long low;
+    private final long high;
+    private final int remainderCount;
+    private final Orientation orientation;
+
+    private Allocation( CurrencyUnit currency, int len, long low, long high, int remainderCount, Orientation orientation ) {
+        this.currency = currency;
+        this.len = len;
+        this.low = low;
+        this.high = high;
+        this.remainderCount = remainderCount;
+        this.orientation = orientation;
+    }
+
+    /**
+     * Describes the allocation of the given Money across 'len' divisions
+     *
+     * @param money
+     *            The Money to allocate
+     * @param len
+     *            The number of divisions to use
+     * @param orientation
+     *            Where any leftover minor units are placed
+     * @return The Allocation
+     * @throws ArithmeticException
+     *             If a division does not fit in a long of minor units
+     */
+    public static Allocation of ( Money money, int len, Orientation orientation ) {
+        checkLength( len );
+        if ( orientation == null ) {
+            throw new NullPointerException( "Orientation must not be null" );
+        }
+        BigInteger amount = money.getAmount().unscaledValue();
+        if ( amount.bitLength() < 64 ) {
+            return of( money.getCurrencyUnit(), amount.longValue(), len, orientation );
+        }
+        Metrics.allocation( len );
+        // Integral ops only
+        BigInteger[] divAndR = amount.divideAndRemainder( BigInteger.valueOf( len ) );
+        long low = ScaledArithmetic.longValue( divAndR[0] );
+        int remainder = divAndR[1].intValue();
+        long high = remainder == 0 ? low : Math.addExact( low, amount.signum() );
+        return new Allocation( money.getCurrencyUnit(), len, low, high, Math.abs( remainder ), orientation );
+    }
+
+    /**
+     * Describes the allocation of the given number of minor units across
+     * 'len' divisions
+     *
+     * @param currency
+     *            The CurrencyUnit of the minor units
+     * @param minorUnits
+     *            The amount to allocate
+     * @param len
+     *            The number of divisions to use
+     * @param orientation
+     *            Where any leftover minor units are placed
+     * @return The Allocation
+     */
+    public static Allocation of ( CurrencyUnit currency, long minorUnits, int len, Orientation orientation ) {
+        checkLength( len );
+        if ( currency == null ) {
+            throw new NullPointerException( "CurrencyUnit must not be null" );
+        }
+        if ( orientation == null ) {
+            throw new NullPointerException( "Orientation must not be null" );
+        }
+        Metrics.allocation( len );
+        long low = minorUnits / len;
+        int remainder = (int)(minorUnits - low * len);
+        long high = remainder == 0 ? low : low + Long.signum( minorUnits );
+        return new Allocation( currency, len, low, high, Math.abs( remainder ), orientation );
+    }
+
+    /**
+     * Writes the minor units of each division of the given Money into 'out',
+     * without creating an Allocation.
+     *
+     * @param money
+     *            The Money to allocate
+     * @param len
+     *            The number of divisions to use
+     * @param orientation
+     *            Where any leftover minor units are placed
+     * @param out
+     *            The array to write to
+     * @param offset
+     *            The index of 'out' to start writing at
+     * @return The number of elements written - see {@link #size(int, Orientation)}
+     * @throws ArithmeticException
+     *             If a division does not fit in a long of minor units
+     */
+    public static int fill ( Money money, int len, Orientation orientation, long[] out, int offset ) {
+        BigInteger amount = money.getAmount().unscaledValue();
+        if ( amount.bitLength() < 64 ) {
+            return fill( amount.longValue(), len, orientation, out, offset );
+        }
+        return of( money, len, orientation ).toMinorUnits( out, offset );
+    }
+
+    /**
+     * Writes the minor units of each division of the given amount into 'out',
+     * without creating an Allocation.
+     *
+     * @param minorUnits
+     *            The amount to allocate
+     * @param len
+     *            The number of divisions to use
+     * @param orientation
+     *            Where any leftover minor units are placed
+     * @param out
+     *            The array to write to
+     * @param offset
+     *            The index of 'out' to start writing at
+     * @return The number of elements written - see {@link #size(int, Orientation)}
+     */
+    public static int fill ( long minorUnits, int len, Orientation orientation, long[] out, int offset ) {
+        return fill( minorUnits, len, orientation, out, offset, Parallelism.sequential() );
+    }
+
+    /**
+     * Writes the minor units of each division of the given amount into 'out',
+     * without creating an Allocation, splitting large allocations across
+     * threads as the given {@link Parallelism} allows. The elements written
+     * are identical to those written sequentially.
+     *
+     * @param minorUnits
+     *            The amount to allocate
+     * @param len
+     *            The number of divisions to use
+     * @param orientation
+     *            Where any leftover minor units are placed
+     * @param out
+     *            The array to write to
+     * @param offset
+     *            The index of 'out' to start writing at
+     * @param parallelism
+     *            How the divisions may be split
+     * @return The number of elements written - see {@link #size(int, Orientation)}
+     */
+    public static int fill ( long minorUnits, int len, Orientation orientation, long[] out, int offset, Parallelism parallelism ) {
+        checkLength( len );
+        Metrics.allocation( len );
+        long low = minorUnits / len;
+        int remainder = (int)(minorUnits - low * len);
+        long high = remainder == 0 ? low : low + Long.signum( minorUnits );
+        return fill( len, low, high, Math.abs( remainder ), orientation, out, offset, parallelism );
+    }
+
+    /**
+     * Describes divisions which have already been made, for
+     * {@link Allocator}s which only create Money.
+     *
+     * @param divisions
+     *            The divisions of an allocation across 'len' divisions
+     * @param len
+     *            The number of divisions used
+     * @return The Allocation
+     * @throws UnsupportedOperationException
+     *             If the divisions do not have the shape of an Allocation
+     */
+    static Allocation describe ( Money[] divisions, int len ) {
+        checkLength( len );
+        CurrencyUnit currency = divisions[0].getCurrencyUnit();
+        if ( divisions.length == len + 1 ) {
+            long low = divisions[0].getAmountMinorLong();
+            long trailing = divisions[len].getAmountMinorLong();
+            if ( isUniform( divisions, 0, len, low ) && Math.abs( trailing ) < len ) {
+                long high = (trailing == 0 ? low : low + Long.signum( trailing ));
+                return new Allocation( currency, len, low, high, (int)Math.abs( trailing ), Orientation.TRAILING );
+            }
+        } else if ( divisions.length == len ) {
+            long first = divisions[0].getAmountMinorLong();
+            long last = divisions[len - 1].getAmountMinorLong();
+            boolean front = Math.abs( first ) > Math.abs( last );
+            long high = (front ? first : last);
+            long low = (front ? last : first);
+            if ( high == low || high == low + Long.signum( high ) ) {
+                int remainderCount = 0;
+                if ( high != low ) {
+                    while ( remainderCount < len
+                            && divisions[front ? remainderCount : len - 1 - remainderCount].getAmountMinorLong() == high ) {
+                        remainderCount++;
+                    }
+                }
+                int lowFrom = (front ? remainderCount : 0);
+                if ( isUniform( divisions, lowFrom, lowFrom + len - remainderCount, low ) ) {
+                    return new Allocation( currency, len, low, high, remainderCount, front ? Orientation.FRONT : Orientation.BACK );
+                }
+            }
+        }
+        throw new UnsupportedOperationException( "Divisions cannot be described as an Allocation : " + Arrays.toString( divisions ) );
+    }
+
+    private static boolean isUniform ( Money[] divisions, int from, int to, long minorUnits ) {
+        for ( int i = from; i < to; i++ ) {
+            if ( divisions[i].getAmountMinorLong() != minorUnits ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param len
+     *            The number of divisions
+     * @param orientation
+     *            Where any leftover minor units are placed
+     * @return The number of elements an allocation into 'len' divisions
+     *         produces
+     */
+    public static int size ( int len, Orientation orientation ) {
+        return orientation == Orientation.TRAILING ? len + 1 : len;
+    }
+
+    private static int fill ( final int len, final long low, final long high, final int remainderCount, Orientation orientation,
+            final long[] out, final int offset, Parallelism parallelism ) {
+        int size = size( len, orientation );
+        if ( offset < 0 || out.length - offset < size ) {
+            throw new IllegalArgumentException( "out must have room for " + size + " elements from offset " + offset + " : " + out.length );
+        }
+        // The index of the first 'high' division, and the one after the last
+        final int highFrom = (orientation == Orientation.BACK ? len - remainderCount : 0);
+        final int highTo = (orientation == Orientation.FRONT ? remainderCount : orientation == Orientation.BACK ? len : 0);
+        if ( parallelism.getPool() == null || len <= parallelism.getThreshold() ) {
+            fillRange( low, high, highFrom, highTo, out, offset, 0, len );
+        } else {
+            parallelism.forRange( 0, len, new Parallelism.RangeAction() {
+                @Override
+                public void apply ( int from, int to ) {
+                    fillRange( low, high, highFrom, highTo, out, offset, from, to );
+                }
+            } );
+        }
+        if ( orientation == Orientation.TRAILING ) {
+            out[offset + len] = (high - low) * remainderCount;
+        }
+        return size;
+    }
+
+    /**
+     * Fills divisions 'from' to 'to', where divisions 'highFrom' to 'highTo'
+     * hold the high value
+     */
+    private static void fillRange ( long low, long high, int highFrom, int highTo, long[] out, int offset, int from, int to ) {
+        int lowTo = Math.max( from, Math.min( to, highFrom ) );
+        int highEnd = Math.max( lowTo, Math.min( to, highTo ) );
+        Arrays.fill( out, offset + from, offset + lowTo, low );
+        Arrays.fill( out, offset + lowTo, offset + highEnd, high );
+        Arrays.fill( out, offset + highEnd, offset + to, low );
+    }
+
+    private static void checkLength ( int len ) {
+        if ( !(len > 0) ) {
+            throw new IllegalArgumentException( "len must be greater than zero : " + len );
+        }
+    }
+
+    /**
+     * @return The number of elements in this Allocation - 'len', plus one for
+     *         a TRAILING Orientation
+     */
+    public int size () {
+        return size( len, orientation );
+    }
+
+    /**
+     * @param index
+     *            The index of the element
+     * @return The minor units of the given element
+     */
+    public long getMinorUnits ( int index ) {
+        if ( index < 0 || index >= size() ) {
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size() );
+        }
+        switch ( orientation ) {
+        case FRONT:
+            return index < remainderCount ? high : low;
+        case BACK:
+            return index >= len - remainderCount ? high : low;
+        default:
+            return index < len ? low : (high - low) * remainderCount;
+        }
+    }
+
+    /**
+     * @param index
+     *            The index of the element
+     * @return The given element as Money
+     */
+    public Money getMoney ( int index ) {
+        return MoneyInterner.ofMinor( currency, getMinorUnits( index ) );
+    }
+
+    /**
+     * Writes the minor units of every element into 'out'
+     *
+     * @param out
+     *            The array to write to
+     * @param offset
+     *            The index of 'out' to start writing at
+     * @return The number of elements written
+     */
+    public int toMinorUnits ( long[] out, int offset ) {
+        return toMinorUnits( out, offset, Parallelism.sequential() );
+    }
+
+    /**
+     * Writes the minor units of every element into 'out', splitting large
+     * allocations across threads as the given {@link Parallelism} allows.
+     * The elements written are identical to those written sequentially.
+     *
+     * @param out
+     *            The array to write to
+     * @param offset
+     *            The index of 'out' to start writing at
+     * @param parallelism
+     *            How the elements may be split
+     * @return The number of elements written
+     */
+    public int toMinorUnits ( long[] out, int offset, Parallelism parallelism ) {
+        return fill( len, low, high, remainderCount, orientation, out, offset, parallelism );
+    }
+
+    /**
+     * @return Every element as Money. Elements with equal values share the
+     *         same Money instance.
+     */
+    public Money[] toMoney () {
+        Money[] result = new Money[size()];
+        Money lowResult = MoneyInterner.ofMinor( currency, low );
+        Money highResult = (high == low ? lowResult : MoneyInterner.ofMinor( currency, high ));
+        switch ( orientation ) {
+        case FRONT:
+            Arrays.fill( result, 0, remainderCount, highResult );
+            Arrays.fill( result, remainderCount, len, lowResult );
+            break;
+        case BACK:
+            Arrays.fill( result, 0, len - remainderCount, lowResult );
+            Arrays.fill( result, len - remainderCount, len, highResult );
+            break;
+        default:
+            Arrays.fill( result, 0, len, lowResult );
+            result[len] = MoneyInterner.ofMinor( currency, (high - low) * remainderCount );
+            break;
+        }
+        return result;
+    }
+
+    /**
+     * @return A Spliterator over the minor units of every element, which
+     *         calculates each element as it is traversed
+     */
+    public Spliterator.OfLong spliterator () {
+        return new AllocationSpliterator( this );
+    }
+
+    /**
+     * @return A sequential stream of the minor units of every element, in
+     *         constant memory. It may be made parallel, and splits evenly.
+     */
+    public LongStream minorUnits () {
+        return StreamSupport.longStream( spliterator(), false );
+    }
+
+    /**
+     * @return A sequential stream of every element as Money, in constant
+     *         memory. Elements with equal values are the same Money instance.
+     *         It may be made parallel, and splits evenly.
+     */
+    public Stream<Money> stream () {
+        final AllocationResult view = new AllocationResult( this );
+        return IntStream.range( 0, size() ).mapToObj( new IntFunction<Money>() {
+            @Override
+            public Money apply ( int index ) {
+                return view.get( index );
+            }
+        } );
+    }
+
+    /**
+     * @return the currency
+     */
+    public CurrencyUnit getCurrencyUnit () {
+        return currency;
+    }
+
+    /**
+     * @return the number of divisions
+     */
+    public int getLength () {
+        return len;
+    }
+
+    /**
+     * @return the low value, in minor units
+     */
+    public long getLow () {
+        return low;
+    }
+
+    /**
+     * @return the high value, in minor units
+     */
+    public long getHigh () {
+        return high;
+    }
+
+    /**
+     * @return the number of leftover minor units
+     */
+    public int getRemainderCount () {
+        return remainderCount;
+    }
+
+    /**
+     * @return the orientation
+     */
+    public Orientation getOrientation () {
+        return orientation;
+    }
+
+    @Override
+    public boolean equals ( Object other ) {
+        if ( this == other ) {
+            return true;
+        }
+        if ( !(other instanceof Allocation) ) {
+            return false;
+        }
+        Allocation allocation = (Allocation)other;
+        return len == allocation.len && low == allocation.low && high == allocation.high && remainderCount == allocation.remainderCount
+                && orientation == allocation.orientation && currency.equals( allocation.currency );
+    }
+
+    @Override
+    public int hashCode () {
+        int hash = currency.hashCode();
+        hash = 31 * hash + len;
+        hash = 31 * hash + (int)(low ^ (low >>> 32));
+        hash = 31 * hash + remainderCount;
+        return 31 * hash + orientation.hashCode();
+    }
+
+    @Override
+    public String toString () {
+        return "Allocation[" + currency + " " + len + " x " + low + (remainderCount > 0 ? ", " + remainderCount + " x " + high : "") + ", "
+                + orientation + "]";
+    }
+}
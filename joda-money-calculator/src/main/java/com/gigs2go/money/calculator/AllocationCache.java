@@ -0,0 +1,179 @@
+package com.gigs2go.money.calculator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * A bounded, least-recently-used cache of allocations, keyed by the
+ * Allocator, the Money allocated (its CurrencyUnit and amount) and the number
+ * of divisions.<br/>
+ * Repeatedly splitting the same amounts the same ways becomes a lookup, and
+ * returns the same immutable {@link AllocationResult} (and so the same Money
+ * instances) every time.
+ * </p>
+ * <p>
+ * An AllocationCache is thread-safe. Allocations are calculated outside the
+ * lock, so two threads missing on the same key at once may both calculate
+ * it; the results are equal, and the first one stored is kept.
+ * </p>
+ *
+ * @see Allocator
+ * @see AllocationResult
+ */
+public class AllocationCache {
+    private final int maxSize;
+    private final Map<Key, AllocationResult> entries;
+    private long hits = 0L;
+    private long misses = 0L;
+
+    /**
+     * Create a new AllocationCache holding at most 'maxSize' allocations
+     *
+     * @param maxSize
+     *            The maximum number of allocations to hold
+     */
+    public AllocationCache( final int maxSize ) {
+        if ( !(maxSize > 0) ) {
+            throw new IllegalArgumentException( "maxSize must be greater than zero : " + maxSize );
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Key, AllocationResult>( 16, 0.75f, true ) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry ( Map.Entry<Key, AllocationResult> eldest ) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Allocate the given amount of {@link Money} into 'len' amounts using the
+     * given {@link Allocator}, or return the cached allocation
+     *
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param money
+     *            The amount of money to allocate
+     * @param len
+     *            The number of units to allocate the money to
+     * @return A shared, immutable List of the allocated amounts
+     */
+    public AllocationResult allocate ( Allocator allocator, Money money, int len ) {
+        if ( allocator == null ) {
+            throw new NullPointerException( "Allocator must not be null" );
+        }
+        if ( money == null ) {
+            throw new NullPointerException( "Money must not be null" );
+        }
+        Key key = new Key( allocator, money, len );
+        synchronized ( entries ) {
+            AllocationResult result = entries.get( key );
+            if ( result != null ) {
+                hits++;
+                return result;
+            }
+            misses++;
+        }
+        AllocationResult result = new AllocationResult( allocator.allocation( money, len ) );
+        synchronized ( entries ) {
+            AllocationResult existing = entries.get( key );
+            if ( existing != null ) {
+                return existing;
+            }
+            entries.put( key, result );
+        }
+        return result;
+    }
+
+    /**
+     * Describe the allocation of the given amount of {@link Money} into 'len'
+     * amounts using the given {@link Allocator}, or return the cached
+     * allocation
+     *
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param money
+     *            The amount of money to allocate
+     * @param len
+     *            The number of units to allocate the money to
+     * @return The shared {@link Allocation}
+     */
+    public Allocation allocation ( Allocator allocator, Money money, int len ) {
+        return allocate( allocator, money, len ).getAllocation();
+    }
+
+    /**
+     * @return the number of lookups which found a cached allocation
+     */
+    public long getHitCount () {
+        synchronized ( entries ) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return the number of lookups which had to calculate the allocation
+     */
+    public long getMissCount () {
+        synchronized ( entries ) {
+            return misses;
+        }
+    }
+
+    /**
+     * @return the number of cached allocations
+     */
+    public int size () {
+        synchronized ( entries ) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the maximum number of cached allocations
+     */
+    public int getMaxSize () {
+        return maxSize;
+    }
+
+    /**
+     * Removes every cached allocation, and resets the hit and miss counts
+     */
+    public void clear () {
+        synchronized ( entries ) {
+            entries.clear();
+            hits = 0L;
+            misses = 0L;
+        }
+    }
+
+    private static final class Key {
+        private final Allocator allocator;
+        private final Money money;
+        private final int len;
+
+        Key( Allocator allocator, Money money, int len ) {
+            this.allocator = allocator;
+            this.money = money;
+            this.len = len;
+        }
+
+        @Override
+        public boolean equals ( Object other ) {
+            if ( !(other instanceof Key) ) {
+                return false;
+            }
+            Key key = (Key)other;
+            return allocator == key.allocator && len == key.len && money.equals( key.money );
+        }
+
+        @Override
+        public int hashCode () {
+            return (31 * System.identityHashCode( allocator ) + len) * 31 + money.hashCode();
+        }
+    }
+}
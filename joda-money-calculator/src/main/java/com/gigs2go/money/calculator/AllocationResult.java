@@ -0,0 +1,61 @@
+package com.gigs2go.money.calculator;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * An AllocationResult is an immutable List view of an {@link Allocation}.<br/>
+ * Elements are calculated on demand, so the view takes the same (constant)
+ * memory however many divisions there are. Elements with equal values are the
+ * same Money instance.
+ * </p>
+ * Any attempt to modify the List will result in an
+ * UnsupportedOperationException.
+ *
+ * @see Allocation
+ * @see MoneyCalculator#allocateLazily(Allocator, Money, int)
+ */
+public final class AllocationResult extends AbstractList<Money> implements RandomAccess {
+    private final Allocation allocation;
+    private final Money low;
+    private final Money high;
+    private final Money trailing;
+
+    /**
+     * Create a new List view of the given Allocation
+     *
+     * @param allocation
+     *            The Allocation to view
+     */
+    public AllocationResult( Allocation allocation ) {
+        this.allocation = allocation;
+        this.low = MoneyInterner.ofMinor( allocation.getCurrencyUnit(), allocation.getLow() );
+        this.high = (allocation.getHigh() == allocation.getLow() ? low : MoneyInterner.ofMinor( allocation.getCurrencyUnit(), allocation.getHigh() ));
+        this.trailing = (allocation.getOrientation() == Allocation.Orientation.TRAILING ? allocation.getMoney( allocation.getLength() ) : null);
+    }
+
+    @Override
+    public Money get ( int index ) {
+        long minorUnits = allocation.getMinorUnits( index );
+        if ( index == allocation.getLength() ) {
+            return trailing;
+        }
+        return minorUnits == allocation.getLow() ? low : high;
+    }
+
+    @Override
+    public int size () {
+        return allocation.size();
+    }
+
+    /**
+     * @return the allocation being viewed
+     */
+    public Allocation getAllocation () {
+        return allocation;
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.gigs2go.money.calculator;
+
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * <p>
+ * A Spliterator over the minor units of each element of an
+ * {@link Allocation}.<br/>
+ * Elements are calculated as they are traversed, so it takes constant memory
+ * however many divisions there are. It is SIZED and SUBSIZED, and splits in
+ * half, so parallel streams partition it evenly.
+ * </p>
+ *
+ * @see Allocation#minorUnits()
+ */
+final class AllocationSpliterator implements Spliterator.OfLong {
+    private final Allocation allocation;
+    private int index;
+    private final int fence;
+    /* The index of the first 'high' element, and the one after the last */
+    private final int highFrom;
+    private final int highTo;
+
+    AllocationSpliterator( Allocation allocation ) {
+        this( allocation, 0, allocation.size() );
+    }
+
+    private AllocationSpliterator( Allocation allocation, int index, int fence ) {
+        this.allocation = allocation;
+        this.index = index;
+        this.fence = fence;
+        int len = allocation.getLength();
+        int remainderCount = allocation.getRemainderCount();
+        switch ( allocation.getOrientation() ) {
+        case FRONT:
+            highFrom = 0;
+            highTo = remainderCount;
+            break;
+        case BACK:
+            highFrom = len - remainderCount;
+            highTo = len;
+            break;
+        default:
+            highFrom = 0;
+            highTo = 0;
+            break;
+        }
+    }
+
+    @Override
+    public OfLong trySplit () {
+        int middle = (index + fence) >>> 1;
+        if ( middle <= index ) {
+            return null;
+        }
+        AllocationSpliterator prefix = new AllocationSpliterator( allocation, index, middle );
+        index = middle;
+        return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance ( LongConsumer action ) {
+        if ( action == null ) {
+            throw new NullPointerException();
+        }
+        if ( index >= fence ) {
+            return false;
+        }
+        action.accept( allocation.getMinorUnits( index++ ) );
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining ( LongConsumer action ) {
+        if ( action == null ) {
+            throw new NullPointerException();
+        }
+        long low = allocation.getLow();
+        long high = allocation.getHigh();
+        int len = Math.min( fence, allocation.getLength() );
+        int i = index;
+        for ( ; i < len; i++ ) {
+            action.accept( i >= highFrom && i < highTo ? high : low );
+        }
+        if ( i < fence ) {
+            // The trailing element
+            action.accept( allocation.getMinorUnits( i++ ) );
+        }
+        index = i;
+    }
+
+    @Override
+    public long estimateSize () {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics () {
+        return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+    }
+}
@@ -1,14 +1,19 @@
 package com.gigs2go.money.calculator;
 
+import org.joda.money.CurrencyUnit;
 import org.joda.money.Money;
 
 /**
  * <p>
  * An Allocator allocates a Money object across the specified number of
  * divisions, and deals with any 'leftovers' according to it's strategy.<br/>
+ * Only {@link #allocate(Money, int)} must be implemented; the other methods
+ * default to converting its result, and may be overridden to avoid creating
+ * the Money objects.
  * </p>
  * 
  * @see Money
+ * @see Allocation
  */
 public interface Allocator {
     /**
@@ -22,4 +27,86 @@ public interface Allocator {
      * @return Specified by the implementing strategy
      */
     Money[] allocate ( Money money, int len );
+
+    /**
+     * Allocates the given amount of Money across the number of divisions given
+     * by 'len', according to it's strategy, writing the minor units of each
+     * division into 'out' rather than creating Money objects.
+     * 
+     * @param money
+     *            The Money to allocate
+     * @param len
+     *            The number of divisions to use
+     * @param out
+     *            The array to write the minor units to
+     * @param offset
+     *            The index of 'out' to start writing at
+     * @return The number of elements written, as specified by the
+     *         implementing strategy
+     */
+    default int allocate ( Money money, int len, long[] out, int offset ) {
+        Money[] divisions = allocate( money, len );
+        if ( offset < 0 || out.length - offset < divisions.length ) {
+            throw new IllegalArgumentException( "out must have room for " + divisions.length + " elements from offset " + offset + " : "
+                    + out.length );
+        }
+        for ( int i = 0; i < divisions.length; i++ ) {
+            out[offset + i] = divisions[i].getAmountMinorLong();
+        }
+        return divisions.length;
+    }
+
+    /**
+     * Allocates the given number of minor units across the number of
+     * divisions given by 'len', according to it's strategy, writing the minor
+     * units of each division into 'out'. The default creates the Money to
+     * allocate; the built-in strategies override it to create no objects.
+     * 
+     * @param currency
+     *            The CurrencyUnit of the minor units
+     * @param minorUnits
+     *            The amount to allocate, in minor units
+     * @param len
+     *            The number of divisions to use
+     * @param out
+     *            The array to write the minor units to
+     * @param offset
+     *            The index of 'out' to start writing at
+     * @return The number of elements written - see {@link #size(int)}
+     */
+    default int allocate ( CurrencyUnit currency, long minorUnits, int len, long[] out, int offset ) {
+        return allocate( Money.ofMinor( currency, minorUnits ), len, out, offset );
+    }
+
+    /**
+     * The number of elements an allocation across 'len' divisions produces.
+     * The default is one element per division, so a strategy which writes any
+     * other number (such as a trailing remainder) must override it.
+     * 
+     * @param len
+     *            The number of divisions to use
+     * @return The number of elements written by each allocation, as specified
+     *         by the implementing strategy
+     */
+    default int size ( int len ) {
+        return len;
+    }
+
+    /**
+     * Describes the allocation of the given amount of Money across the number
+     * of divisions given by 'len', according to it's strategy, without
+     * creating the individual divisions.
+     * 
+     * @param money
+     *            The Money to allocate
+     * @param len
+     *            The number of divisions to use
+     * @return The compact {@link Allocation}
+     * @throws UnsupportedOperationException
+     *             If the strategy's divisions cannot be described by an
+     *             Allocation
+     */
+    default Allocation allocation ( Money money, int len ) {
+        return Allocation.describe( allocate( money, len ), len );
+    }
 }
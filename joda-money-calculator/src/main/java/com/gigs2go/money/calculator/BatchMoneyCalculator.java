@@ -0,0 +1,428 @@
+package com.gigs2go.money.calculator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * A BatchMoneyCalculator applies the same sequence of operations to every
+ * amount in an array, for a single CurrencyUnit.<br/>
+ * Each amount is treated exactly as if a {@link MoneyCalculator} (with the
+ * same remainderScale and RoundingMode) had been set() to it, had the
+ * operations applied, and had then been asked for its result(). The rounded
+ * values (in minor units) and the remainders (unscaled, at
+ * {@link #getRemainderScale()}) are written into caller-supplied arrays.
+ * </p>
+ * <p>
+ * The operations are compiled once into long arithmetic, and each amount runs
+ * through them in a tight loop without creating any objects. Any amount which
+ * overflows a long is recalculated using a MoneyCalculator, so the results are
+ * always identical.
+ * </p>
+ * <p>
+ * The operations are recorded (and can be cleared), but a BatchMoneyCalculator
+ * holds no other state, so calculate() may be called any number of times. It
+ * is <b>NOT</b> thread-safe whilst operations are being added.<br/>
+ * Large batches may be split across a ForkJoinPool by passing a
+ * {@link Parallelism}; each amount is still calculated independently, so the
+ * results are identical.
+ * </p>
+ *
+ * @see MoneyCalculator
+ */
+public class BatchMoneyCalculator {
+    private static final int REMAINDER_SCALE = 3;
+
+    private final CurrencyUnit currency;
+    private final int remainderScale;
+    private final RoundingMode roundingMode;
+    private final List<Operation> operations = new ArrayList<Operation>();
+    private volatile MoneyProgram program = null;
+
+    /**
+     * Create a new BatchMoneyCalculator with a default remainderScale of 3 and
+     * a default RoundingMode of 'HALF_UP'
+     *
+     * @param currency
+     *            The CurrencyUnit of every amount
+     */
+    public BatchMoneyCalculator( CurrencyUnit currency ) {
+        this( currency, REMAINDER_SCALE, RoundingMode.HALF_UP );
+    }
+
+    /**
+     * Create a new BatchMoneyCalculator with a default remainderScale of 3 and
+     * the given RoundingMode
+     *
+     * @param currency
+     *            The CurrencyUnit of every amount
+     * @param roundingMode
+     */
+    public BatchMoneyCalculator( CurrencyUnit currency, RoundingMode roundingMode ) {
+        this( currency, REMAINDER_SCALE, roundingMode );
+    }
+
+    /**
+     * Create a new BatchMoneyCalculator with the given remainderScale and
+     * RoundingMode
+     *
+     * @param currency
+     *            The CurrencyUnit of every amount
+     * @param remainderScale
+     * @param roundingMode
+     */
+    public BatchMoneyCalculator( CurrencyUnit currency, int remainderScale, RoundingMode roundingMode ) {
+        if ( currency == null ) {
+            throw new NullPointerException( "CurrencyUnit must not be null" );
+        }
+        this.currency = currency;
+        this.remainderScale = Math.max( Math.max( remainderScale, REMAINDER_SCALE ), currency.getDecimalPlaces() + REMAINDER_SCALE );
+        this.roundingMode = roundingMode;
+    }
+
+    /**
+     * Removes all operations
+     *
+     * @return The {@link BatchMoneyCalculator} for further operations
+     */
+    public BatchMoneyCalculator clear () {
+        operations.clear();
+        program = null;
+        return this;
+    }
+
+    /**
+     * Add the provided amount to every value
+     *
+     * @param amount
+     *            The amount to add
+     * @return The {@link BatchMoneyCalculator} for further operations
+     */
+    public BatchMoneyCalculator add ( Money amount ) {
+        return record( Operation.of( Operation.Type.ADD, checkCurrency( amount ) ) );
+    }
+
+    /**
+     * Subtract the provided amount from every value
+     *
+     * @param amount
+     *            The amount to subtract
+     * @return The {@link BatchMoneyCalculator} for further operations
+     */
+    public BatchMoneyCalculator subtract ( Money amount ) {
+        return record( Operation.of( Operation.Type.SUBTRACT, checkCurrency( amount ) ) );
+    }
+
+    /**
+     * Multiplies every value by the given long
+     *
+     * @param by
+     *            The value to multiply by
+     * @return The {@link BatchMoneyCalculator} for further operations
+     */
+    public BatchMoneyCalculator multiply ( long by ) {
+        return record( Operation.of( Operation.Type.MULTIPLY_LONG, by ) );
+    }
+
+    /**
+     * Multiplies every value by the given double
+     *
+     * @param by
+     *            The value to multiply by
+     * @return The {@link BatchMoneyCalculator} for further operations
+     */
+    public BatchMoneyCalculator multiply ( double by ) {
+        return record( Operation.of( Operation.Type.MULTIPLY_DOUBLE, by ) );
+    }
+
+    /**
+     * Multiplies every value by the given BigDecimal
+     *
+     * @param by
+     *            The value to multiply by
+     * @return The {@link BatchMoneyCalculator} for further operations
+     */
+    public BatchMoneyCalculator multiply ( BigDecimal by ) {
+        return record( Operation.of( Operation.Type.MULTIPLY_DECIMAL, by ) );
+    }
+
+    /**
+     * Multiplies every value by the given Rate
+     *
+     * @param by
+     *            The Rate to multiply by
+     * @return The {@link BatchMoneyCalculator} for further operations
+     */
+    public BatchMoneyCalculator multiply ( Rate by ) {
+        return record( Operation.of( Operation.Type.MULTIPLY_DECIMAL, by.getValue() ) );
+    }
+
+    /**
+     * Divides every value by the given long
+     *
+     * @param by
+     *            The value to divide by
+     * @return The {@link BatchMoneyCalculator} for further operations
+     */
+    public BatchMoneyCalculator divide ( long by ) {
+        return record( Operation.of( Operation.Type.DIVIDE_LONG, by ) );
+    }
+
+    /**
+     * Divides every value by the given double
+     *
+     * @param by
+     *            The value to divide by
+     * @return The {@link BatchMoneyCalculator} for further operations
+     */
+    public BatchMoneyCalculator divide ( double by ) {
+        return record( Operation.of( Operation.Type.DIVIDE_DOUBLE, by ) );
+    }
+
+    /**
+     * Divides every value by the given BigDecimal
+     *
+     * @param by
+     *            The value to divide by
+     * @return The {@link BatchMoneyCalculator} for further operations
+     */
+    public BatchMoneyCalculator divide ( BigDecimal by ) {
+        return record( Operation.of( Operation.Type.DIVIDE_DECIMAL, by ) );
+    }
+
+    /**
+     * Divides every value by the given Rate
+     *
+     * @param by
+     *            The Rate to divide by
+     * @return The {@link BatchMoneyCalculator} for further operations
+     */
+    public BatchMoneyCalculator divide ( Rate by ) {
+        return record( Operation.of( Operation.Type.DIVIDE_DECIMAL, by.getValue() ) );
+    }
+
+    /**
+     * Applies the operations to every amount
+     *
+     * @param amounts
+     *            The amounts, in minor units
+     * @param values
+     *            Receives each rounded value, in minor units
+     * @param remainders
+     *            Receives each unscaled remainder, at the
+     *            {@link #getRemainderScale()}. May be null if the remainders
+     *            are not needed.
+     * @throws ArithmeticException
+     *             If a rounded value or remainder does not fit in a long
+     */
+    public void calculate ( long[] amounts, long[] values, long[] remainders ) {
+        calculate( amounts, values, remainders, Parallelism.sequential() );
+    }
+
+    /**
+     * Applies the operations to every amount, splitting the amounts across
+     * threads as the given {@link Parallelism} allows. The values and
+     * remainders are identical to those calculated sequentially.
+     *
+     * @param amounts
+     *            The amounts, in minor units
+     * @param values
+     *            Receives each rounded value, in minor units
+     * @param remainders
+     *            Receives each unscaled remainder, at the
+     *            {@link #getRemainderScale()}. May be null if the remainders
+     *            are not needed.
+     * @param parallelism
+     *            How the amounts may be split
+     * @throws ArithmeticException
+     *             If a rounded value or remainder does not fit in a long
+     */
+    public void calculate ( final long[] amounts, final long[] values, final long[] remainders, Parallelism parallelism ) {
+        checkLengths( amounts.length, values, remainders );
+        final MoneyProgram.Compiled compiled = compile();
+        parallelism.forRange( 0, amounts.length, new Parallelism.RangeAction() {
+            @Override
+            public void apply ( int from, int to ) {
+                calculate( compiled, amounts, from, to, values, remainders );
+            }
+        } );
+    }
+
+    /**
+     * Applies the operations to every amount
+     *
+     * @param amounts
+     *            The amounts, which must all be in this calculator's
+     *            CurrencyUnit
+     * @param values
+     *            Receives each rounded value, in minor units
+     * @param remainders
+     *            Receives each unscaled remainder, at the
+     *            {@link #getRemainderScale()}. May be null if the remainders
+     *            are not needed.
+     * @throws ArithmeticException
+     *             If a rounded value or remainder does not fit in a long
+     */
+    public void calculate ( Money[] amounts, long[] values, long[] remainders ) {
+        calculate( amounts, values, remainders, Parallelism.sequential() );
+    }
+
+    /**
+     * Applies the operations to every amount, splitting the amounts across
+     * threads as the given {@link Parallelism} allows. The values and
+     * remainders are identical to those calculated sequentially.
+     *
+     * @param amounts
+     *            The amounts, which must all be in this calculator's
+     *            CurrencyUnit
+     * @param values
+     *            Receives each rounded value, in minor units
+     * @param remainders
+     *            Receives each unscaled remainder, at the
+     *            {@link #getRemainderScale()}. May be null if the remainders
+     *            are not needed.
+     * @param parallelism
+     *            How the amounts may be split
+     * @throws ArithmeticException
+     *             If a rounded value or remainder does not fit in a long
+     */
+    public void calculate ( final Money[] amounts, final long[] values, final long[] remainders, Parallelism parallelism ) {
+        checkLengths( amounts.length, values, remainders );
+        final MoneyProgram.Compiled compiled = compile();
+        parallelism.forRange( 0, amounts.length, new Parallelism.RangeAction() {
+            @Override
+            public void apply ( int from, int to ) {
+                calculate( compiled, amounts, from, to, values, remainders );
+            }
+        } );
+    }
+
+    /**
+     * @return the CurrencyUnit of every amount
+     */
+    public CurrencyUnit getCurrencyUnit () {
+        return currency;
+    }
+
+    /**
+     * @return the scale of the remainders - the larger of the given
+     *         remainderScale and the currency's scale + 3
+     */
+    public int getRemainderScale () {
+        return remainderScale;
+    }
+
+    /**
+     * @return the RoundingMode
+     */
+    public RoundingMode getRoundingMode () {
+        return roundingMode;
+    }
+
+    private void calculate ( MoneyProgram.Compiled compiled, long[] amounts, int from, int to, long[] values, long[] remainders ) {
+        MoneyCalculator fallback = null;
+        for ( int i = from; i < to; i++ ) {
+            if ( !calculate( compiled, amounts[i], i, values, remainders ) ) {
+                if ( fallback == null ) {
+                    fallback = new MoneyCalculator( remainderScale, roundingMode );
+                }
+                calculate( fallback, Money.ofMinor( currency, amounts[i] ), i, values, remainders );
+            }
+        }
+    }
+
+    private void calculate ( MoneyProgram.Compiled compiled, Money[] amounts, int from, int to, long[] values, long[] remainders ) {
+        MoneyCalculator fallback = null;
+        for ( int i = from; i < to; i++ ) {
+            Money amount = checkCurrency( amounts[i] );
+            boolean calculated;
+            try {
+                calculated = calculate( compiled, ScaledArithmetic.unscaledLong( amount ), i, values, remainders );
+            } catch ( ArithmeticException e ) {
+                calculated = false;
+            }
+            if ( !calculated ) {
+                if ( fallback == null ) {
+                    fallback = new MoneyCalculator( remainderScale, roundingMode );
+                }
+                calculate( fallback, amount, i, values, remainders );
+            }
+        }
+    }
+
+    /**
+     * Calculates a single amount using longs, writing the value and
+     * remainder at the given index
+     *
+     * @return false if the amount could not be calculated using longs
+     */
+    private static boolean calculate ( MoneyProgram.Compiled compiled, long amount, int index, long[] values, long[] remainders ) {
+        if ( !compiled.isCompact() ) {
+            return false;
+        }
+        try {
+            long value = compiled.evaluate( amount );
+            long rounded = compiled.round( value );
+            if ( remainders != null ) {
+                remainders[index] = compiled.remainder( value, rounded );
+            }
+            values[index] = rounded;
+            return true;
+        } catch ( ArithmeticException e ) {
+            return false;
+        }
+    }
+
+    private void calculate ( MoneyCalculator calculator, Money amount, int index, long[] values, long[] remainders ) {
+        MoneyCalculator.Result result = program.replay( calculator, amount, new MoneyCalculator.Result() );
+        values[index] = result.getValueMinorUnits();
+        if ( remainders != null ) {
+            remainders[index] = result.getRemainderUnscaled();
+        }
+    }
+
+    private BatchMoneyCalculator record ( Operation operation ) {
+        operations.add( operation );
+        program = null;
+        return this;
+    }
+
+    private Money checkCurrency ( Money amount ) {
+        if ( !currency.equals( amount.getCurrencyUnit() ) ) {
+            throw new CurrencyMismatchException( currency, amount.getCurrencyUnit() );
+        }
+        return amount;
+    }
+
+    private static void checkLengths ( int len, long[] values, long[] remainders ) {
+        if ( values.length < len ) {
+            throw new IllegalArgumentException( "values must have room for " + len + " elements : " + values.length );
+        }
+        if ( remainders != null && remainders.length < len ) {
+            throw new IllegalArgumentException( "remainders must have room for " + len + " elements : " + remainders.length );
+        }
+    }
+
+    private MoneyProgram.Compiled compile () {
+        MoneyProgram current = program;
+        if ( current == null ) {
+            current = new MoneyProgram( operations, remainderScale, roundingMode );
+            program = current;
+        }
+        return current.compile( currency );
+    }
+
+    /**
+     * @return the recorded operations as a {@link MoneyProgram}
+     */
+    public MoneyProgram toProgram () {
+        compile();
+        return program;
+    }
+}
@@ -0,0 +1,393 @@
+package com.gigs2go.money.calculator;
+
+import java.math.BigInteger;
+
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * The allocations of many amounts, made by one {@link Allocator} in a single
+ * call, and held as one flattened array of minor units.<br/>
+ * The divisions of amount 'i' occupy indices getOffset( i ) (inclusive) to
+ * getOffset( i + 1 ) (exclusive) of {@link #getMinorUnits()}. Each amount may
+ * be allocated across the same number of divisions, or across its own.
+ * </p>
+ * <p>
+ * The offsets are calculated first, using {@link Allocator#size(int)}, and
+ * the amounts are then allocated straight into the array, without creating
+ * any objects for amounts which fit a long of minor units. Large batches may
+ * be split across a ForkJoinPool by passing a {@link Parallelism}; each amount
+ * is still allocated independently, so the results are identical.<br/>
+ * An IllegalStateException is thrown if the allocator writes a different
+ * number of elements to its size().
+ * </p>
+ * <p>
+ * A BulkAllocation does not copy its arrays, so is only immutable if they are
+ * not changed.
+ * </p>
+ *
+ * @see Allocator
+ * @see Allocation
+ */
+public final class BulkAllocation {
+    private final CurrencyUnit currency;
+    private final long[] minorUnits;
+    private final int[] offsets;
+
+    private BulkAllocation( CurrencyUnit currency, long[] minorUnits, int[] offsets ) {
+        this.currency = currency;
+        this.minorUnits = minorUnits;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Allocates every amount across 'len' divisions
+     *
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param currency
+     *            The CurrencyUnit of every amount
+     * @param amounts
+     *            The amounts, in minor units
+     * @param len
+     *            The number of divisions to use for each amount
+     * @return The BulkAllocation
+     */
+    public static BulkAllocation of ( Allocator allocator, CurrencyUnit currency, long[] amounts, int len ) {
+        return of( allocator, currency, amounts, len, Parallelism.sequential() );
+    }
+
+    /**
+     * Allocates every amount across 'len' divisions, splitting the amounts
+     * across threads as the given {@link Parallelism} allows
+     *
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param currency
+     *            The CurrencyUnit of every amount
+     * @param amounts
+     *            The amounts, in minor units
+     * @param len
+     *            The number of divisions to use for each amount
+     * @param parallelism
+     *            How the amounts may be split
+     * @return The BulkAllocation
+     */
+    public static BulkAllocation of ( final Allocator allocator, final CurrencyUnit currency, final long[] amounts, final int len,
+            Parallelism parallelism ) {
+        checkCurrency( currency );
+        final int[] offsets = offsets( allocator, amounts.length, len );
+        final long[] out = new long[offsets[amounts.length]];
+        parallelism.forRange( 0, amounts.length, new Parallelism.RangeAction() {
+            @Override
+            public void apply ( int from, int to ) {
+                for ( int i = from; i < to; i++ ) {
+                    check( allocator.allocate( currency, amounts[i], len, out, offsets[i] ), offsets, i );
+                }
+            }
+        } );
+        return new BulkAllocation( currency, out, offsets );
+    }
+
+    /**
+     * Allocates each amount across its own number of divisions
+     *
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param currency
+     *            The CurrencyUnit of every amount
+     * @param amounts
+     *            The amounts, in minor units
+     * @param lens
+     *            The number of divisions to use for the amount at the same
+     *            index
+     * @return The BulkAllocation
+     */
+    public static BulkAllocation of ( Allocator allocator, CurrencyUnit currency, long[] amounts, int[] lens ) {
+        return of( allocator, currency, amounts, lens, Parallelism.sequential() );
+    }
+
+    /**
+     * Allocates each amount across its own number of divisions, splitting the
+     * amounts across threads as the given {@link Parallelism} allows
+     *
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param currency
+     *            The CurrencyUnit of every amount
+     * @param amounts
+     *            The amounts, in minor units
+     * @param lens
+     *            The number of divisions to use for the amount at the same
+     *            index
+     * @param parallelism
+     *            How the amounts may be split
+     * @return The BulkAllocation
+     */
+    public static BulkAllocation of ( final Allocator allocator, final CurrencyUnit currency, final long[] amounts, final int[] lens,
+            Parallelism parallelism ) {
+        checkCurrency( currency );
+        final int[] offsets = offsets( allocator, amounts.length, lens );
+        final long[] out = new long[offsets[amounts.length]];
+        parallelism.forRange( 0, amounts.length, new Parallelism.RangeAction() {
+            @Override
+            public void apply ( int from, int to ) {
+                for ( int i = from; i < to; i++ ) {
+                    check( allocator.allocate( currency, amounts[i], lens[i], out, offsets[i] ), offsets, i );
+                }
+            }
+        } );
+        return new BulkAllocation( currency, out, offsets );
+    }
+
+    /**
+     * Allocates every amount across 'len' divisions
+     *
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param amounts
+     *            The amounts, which must all be in the same CurrencyUnit
+     * @param len
+     *            The number of divisions to use for each amount
+     * @return The BulkAllocation
+     * @throws ArithmeticException
+     *             If a division does not fit in a long of minor units
+     */
+    public static BulkAllocation of ( Allocator allocator, Money[] amounts, int len ) {
+        return of( allocator, amounts, len, Parallelism.sequential() );
+    }
+
+    /**
+     * Allocates every amount across 'len' divisions, splitting the amounts
+     * across threads as the given {@link Parallelism} allows
+     *
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param amounts
+     *            The amounts, which must all be in the same CurrencyUnit
+     * @param len
+     *            The number of divisions to use for each amount
+     * @param parallelism
+     *            How the amounts may be split
+     * @return The BulkAllocation
+     * @throws ArithmeticException
+     *             If a division does not fit in a long of minor units
+     */
+    public static BulkAllocation of ( final Allocator allocator, final Money[] amounts, final int len, Parallelism parallelism ) {
+        final CurrencyUnit currency = checkCurrency( amounts );
+        final int[] offsets = offsets( allocator, amounts.length, len );
+        final long[] out = new long[offsets[amounts.length]];
+        parallelism.forRange( 0, amounts.length, new Parallelism.RangeAction() {
+            @Override
+            public void apply ( int from, int to ) {
+                for ( int i = from; i < to; i++ ) {
+                    check( allocate( allocator, currency, amounts[i], len, out, offsets[i] ), offsets, i );
+                }
+            }
+        } );
+        return new BulkAllocation( currency, out, offsets );
+    }
+
+    /**
+     * Allocates each amount across its own number of divisions
+     *
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param amounts
+     *            The amounts, which must all be in the same CurrencyUnit
+     * @param lens
+     *            The number of divisions to use for the amount at the same
+     *            index
+     * @return The BulkAllocation
+     * @throws ArithmeticException
+     *             If a division does not fit in a long of minor units
+     */
+    public static BulkAllocation of ( Allocator allocator, Money[] amounts, int[] lens ) {
+        return of( allocator, amounts, lens, Parallelism.sequential() );
+    }
+
+    /**
+     * Allocates each amount across its own number of divisions, splitting the
+     * amounts across threads as the given {@link Parallelism} allows
+     *
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param amounts
+     *            The amounts, which must all be in the same CurrencyUnit
+     * @param lens
+     *            The number of divisions to use for the amount at the same
+     *            index
+     * @param parallelism
+     *            How the amounts may be split
+     * @return The BulkAllocation
+     * @throws ArithmeticException
+     *             If a division does not fit in a long of minor units
+     */
+    public static BulkAllocation of ( final Allocator allocator, final Money[] amounts, final int[] lens, Parallelism parallelism ) {
+        final CurrencyUnit currency = checkCurrency( amounts );
+        final int[] offsets = offsets( allocator, amounts.length, lens );
+        final long[] out = new long[offsets[amounts.length]];
+        parallelism.forRange( 0, amounts.length, new Parallelism.RangeAction() {
+            @Override
+            public void apply ( int from, int to ) {
+                for ( int i = from; i < to; i++ ) {
+                    check( allocate( allocator, currency, amounts[i], lens[i], out, offsets[i] ), offsets, i );
+                }
+            }
+        } );
+        return new BulkAllocation( currency, out, offsets );
+    }
+
+    private static int allocate ( Allocator allocator, CurrencyUnit currency, Money amount, int len, long[] out, int offset ) {
+        BigInteger unscaled = amount.getAmount().unscaledValue();
+        if ( unscaled.bitLength() < 64 ) {
+            return allocator.allocate( currency, unscaled.longValue(), len, out, offset );
+        }
+        return allocator.allocate( amount, len, out, offset );
+    }
+
+    /**
+     * Checks that the allocator wrote as many elements as its size() promised
+     */
+    private static void check ( int written, int[] offsets, int index ) {
+        if ( written != offsets[index + 1] - offsets[index] ) {
+            throw new IllegalStateException( "Allocator wrote " + written + " elements for amount " + index + ", but its size() is "
+                    + (offsets[index + 1] - offsets[index]) );
+        }
+    }
+
+    /**
+     * @return The offsets of 'count' allocations of 'len' divisions, checking
+     *         'len' once
+     */
+    private static int[] offsets ( Allocator allocator, int count, int len ) {
+        if ( !(len > 0) ) {
+            throw new IllegalArgumentException( "len must be greater than zero : " + len );
+        }
+        int size = allocator.size( len );
+        if ( (long)size * count > Integer.MAX_VALUE ) {
+            throw new IllegalArgumentException( "Too many divisions : " + count + " * " + size );
+        }
+        int[] offsets = new int[count + 1];
+        for ( int i = 1; i <= count; i++ ) {
+            offsets[i] = offsets[i - 1] + size;
+        }
+        return offsets;
+    }
+
+    private static int[] offsets ( Allocator allocator, int count, int[] lens ) {
+        if ( lens.length != count ) {
+            throw new IllegalArgumentException( "lens must have one element per amount : " + lens.length + " != " + count );
+        }
+        int[] offsets = new int[count + 1];
+        long total = 0L;
+        for ( int i = 0; i < count; i++ ) {
+            if ( !(lens[i] > 0) ) {
+                throw new IllegalArgumentException( "len must be greater than zero : " + lens[i] + " at index " + i );
+            }
+            total += allocator.size( lens[i] );
+            if ( total > Integer.MAX_VALUE ) {
+                throw new IllegalArgumentException( "Too many divisions : " + total );
+            }
+            offsets[i + 1] = (int)total;
+        }
+        return offsets;
+    }
+
+    private static void checkCurrency ( CurrencyUnit currency ) {
+        if ( currency == null ) {
+            throw new NullPointerException( "CurrencyUnit must not be null" );
+        }
+    }
+
+    /**
+     * @return The CurrencyUnit shared by every amount
+     */
+    private static CurrencyUnit checkCurrency ( Money[] amounts ) {
+        if ( amounts.length == 0 ) {
+            throw new IllegalArgumentException( "amounts must not be empty" );
+        }
+        CurrencyUnit currency = amounts[0].getCurrencyUnit();
+        for ( Money amount : amounts ) {
+            if ( !currency.equals( amount.getCurrencyUnit() ) ) {
+                throw new CurrencyMismatchException( currency, amount.getCurrencyUnit() );
+            }
+        }
+        return currency;
+    }
+
+    /**
+     * @return The number of amounts allocated
+     */
+    public int size () {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @param index
+     *            The index of the amount
+     * @return The index of the first division of the amount in
+     *         {@link #getMinorUnits()}
+     */
+    public int getOffset ( int index ) {
+        return offsets[index];
+    }
+
+    /**
+     * @param index
+     *            The index of the amount
+     * @return The number of divisions of the amount
+     */
+    public int getLength ( int index ) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * @param index
+     *            The index of the amount
+     * @param division
+     *            The index of the division within the amount
+     * @return The minor units of the division
+     */
+    public long getMinorUnits ( int index, int division ) {
+        if ( division < 0 || division >= getLength( index ) ) {
+            throw new IndexOutOfBoundsException( "Division " + division + " of " + getLength( index ) );
+        }
+        return minorUnits[offsets[index] + division];
+    }
+
+    /**
+     * @param index
+     *            The index of the amount
+     * @param division
+     *            The index of the division within the amount
+     * @return The division as Money
+     */
+    public Money getMoney ( int index, int division ) {
+        return MoneyInterner.ofMinor( currency, getMinorUnits( index, division ) );
+    }
+
+    /**
+     * @return The flattened minor units of every division (not a copy)
+     */
+    public long[] getMinorUnits () {
+        return minorUnits;
+    }
+
+    /**
+     * @return The offset of each amount, followed by the total number of
+     *         divisions (not a copy)
+     */
+    public int[] getOffsets () {
+        return offsets;
+    }
+
+    /**
+     * @return The CurrencyUnit of every amount
+     */
+    public CurrencyUnit getCurrencyUnit () {
+        return currency;
+    }
+}
@@ -0,0 +1,183 @@
+package com.gigs2go.money.calculator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * Converts amounts between currencies using a {@link RateTable}, giving a
+ * Result (value and remainder) in the target currency.<br/>
+ * The table may be replaced at any time (as rates change) by
+ * {@link #setRateTable(RateTable)}; each conversion uses whichever table was
+ * current when it started, so never sees a mixture of the two.
+ * </p>
+ * <p>
+ * Each amount is converted in minor units, by the pair's precomputed minor
+ * unit rate, exactly as a {@link MoneyCalculator} (with the same
+ * remainderScale and RoundingMode) set() to the amount in the target currency
+ * would multiply and round it. A batch of amounts in one currency is converted
+ * by a {@link BatchMoneyCalculator}, with a single rate lookup, and gives
+ * identical results.
+ * </p>
+ * <p>
+ * A CurrencyConverter is thread-safe.
+ * </p>
+ *
+ * @see MoneyCalculator#convert(RateTable, CurrencyUnit)
+ */
+public class CurrencyConverter {
+    private static final int REMAINDER_SCALE = 3;
+
+    private final AtomicReference<RateTable> rates;
+    private final int remainderScale;
+    private final RoundingMode roundingMode;
+
+    /**
+     * Create a new CurrencyConverter with a default remainderScale of 3 and a
+     * default RoundingMode of 'HALF_UP'
+     *
+     * @param rates
+     *            The initial RateTable
+     */
+    public CurrencyConverter( RateTable rates ) {
+        this( rates, REMAINDER_SCALE, RoundingMode.HALF_UP );
+    }
+
+    /**
+     * Create a new CurrencyConverter with a default remainderScale of 3 and the
+     * given RoundingMode
+     *
+     * @param rates
+     *            The initial RateTable
+     * @param roundingMode
+     */
+    public CurrencyConverter( RateTable rates, RoundingMode roundingMode ) {
+        this( rates, REMAINDER_SCALE, roundingMode );
+    }
+
+    /**
+     * Create a new CurrencyConverter with the given remainderScale and
+     * RoundingMode
+     *
+     * @param rates
+     *            The initial RateTable
+     * @param remainderScale
+     * @param roundingMode
+     */
+    public CurrencyConverter( RateTable rates, int remainderScale, RoundingMode roundingMode ) {
+        if ( rates == null ) {
+            throw new NullPointerException( "RateTable must not be null" );
+        }
+        this.rates = new AtomicReference<RateTable>( rates );
+        this.remainderScale = remainderScale;
+        this.roundingMode = roundingMode;
+    }
+
+    /**
+     * @return the current RateTable
+     */
+    public RateTable getRateTable () {
+        return rates.get();
+    }
+
+    /**
+     * Replaces the RateTable used by subsequent conversions
+     *
+     * @param rates
+     *            The new RateTable
+     * @return the RateTable it replaced
+     */
+    public RateTable setRateTable ( RateTable rates ) {
+        if ( rates == null ) {
+            throw new NullPointerException( "RateTable must not be null" );
+        }
+        return this.rates.getAndSet( rates );
+    }
+
+    /**
+     * @param amount
+     *            The amount to convert
+     * @param to
+     *            The CurrencyUnit to convert to
+     * @return the converted amount, as a Result in the 'to' CurrencyUnit
+     * @throws IllegalArgumentException
+     *             If the current table has no rate for the conversion
+     */
+    public MoneyCalculator.Result convert ( Money amount, CurrencyUnit to ) {
+        Rate rate = rates.get().getMinorUnitRate( amount.getCurrencyUnit(), to );
+        Money minorUnits = Money.of( to, new BigDecimal( amount.getAmount().unscaledValue(), to.getDecimalPlaces() ) );
+        return new MoneyCalculator( remainderScale, roundingMode ).set( minorUnits ).multiply( rate ).result();
+    }
+
+    /**
+     * Converts every amount from one CurrencyUnit to another, using a single
+     * rate from the current table
+     *
+     * @param from
+     *            The CurrencyUnit of every amount
+     * @param to
+     *            The CurrencyUnit to convert to
+     * @param amounts
+     *            The amounts, in minor units of 'from'
+     * @param values
+     *            Receives each converted value, in minor units of 'to'
+     * @param remainders
+     *            Receives each remainder, unscaled at the remainderScale of
+     *            {@link #batch(CurrencyUnit, CurrencyUnit)}. May be null if the
+     *            remainders are not needed.
+     * @throws IllegalArgumentException
+     *             If the current table has no rate for the conversion
+     */
+    public void convert ( CurrencyUnit from, CurrencyUnit to, long[] amounts, long[] values, long[] remainders ) {
+        batch( from, to ).calculate( amounts, values, remainders );
+    }
+
+    /**
+     * Converts every amount from one CurrencyUnit to another, using a single
+     * rate from the current table, and splitting the amounts across threads
+     * as the given {@link Parallelism} allows
+     *
+     * @param from
+     *            The CurrencyUnit of every amount
+     * @param to
+     *            The CurrencyUnit to convert to
+     * @param amounts
+     *            The amounts, in minor units of 'from'
+     * @param values
+     *            Receives each converted value, in minor units of 'to'
+     * @param remainders
+     *            Receives each remainder, unscaled at the remainderScale of
+     *            {@link #batch(CurrencyUnit, CurrencyUnit)}. May be null if the
+     *            remainders are not needed.
+     * @param parallelism
+     *            How the amounts may be split across threads
+     * @throws IllegalArgumentException
+     *             If the current table has no rate for the conversion
+     */
+    public void convert ( CurrencyUnit from, CurrencyUnit to, long[] amounts, long[] values, long[] remainders, Parallelism parallelism ) {
+        batch( from, to ).calculate( amounts, values, remainders, parallelism );
+    }
+
+    /**
+     * Creates a BatchMoneyCalculator which converts amounts (in minor units)
+     * from one CurrencyUnit to another at the current table's rate. Further
+     * operations may be added to it, and it may be reused for any number of
+     * batches; it keeps the rate even if the table is replaced.
+     *
+     * @param from
+     *            The CurrencyUnit of every amount
+     * @param to
+     *            The CurrencyUnit to convert to
+     * @return a BatchMoneyCalculator in the 'to' CurrencyUnit
+     * @throws IllegalArgumentException
+     *             If the current table has no rate for the conversion
+     */
+    public BatchMoneyCalculator batch ( CurrencyUnit from, CurrencyUnit to ) {
+        Rate rate = rates.get().getMinorUnitRate( from, to );
+        return new BatchMoneyCalculator( to, remainderScale, roundingMode ).multiply( rate );
+    }
+}
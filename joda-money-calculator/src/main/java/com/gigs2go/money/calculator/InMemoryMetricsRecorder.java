@@ -0,0 +1,135 @@
+package com.gigs2go.money.calculator;
+
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * A thread-safe {@link MetricsRecorder} which keeps everything in memory:
+ * a count per {@link MetricsRecorder.Event}, a count per RoundingMode used
+ * for results, the number of non-zero remainders, and power-of-two
+ * histograms of allocation sizes and result latencies.<br/>
+ * Histogram bucket 'n' counts values from 2^(n-1) up to (but not including)
+ * 2^n, and bucket 0 counts zero (or less).
+ * </p>
+ *
+ * @see Metrics
+ */
+public class InMemoryMetricsRecorder implements MetricsRecorder {
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray events = new AtomicLongArray( Event.values().length );
+    private final AtomicLongArray roundingModes = new AtomicLongArray( RoundingMode.values().length );
+    private final AtomicLongArray allocations = new AtomicLongArray( BUCKETS );
+    private final AtomicLongArray latencies = new AtomicLongArray( BUCKETS );
+    /* [0] the number of non-zero remainders, [1] the total result nanos */
+    private final AtomicLongArray totals = new AtomicLongArray( 2 );
+
+    @Override
+    public void event ( Event event ) {
+        events.incrementAndGet( event.ordinal() );
+    }
+
+    @Override
+    public void allocation ( int divisions ) {
+        allocations.incrementAndGet( bucket( divisions ) );
+    }
+
+    @Override
+    public void result ( RoundingMode roundingMode, boolean remainderZero, long nanos ) {
+        if ( roundingMode != null ) {
+            roundingModes.incrementAndGet( roundingMode.ordinal() );
+        }
+        if ( !remainderZero ) {
+            totals.incrementAndGet( 0 );
+        }
+        totals.addAndGet( 1, nanos );
+        latencies.incrementAndGet( bucket( nanos ) );
+    }
+
+    /**
+     * @param event
+     *            The event
+     * @return the number of times it has occurred
+     */
+    public long getCount ( Event event ) {
+        return events.get( event.ordinal() );
+    }
+
+    /**
+     * @param roundingMode
+     *            The RoundingMode
+     * @return the number of results calculated using it
+     */
+    public long getCount ( RoundingMode roundingMode ) {
+        return roundingModes.get( roundingMode.ordinal() );
+    }
+
+    /**
+     * @return the number of results with a non-zero remainder
+     */
+    public long getNonZeroRemainderCount () {
+        return totals.get( 0 );
+    }
+
+    /**
+     * @return the total time spent calculating results, in nanoseconds
+     */
+    public long getResultNanos () {
+        return totals.get( 1 );
+    }
+
+    /**
+     * @return a copy of the histogram of allocation sizes
+     */
+    public long[] getAllocationHistogram () {
+        return copy( allocations );
+    }
+
+    /**
+     * @return a copy of the histogram of result latencies, in nanoseconds
+     */
+    public long[] getLatencyHistogram () {
+        return copy( latencies );
+    }
+
+    /**
+     * Resets every count to zero. Measurements recorded whilst this is running
+     * may or may not be lost.
+     */
+    public void reset () {
+        clear( events );
+        clear( roundingModes );
+        clear( allocations );
+        clear( latencies );
+        clear( totals );
+    }
+
+    @Override
+    public String toString () {
+        StringBuilder builder = new StringBuilder( "InMemoryMetricsRecorder[" );
+        for ( Event event : Event.values() ) {
+            builder.append( event ).append( '=' ).append( getCount( event ) ).append( ", " );
+        }
+        return builder.append( "nonZeroRemainders=" ).append( getNonZeroRemainderCount() ).append( ", resultNanos=" ).append( getResultNanos() )
+                .append( ']' ).toString();
+    }
+
+    private static int bucket ( long value ) {
+        return value <= 0L ? 0 : Math.min( BUCKETS - 1, 64 - Long.numberOfLeadingZeros( value ) );
+    }
+
+    private static long[] copy ( AtomicLongArray array ) {
+        long[] result = new long[array.length()];
+        for ( int i = 0; i < result.length; i++ ) {
+            result[i] = array.get( i );
+        }
+        return result;
+    }
+
+    private static void clear ( AtomicLongArray array ) {
+        for ( int i = 0; i < array.length(); i++ ) {
+            array.set( i, 0L );
+        }
+    }
+}
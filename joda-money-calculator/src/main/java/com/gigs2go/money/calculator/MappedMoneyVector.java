@@ -0,0 +1,486 @@
+package com.gigs2go.money.calculator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.IllegalCurrencyException;
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * A columnar vector of amounts in a single CurrencyUnit, held off-heap in a
+ * memory-mapped file.<br/>
+ * Like {@link MoneyVector}, each amount is a long number of minor units, but
+ * the vector may hold far more amounts than fit on the heap, and persists
+ * between runs. Totals, calculations and allocations read the mapped pages
+ * directly, without creating a Money for each amount. Every amount must fit
+ * a long.
+ * </p>
+ * <p>
+ * The file is a {@value #HEADER_SIZE} byte header followed by the amounts.
+ * Every field is little-endian.
+ * </p>
+ * <pre>
+ * Offset  Size  Field
+ *      0     4  The magic number 0x4A4D5631 ("JMV1" when read big-endian)
+ *      4     3  The ISO-4217 currency code, in ASCII
+ *      7     1  The currency's decimal places
+ *      8     8  The number of amounts
+ *     16    16  Reserved, zero
+ *     32  8 * n Each amount, in minor units, as a signed long
+ * </pre>
+ * <p>
+ * The file is mapped in chunks of up to 2^27 amounts, as a single mapping is
+ * limited to 2GB. A MappedMoneyVector is <b>NOT</b> thread-safe for writing,
+ * though any number of threads may read one which is no longer being
+ * written.
+ * </p>
+ *
+ * @see MoneyVector
+ */
+public class MappedMoneyVector implements AutoCloseable {
+    /**
+     * The magic number at the start of every file
+     */
+    public static final int MAGIC = 0x4A4D5631;
+    /**
+     * The size of the header, in bytes
+     */
+    public static final int HEADER_SIZE = 32;
+    /* Amounts per mapping */
+    private static final int CHUNK_SHIFT = 27;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+    /* Amounts copied on-heap at a time when calculating */
+    private static final int BLOCK = 8192;
+
+    private final FileChannel channel;
+    private final CurrencyUnit currency;
+    private final long size;
+    private final MappedByteBuffer[] mappings;
+    private final LongBuffer[] chunks;
+
+    private MappedMoneyVector( FileChannel channel, FileChannel.MapMode mode, CurrencyUnit currency, long size ) throws IOException {
+        this.channel = channel;
+        this.currency = currency;
+        this.size = size;
+        int count = (int)((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+        this.mappings = new MappedByteBuffer[count];
+        this.chunks = new LongBuffer[count];
+        for ( int chunk = 0; chunk < count; chunk++ ) {
+            long first = (long)chunk << CHUNK_SHIFT;
+            long length = Math.min( CHUNK_MASK + 1, size - first );
+            mappings[chunk] = channel.map( mode, HEADER_SIZE + first * 8L, length * 8L );
+            chunks[chunk] = mappings[chunk].order( ByteOrder.LITTLE_ENDIAN ).asLongBuffer();
+        }
+    }
+
+    /**
+     * Creates (or replaces) the given file, holding 'size' zero amounts
+     *
+     * @param file
+     *            The file
+     * @param currency
+     *            The CurrencyUnit of every amount
+     * @param size
+     *            The number of amounts
+     * @return The open vector
+     * @throws IOException
+     *             If the file cannot be created
+     */
+    public static MappedMoneyVector create ( Path file, CurrencyUnit currency, long size ) throws IOException {
+        if ( currency == null ) {
+            throw new NullPointerException( "CurrencyUnit must not be null" );
+        }
+        if ( size < 0L || size > (Long.MAX_VALUE - HEADER_SIZE) / 8L ) {
+            throw new IllegalArgumentException( "Invalid size : " + size );
+        }
+        FileChannel channel = FileChannel.open( file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE );
+        try {
+            ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+            header.putInt( MAGIC );
+            header.put( currency.getCode().getBytes( StandardCharsets.US_ASCII ) );
+            header.put( (byte)currency.getDecimalPlaces() );
+            header.putLong( size );
+            header.clear();
+            while ( header.hasRemaining() ) {
+                channel.write( header, header.position() );
+            }
+            if ( size > 0L ) {
+                // Extends the file, which reads as zeroes
+                channel.write( ByteBuffer.allocate( 1 ), HEADER_SIZE + size * 8L - 1L );
+            }
+            return new MappedMoneyVector( channel, FileChannel.MapMode.READ_WRITE, currency, size );
+        } catch ( IOException e ) {
+            channel.close();
+            throw e;
+        } catch ( RuntimeException e ) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing file for reading and writing
+     *
+     * @param file
+     *            The file
+     * @return The open vector
+     * @throws IOException
+     *             If the file cannot be read, or is not in the expected
+     *             format
+     */
+    public static MappedMoneyVector open ( Path file ) throws IOException {
+        return open( file, false );
+    }
+
+    /**
+     * Opens an existing file for reading only. Any attempt to change an
+     * amount throws a ReadOnlyBufferException.
+     *
+     * @param file
+     *            The file
+     * @return The open vector
+     * @throws IOException
+     *             If the file cannot be read, or is not in the expected
+     *             format
+     */
+    public static MappedMoneyVector openReadOnly ( Path file ) throws IOException {
+        return open( file, true );
+    }
+
+    private static MappedMoneyVector open ( Path file, boolean readOnly ) throws IOException {
+        FileChannel channel = (readOnly ? FileChannel.open( file, StandardOpenOption.READ )
+                : FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE ));
+        try {
+            ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+            while ( header.hasRemaining() ) {
+                if ( channel.read( header, header.position() ) < 0 ) {
+                    throw new IOException( "Truncated header : " + file );
+                }
+            }
+            header.flip();
+            if ( header.getInt() != MAGIC ) {
+                throw new IOException( "Not a MappedMoneyVector file : " + file );
+            }
+            byte[] code = new byte[3];
+            header.get( code );
+            CurrencyUnit currency;
+            try {
+                currency = CurrencyUnit.of( new String( code, StandardCharsets.US_ASCII ) );
+            } catch ( IllegalCurrencyException e ) {
+                throw new IOException( "Not a MappedMoneyVector file, unknown currency : " + file, e );
+            }
+            int decimalPlaces = header.get();
+            if ( decimalPlaces != currency.getDecimalPlaces() ) {
+                throw new IOException( "Decimal places " + decimalPlaces + " do not match " + currency + " : " + file );
+            }
+            long size = header.getLong();
+            if ( size < 0L || size > (Long.MAX_VALUE - HEADER_SIZE) / 8L || channel.size() < HEADER_SIZE + size * 8L ) {
+                throw new IOException( "Truncated data, expected " + size + " amounts : " + file );
+            }
+            return new MappedMoneyVector( channel, (readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE), currency, size );
+        } catch ( IOException e ) {
+            channel.close();
+            throw e;
+        } catch ( RuntimeException e ) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of amounts
+     */
+    public long size () {
+        return size;
+    }
+
+    /**
+     * @return the CurrencyUnit of every amount
+     */
+    public CurrencyUnit getCurrencyUnit () {
+        return currency;
+    }
+
+    /**
+     * @param index
+     *            The index of the amount
+     * @return the amount, in minor units
+     */
+    public long getMinorUnits ( long index ) {
+        checkIndex( index );
+        return chunks[(int)(index >>> CHUNK_SHIFT)].get( (int)(index & CHUNK_MASK) );
+    }
+
+    /**
+     * @param index
+     *            The index of the amount
+     * @return the amount
+     */
+    public Money get ( long index ) {
+        return MoneyInterner.ofMinor( currency, getMinorUnits( index ) );
+    }
+
+    /**
+     * @param index
+     *            The index of the amount
+     * @param minorUnits
+     *            The new amount, in minor units
+     * @return The {@link MappedMoneyVector} for further operations
+     */
+    public MappedMoneyVector set ( long index, long minorUnits ) {
+        checkIndex( index );
+        chunks[(int)(index >>> CHUNK_SHIFT)].put( (int)(index & CHUNK_MASK), minorUnits );
+        return this;
+    }
+
+    /**
+     * @param index
+     *            The index of the amount
+     * @param amount
+     *            The new amount
+     * @return The {@link MappedMoneyVector} for further operations
+     * @throws CurrencyMismatchException
+     *             If the amount is not in this vector's currency
+     * @throws ArithmeticException
+     *             If the amount does not fit a long
+     */
+    public MappedMoneyVector set ( long index, Money amount ) {
+        return set( index, checkCurrency( amount ).getAmountMinorLong() );
+    }
+
+    /**
+     * Copies amounts into 'out'
+     *
+     * @param from
+     *            The index of the first amount
+     * @param out
+     *            The array to copy to
+     * @param offset
+     *            The index of 'out' to start copying to
+     * @param len
+     *            The number of amounts
+     */
+    public void read ( long from, long[] out, int offset, int len ) {
+        checkRange( from, len );
+        while ( len > 0 ) {
+            LongBuffer chunk = chunks[(int)(from >>> CHUNK_SHIFT)].duplicate();
+            chunk.position( (int)(from & CHUNK_MASK) );
+            int count = Math.min( len, chunk.remaining() );
+            chunk.get( out, offset, count );
+            from += count;
+            offset += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Copies amounts from 'in'
+     *
+     * @param from
+     *            The index of the first amount to replace
+     * @param in
+     *            The array to copy from
+     * @param offset
+     *            The index of 'in' to start copying from
+     * @param len
+     *            The number of amounts
+     */
+    public void write ( long from, long[] in, int offset, int len ) {
+        checkRange( from, len );
+        while ( len > 0 ) {
+            LongBuffer chunk = chunks[(int)(from >>> CHUNK_SHIFT)].duplicate();
+            chunk.position( (int)(from & CHUNK_MASK) );
+            int count = Math.min( len, chunk.remaining() );
+            chunk.put( in, offset, count );
+            from += count;
+            offset += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * @return the sum of every amount
+     */
+    public Money total () {
+        long sum = 0L;
+        BigDecimal big = null;
+        for ( LongBuffer chunk : chunks ) {
+            for ( int i = 0, len = chunk.limit(); i < len; i++ ) {
+                long value = chunk.get( i );
+                long updated = sum + value;
+                if ( ((sum ^ updated) & (value ^ updated)) < 0 ) {
+                    BigDecimal partial = BigDecimal.valueOf( sum, currency.getDecimalPlaces() );
+                    big = (big == null ? partial : big.add( partial ));
+                    updated = value;
+                }
+                sum = updated;
+            }
+        }
+        if ( big == null ) {
+            return MoneyInterner.ofMinor( currency, sum );
+        }
+        return Money.of( currency, big.add( BigDecimal.valueOf( sum, currency.getDecimalPlaces() ) ) );
+    }
+
+    /**
+     * Sets the given calculator to the total of every amount, so that it can
+     * be divided, scaled and rounded exactly like any other
+     *
+     * @param calculator
+     *            The calculator
+     * @return The calculator, for further operations
+     */
+    public MoneyCalculator sum ( MoneyCalculator calculator ) {
+        return calculator.set( total() );
+    }
+
+    /**
+     * Multiplies every amount by 'factor', rounding each exactly as
+     * {@link MoneyCalculator#result()} would, and writes the results to
+     * 'target'
+     *
+     * @param factor
+     *            The factor to multiply by
+     * @param roundingMode
+     *            The RoundingMode for each result
+     * @param target
+     *            A vector of the same size and currency. May be this vector,
+     *            which is left unchanged if any result does not fit a long.
+     * @return The target vector
+     * @throws ArithmeticException
+     *             If a result does not fit a long
+     */
+    public MappedMoneyVector scale ( BigDecimal factor, RoundingMode roundingMode, MappedMoneyVector target ) {
+        return calculate( new BatchMoneyCalculator( currency, roundingMode ).multiply( factor ), target );
+    }
+
+    /**
+     * Applies the operations of the given {@link BatchMoneyCalculator} to
+     * every amount, and writes each rounded value to 'target'. Amounts are
+     * copied on-heap a block at a time.<br/>
+     * When 'target' is this vector, every block is calculated once before any
+     * is written, so that a result which does not fit a long leaves the file
+     * unchanged, at the cost of calculating twice. Any other target may be
+     * left partly written.
+     *
+     * @param calculator
+     *            The calculator, for this vector's currency
+     * @param target
+     *            A vector of the same size and currency. May be this vector.
+     * @return The target vector
+     * @throws ArithmeticException
+     *             If a result does not fit a long
+     */
+    public MappedMoneyVector calculate ( BatchMoneyCalculator calculator, MappedMoneyVector target ) {
+        if ( !currency.equals( calculator.getCurrencyUnit() ) ) {
+            throw new CurrencyMismatchException( currency, calculator.getCurrencyUnit() );
+        }
+        if ( !currency.equals( target.currency ) ) {
+            throw new CurrencyMismatchException( currency, target.currency );
+        }
+        if ( size != target.size ) {
+            throw new IllegalArgumentException( "Vectors must be the same size : " + size + " != " + target.size );
+        }
+        if ( target == this ) {
+            // Check every result first, so an overflow writes nothing
+            calculateBlocks( calculator, null );
+        }
+        calculateBlocks( calculator, target );
+        return target;
+    }
+
+    /**
+     * Calculates every amount a block at a time, writing the values to
+     * 'target' unless it is null
+     */
+    private void calculateBlocks ( BatchMoneyCalculator calculator, MappedMoneyVector target ) {
+        long[] amounts = new long[(int)Math.min( BLOCK, size )];
+        long[] values = new long[amounts.length];
+        for ( long from = 0L; from < size; from += amounts.length ) {
+            int len = (int)Math.min( amounts.length, size - from );
+            read( from, amounts, 0, len );
+            if ( len < amounts.length ) {
+                long[] last = new long[len];
+                System.arraycopy( amounts, 0, last, 0, len );
+                amounts = last;
+                values = new long[len];
+            }
+            calculator.calculate( amounts, values, null );
+            if ( target != null ) {
+                target.write( from, values, 0, len );
+            }
+        }
+    }
+
+    /**
+     * Allocates the amount at 'index' across 'len' divisions
+     *
+     * @param index
+     *            The index of the amount
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param len
+     *            The number of divisions to use
+     * @return A new (on-heap) MoneyVector holding the allocated amounts, as
+     *         specified by the allocator's strategy
+     * @throws IllegalStateException
+     *             If the allocator does not write as many elements as its
+     *             {@link Allocator#size(int)} promised
+     */
+    public MoneyVector allocate ( long index, Allocator allocator, int len ) {
+        return MoneyVector.allocate( currency, getMinorUnits( index ), allocator, len );
+    }
+
+    /**
+     * Writes any changes to the file
+     */
+    public void force () {
+        for ( MappedByteBuffer mapping : mappings ) {
+            if ( !mapping.isReadOnly() ) {
+                mapping.force();
+            }
+        }
+    }
+
+    /**
+     * Writes any changes, and closes the file. The mappings are released
+     * once they are garbage collected.
+     */
+    @Override
+    public void close () throws IOException {
+        force();
+        channel.close();
+    }
+
+    private Money checkCurrency ( Money amount ) {
+        if ( !currency.equals( amount.getCurrencyUnit() ) ) {
+            throw new CurrencyMismatchException( currency, amount.getCurrencyUnit() );
+        }
+        return amount;
+    }
+
+    private void checkIndex ( long index ) {
+        if ( index < 0L || index >= size ) {
+            throw new IndexOutOfBoundsException( "Index " + index + " out of range for size " + size );
+        }
+    }
+
+    private void checkRange ( long from, int len ) {
+        if ( from < 0L || len < 0 || from > size - len ) {
+            throw new IndexOutOfBoundsException( "Range " + from + " + " + len + " out of range for size " + size );
+        }
+    }
+}
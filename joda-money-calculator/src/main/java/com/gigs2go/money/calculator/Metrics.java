@@ -0,0 +1,106 @@
+package com.gigs2go.money.calculator;
+
+/**
+ * <p>
+ * The single installation point for a {@link MetricsRecorder}.<br/>
+ * By default no recorder is installed, and the only cost to each operation is
+ * reading a null field. Once one is installed, every calculator and allocator
+ * in the JVM reports to it.
+ * </p>
+ * <p>
+ * Code outside this package (such as the ratio allocators, or an application's
+ * own {@link Allocator}) reports allocations through
+ * {@link #recordAllocation(int)}, and any other event it may report (see
+ * {@link MetricsRecorder.Event#isExternal()}) through
+ * {@link #recordEvent(MetricsRecorder.Event)}. The calculators' own operation
+ * counts can only be recorded from within this package.
+ * </p>
+ * <p>
+ * The compiled long paths - {@link BatchMoneyCalculator},
+ * {@link MoneyProgram}, {@link MoneyVector}, {@link MappedMoneyVector} and the
+ * batch conversions of {@link CurrencyConverter} - are not counted, as a
+ * per-amount call would cost more than the arithmetic it measures. Only the
+ * amounts they hand back to a {@link MoneyCalculator} (those which overflow a
+ * long) are counted, as that calculator's events. Allocations through
+ * {@link Allocation}, including each amount of a {@link BulkAllocation}, are
+ * counted.
+ * </p>
+ *
+ * @see MetricsRecorder
+ */
+public final class Metrics {
+    /* Read directly on the hot paths in this package */
+    static volatile MetricsRecorder recorder = null;
+
+    private Metrics() {
+    }
+
+    /**
+     * Installs the given recorder, replacing any existing one
+     *
+     * @param recorder
+     *            The recorder, or null to disable metrics
+     */
+    public static void setRecorder ( MetricsRecorder recorder ) {
+        Metrics.recorder = recorder;
+    }
+
+    /**
+     * @return the installed recorder, or null if metrics are disabled
+     */
+    public static MetricsRecorder getRecorder () {
+        return recorder;
+    }
+
+    /**
+     * Counts an allocation made outside this package and records its size, if
+     * a recorder is installed
+     *
+     * @param divisions
+     *            The number of divisions (or ratios) allocated across
+     */
+    public static void recordAllocation ( int divisions ) {
+        allocation( divisions );
+    }
+
+    /**
+     * Counts an event reported from outside this package, if a recorder is
+     * installed
+     *
+     * @param event
+     *            The event, which must be {@link MetricsRecorder.Event#isExternal()
+     *            external}
+     * @throws IllegalArgumentException
+     *             If the event is counted only by the calculators themselves
+     */
+    public static void recordEvent ( MetricsRecorder.Event event ) {
+        if ( !event.isExternal() ) {
+            throw new IllegalArgumentException( "Event " + event + " cannot be recorded from outside the calculators" );
+        }
+        event( event );
+    }
+
+    /**
+     * Counts an event, if a recorder is installed
+     */
+    static void event ( MetricsRecorder.Event event ) {
+        MetricsRecorder current = recorder;
+        if ( current != null ) {
+            current.event( event );
+        }
+    }
+
+    /**
+     * Counts an allocation and records its size, if a recorder is installed
+     *
+     * @param divisions
+     *            The number of divisions (or ratios) allocated across
+     */
+    static void allocation ( int divisions ) {
+        MetricsRecorder current = recorder;
+        if ( current != null ) {
+            current.event( MetricsRecorder.Event.ALLOCATION );
+            current.allocation( divisions );
+        }
+    }
+}
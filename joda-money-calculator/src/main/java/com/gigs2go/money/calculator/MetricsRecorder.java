@@ -0,0 +1,83 @@
+package com.gigs2go.money.calculator;
+
+import java.math.RoundingMode;
+
+/**
+ * <p>
+ * A MetricsRecorder receives measurements from {@link MoneyCalculator},
+ * {@link Allocation} and the allocators, once installed using
+ * {@link Metrics#setRecorder(MetricsRecorder)}.<br/>
+ * Implementations are called on the calculating thread, from any number of
+ * threads at once, so must be thread-safe and cheap.
+ * </p>
+ * <p>
+ * The batch paths ({@link BatchMoneyCalculator}, {@link MoneyProgram} and the
+ * money vectors) are not counted; see {@link Metrics}.
+ * </p>
+ *
+ * @see Metrics
+ * @see InMemoryMetricsRecorder
+ */
+public interface MetricsRecorder {
+    /**
+     * The events counted by a MetricsRecorder
+     */
+    enum Event {
+        SET( false ), ADD( false ), SUBTRACT( false ), MULTIPLY( false ), DIVIDE( false ), RESULT( false ),
+        /**
+         * A MoneyCalculator value (or an amount being allocated) which no
+         * longer fits in a long, and falls back to BigDecimal (BigInteger)
+         * arithmetic
+         */
+        PROMOTION( true ),
+        /**
+         * An allocation, whose size is also passed to
+         * {@link MetricsRecorder#allocation(int)}. Reported from outside this
+         * package by {@link Metrics#recordAllocation(int)}.
+         */
+        ALLOCATION( false );
+
+        private final boolean external;
+
+        private Event( boolean external ) {
+            this.external = external;
+        }
+
+        /**
+         * @return true if code outside this package may report the event,
+         *         using {@link Metrics#recordEvent(Event)}
+         */
+        public boolean isExternal () {
+            return external;
+        }
+    }
+
+    /**
+     * Counts an event
+     *
+     * @param event
+     *            The event
+     */
+    void event ( Event event );
+
+    /**
+     * Records the size of an allocation
+     *
+     * @param divisions
+     *            The number of divisions (or ratios) allocated across
+     */
+    void allocation ( int divisions );
+
+    /**
+     * Records a MoneyCalculator result
+     *
+     * @param roundingMode
+     *            The RoundingMode used
+     * @param remainderZero
+     *            true if the remainder was zero
+     * @param nanos
+     *            The time taken to round the value and calculate the
+     *            remainder
+     */
+    void result ( RoundingMode roundingMode, boolean remainderZero, long nanos );
+}
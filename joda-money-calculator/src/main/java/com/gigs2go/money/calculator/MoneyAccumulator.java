@@ -0,0 +1,248 @@
+package com.gigs2go.money.calculator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * A MoneyAccumulator maintains a running total of Money, for a single
+ * CurrencyUnit, which may be added to and subtracted from by many threads at
+ * once.<br/>
+ * Unlike a {@link MoneyCalculator}, it <b>is</b> thread-safe, and never
+ * blocks. The total is spread across a number of 'striped' cells of minor
+ * units, in the manner of {@link java.util.concurrent.atomic.LongAdder}, so
+ * threads rarely contend for the same cell. Any update which would overflow
+ * a cell is added to a single BigDecimal cell instead, so the total is never
+ * lost.
+ * </p>
+ * <p>
+ * {@link #sum()} returns a Result exactly as a MoneyCalculator (with the same
+ * remainderScale and RoundingMode) would, had it been set() to the total.<br/>
+ * As with LongAdder, sum() is not an atomic snapshot - updates made whilst it
+ * is running may or may not be included. Once updates have stopped, it is
+ * exact.
+ * </p>
+ *
+ * @see MoneyCalculator
+ */
+public class MoneyAccumulator {
+    private static final int REMAINDER_SCALE = 3;
+    private static final int MAX_STRIPES = 64;
+    /* Each cell occupies its own 64 byte cache line */
+    private static final int STRIDE = 8;
+
+    private final CurrencyUnit currency;
+    private final int remainderScale;
+    private final RoundingMode roundingMode;
+    private final int mask;
+    private final AtomicLongArray cells;
+    private final AtomicReference<BigDecimal> overflow = new AtomicReference<BigDecimal>( BigDecimal.ZERO );
+
+    /**
+     * Create a new MoneyAccumulator with a default remainderScale of 3 and a
+     * default RoundingMode of 'HALF_UP'
+     *
+     * @param currency
+     *            The CurrencyUnit of the total
+     */
+    public MoneyAccumulator( CurrencyUnit currency ) {
+        this( currency, REMAINDER_SCALE, RoundingMode.HALF_UP );
+    }
+
+    /**
+     * Create a new MoneyAccumulator with a default remainderScale of 3 and
+     * the given RoundingMode
+     *
+     * @param currency
+     *            The CurrencyUnit of the total
+     * @param roundingMode
+     */
+    public MoneyAccumulator( CurrencyUnit currency, RoundingMode roundingMode ) {
+        this( currency, REMAINDER_SCALE, roundingMode );
+    }
+
+    /**
+     * Create a new MoneyAccumulator with the given remainderScale and
+     * RoundingMode
+     *
+     * @param currency
+     *            The CurrencyUnit of the total
+     * @param remainderScale
+     * @param roundingMode
+     */
+    public MoneyAccumulator( CurrencyUnit currency, int remainderScale, RoundingMode roundingMode ) {
+        if ( currency == null ) {
+            throw new NullPointerException( "CurrencyUnit must not be null" );
+        }
+        this.currency = currency;
+        this.remainderScale = remainderScale;
+        this.roundingMode = roundingMode;
+        int stripes = Integer.highestOneBit( Math.min( Runtime.getRuntime().availableProcessors(), MAX_STRIPES ) - 1 ) << 1;
+        this.mask = Math.max( stripes, 1 ) - 1;
+        this.cells = new AtomicLongArray( (mask + 1) * STRIDE );
+    }
+
+    /**
+     * Add the provided amount to the total
+     *
+     * @param amount
+     *            The amount to add
+     * @return The {@link MoneyAccumulator} for further operations
+     */
+    public MoneyAccumulator add ( Money amount ) {
+        BigInteger units = checkCurrency( amount ).getAmount().unscaledValue();
+        if ( units.bitLength() < 64 ) {
+            add( units.longValue() );
+        } else {
+            addOverflow( units );
+        }
+        return this;
+    }
+
+    /**
+     * Subtract the provided amount from the total
+     *
+     * @param amount
+     *            The amount to subtract
+     * @return The {@link MoneyAccumulator} for further operations
+     */
+    public MoneyAccumulator subtract ( Money amount ) {
+        BigInteger units = checkCurrency( amount ).getAmount().unscaledValue().negate();
+        if ( units.bitLength() < 64 ) {
+            add( units.longValue() );
+        } else {
+            addOverflow( units );
+        }
+        return this;
+    }
+
+    /**
+     * Add the given number of minor units to the total
+     *
+     * @param minorUnits
+     *            The minor units to add (which may be negative)
+     * @return The {@link MoneyAccumulator} for further operations
+     */
+    public MoneyAccumulator add ( long minorUnits ) {
+        if ( minorUnits == 0L ) {
+            return this;
+        }
+        int stripe = stripe();
+        while ( true ) {
+            int index = stripe * STRIDE;
+            long current = cells.get( index );
+            long updated = current + minorUnits;
+            if ( ((current ^ updated) & (minorUnits ^ updated)) < 0 ) {
+                // Overflow
+                addOverflow( BigInteger.valueOf( minorUnits ) );
+                return this;
+            }
+            if ( cells.compareAndSet( index, current, updated ) ) {
+                return this;
+            }
+            // Contended, so try another cell
+            stripe = (stripe + 1) & mask;
+        }
+    }
+
+    /**
+     * @return the total, as a Result. See {@link MoneyCalculator#result()}
+     */
+    public MoneyCalculator.Result sum () {
+        return new MoneyCalculator( remainderScale, roundingMode ).set( total() ).result();
+    }
+
+    /**
+     * @return the total
+     */
+    public Money total () {
+        long sum = 0L;
+        BigInteger big = null;
+        for ( int stripe = 0; stripe <= mask; stripe++ ) {
+            long cell = cells.get( stripe * STRIDE );
+            long updated = sum + cell;
+            if ( ((sum ^ updated) & (cell ^ updated)) < 0 ) {
+                big = (big == null ? BigInteger.valueOf( sum ) : big.add( BigInteger.valueOf( sum ) ));
+                updated = cell;
+            }
+            sum = updated;
+        }
+        BigDecimal extra = overflow.get();
+        if ( big == null && extra.signum() == 0 ) {
+            return MoneyInterner.ofMinor( currency, sum );
+        }
+        BigDecimal total = BigDecimal.valueOf( sum, currency.getDecimalPlaces() ).add( extra );
+        if ( big != null ) {
+            total = total.add( new BigDecimal( big, currency.getDecimalPlaces() ) );
+        }
+        return Money.of( currency, total );
+    }
+
+    /**
+     * Resets the total to zero. As with sum(), this is not atomic - updates
+     * made whilst it is running may or may not be lost.
+     *
+     * @return The {@link MoneyAccumulator} for further operations
+     */
+    public MoneyAccumulator reset () {
+        for ( int stripe = 0; stripe <= mask; stripe++ ) {
+            cells.set( stripe * STRIDE, 0L );
+        }
+        overflow.set( BigDecimal.ZERO );
+        return this;
+    }
+
+    /**
+     * @return the CurrencyUnit of the total
+     */
+    public CurrencyUnit getCurrencyUnit () {
+        return currency;
+    }
+
+    /**
+     * @return the remainderScale
+     */
+    public int getRemainderScale () {
+        return remainderScale;
+    }
+
+    /**
+     * @return the RoundingMode
+     */
+    public RoundingMode getRoundingMode () {
+        return roundingMode;
+    }
+
+    private void addOverflow ( BigInteger minorUnits ) {
+        BigDecimal amount = new BigDecimal( minorUnits, currency.getDecimalPlaces() );
+        while ( true ) {
+            BigDecimal current = overflow.get();
+            if ( overflow.compareAndSet( current, current.add( amount ) ) ) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the preferred cell for the current thread
+     */
+    private int stripe () {
+        long id = Thread.currentThread().getId();
+        id *= 0x9E3779B97F4A7C15L;
+        return (int)(id >>> 32) & mask;
+    }
+
+    private Money checkCurrency ( Money amount ) {
+        if ( !currency.equals( amount.getCurrencyUnit() ) ) {
+            throw new CurrencyMismatchException( currency, amount.getCurrencyUnit() );
+        }
+        return amount;
+    }
+}
@@ -0,0 +1,271 @@
+package com.gigs2go.money.calculator;
+
+import java.lang.reflect.Method;
+import java.math.RoundingMode;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * A MoneyCalculationService runs calculations and allocations asynchronously,
+ * returning a CompletableFuture for each.<br/>
+ * By default it runs each task on its own virtual thread (on JDK 21 or later)
+ * or on a fixed pool with one thread per processor (otherwise), but any
+ * Executor may be given.
+ * </p>
+ * <p>
+ * At most 'maxInFlight' tasks may be submitted but not yet complete. Once
+ * that limit is reached, submitting another task blocks the caller until one
+ * completes, so a burst of requests cannot queue without bound. If the caller
+ * is interrupted whilst waiting, the returned future fails with the
+ * InterruptedException, and the interrupt is preserved.
+ * </p>
+ * <p>
+ * Each task creates its own {@link MoneyCalculator}, configured with the
+ * service's remainderScale and RoundingMode. A calculator is cheap to create,
+ * and the default Executor runs each task on a new thread, so a per-thread
+ * pool would never be reused. The service is thread-safe.
+ * </p>
+ *
+ * @see MoneyCalculator
+ * @see Allocator
+ */
+public class MoneyCalculationService implements AutoCloseable {
+    /**
+     * The default limit on the number of tasks in flight
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+
+    private static final int REMAINDER_SCALE = 3;
+
+    /**
+     * A calculation, performed using the given calculator
+     */
+    public interface Calculation {
+        /**
+         * @param calculator
+         *            A newly constructed calculator, which is only valid for
+         *            the duration of this call
+         * @return The result of the calculation, which must not be a Result
+         *         that is reused elsewhere
+         */
+        MoneyCalculator.Result calculate ( MoneyCalculator calculator );
+    }
+
+    private final Executor executor;
+    private final ExecutorService owned;
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final int remainderScale;
+    private final RoundingMode roundingMode;
+
+    /**
+     * Create a new MoneyCalculationService using the default Executor, the
+     * {@link #DEFAULT_MAX_IN_FLIGHT}, a default remainderScale of 3 and a
+     * default RoundingMode of 'HALF_UP'
+     */
+    public MoneyCalculationService() {
+        this( defaultExecutor(), true, DEFAULT_MAX_IN_FLIGHT, REMAINDER_SCALE, RoundingMode.HALF_UP );
+    }
+
+    /**
+     * Create a new MoneyCalculationService using the given Executor, with a
+     * default remainderScale of 3 and a default RoundingMode of 'HALF_UP'. The
+     * Executor is not shut down by {@link #close()}.
+     *
+     * @param executor
+     *            The Executor to run tasks on
+     * @param maxInFlight
+     *            The maximum number of tasks submitted but not yet complete
+     */
+    public MoneyCalculationService( Executor executor, int maxInFlight ) {
+        this( executor, false, maxInFlight, REMAINDER_SCALE, RoundingMode.HALF_UP );
+    }
+
+    /**
+     * Create a new MoneyCalculationService using the given Executor,
+     * remainderScale and RoundingMode. The Executor is not shut down by
+     * {@link #close()}.
+     *
+     * @param executor
+     *            The Executor to run tasks on
+     * @param maxInFlight
+     *            The maximum number of tasks submitted but not yet complete
+     * @param remainderScale
+     * @param roundingMode
+     */
+    public MoneyCalculationService( Executor executor, int maxInFlight, int remainderScale, RoundingMode roundingMode ) {
+        this( executor, false, maxInFlight, remainderScale, roundingMode );
+    }
+
+    private MoneyCalculationService( Executor executor, boolean owned, int maxInFlight, int remainderScale, RoundingMode roundingMode ) {
+        if ( executor == null ) {
+            throw new NullPointerException( "Executor must not be null" );
+        }
+        if ( !(maxInFlight > 0) ) {
+            throw new IllegalArgumentException( "maxInFlight must be greater than zero : " + maxInFlight );
+        }
+        this.executor = executor;
+        this.owned = (owned ? (ExecutorService)executor : null);
+        this.permits = new Semaphore( maxInFlight );
+        this.maxInFlight = maxInFlight;
+        this.remainderScale = remainderScale;
+        this.roundingMode = roundingMode;
+    }
+
+    /**
+     * Performs the calculation asynchronously
+     *
+     * @param calculation
+     *            The calculation to perform
+     * @return A future for the result of the calculation
+     */
+    public CompletableFuture<MoneyCalculator.Result> calculate ( final Calculation calculation ) {
+        if ( calculation == null ) {
+            throw new NullPointerException( "Calculation must not be null" );
+        }
+        return submit( new Supplier<MoneyCalculator.Result>() {
+            @Override
+            public MoneyCalculator.Result get () {
+                return calculation.calculate( newCalculator() );
+            }
+        } );
+    }
+
+    /**
+     * Allocates the given Money asynchronously - see
+     * {@link MoneyCalculator#allocate(Allocator, Money, int)}
+     *
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param money
+     *            The amount of money to allocate
+     * @param len
+     *            The number of units to allocate the money to
+     * @return A future for the allocation
+     */
+    public CompletableFuture<Money[]> allocate ( final Allocator allocator, final Money money, final int len ) {
+        if ( allocator == null ) {
+            throw new NullPointerException( "Allocator must not be null" );
+        }
+        return submit( new Supplier<Money[]>() {
+            @Override
+            public Money[] get () {
+                return newCalculator().allocate( allocator, money, len );
+            }
+        } );
+    }
+
+    /**
+     * Applies the batch's operations to every amount asynchronously - see
+     * {@link BatchMoneyCalculator#calculate(long[], long[], long[])}
+     *
+     * @param batch
+     *            The operations to apply. It must not be changed until the
+     *            future completes.
+     * @param amounts
+     *            The amounts, in minor units
+     * @param values
+     *            Receives each rounded value, in minor units
+     * @param remainders
+     *            Receives each unscaled remainder. May be null.
+     * @return A future for the values
+     */
+    public CompletableFuture<long[]> calculate ( final BatchMoneyCalculator batch, final long[] amounts, final long[] values, final long[] remainders ) {
+        if ( batch == null ) {
+            throw new NullPointerException( "BatchMoneyCalculator must not be null" );
+        }
+        return submit( new Supplier<long[]>() {
+            @Override
+            public long[] get () {
+                batch.calculate( amounts, values, remainders );
+                return values;
+            }
+        } );
+    }
+
+    /**
+     * @return the maximum number of tasks submitted but not yet complete
+     */
+    public int getMaxInFlight () {
+        return maxInFlight;
+    }
+
+    /**
+     * @return the number of tasks submitted but not yet complete
+     */
+    public int getInFlight () {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    /**
+     * Shuts down the default Executor, if this service created it. Tasks
+     * already submitted still complete.
+     */
+    @Override
+    public void close () {
+        if ( owned != null ) {
+            owned.shutdown();
+        }
+    }
+
+    private MoneyCalculator newCalculator () {
+        return new MoneyCalculator( remainderScale, roundingMode );
+    }
+
+    private <T> CompletableFuture<T> submit ( Supplier<T> task ) {
+        try {
+            permits.acquire();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            CompletableFuture<T> failed = new CompletableFuture<T>();
+            failed.completeExceptionally( e );
+            return failed;
+        }
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync( task, executor );
+        } catch ( RejectedExecutionException e ) {
+            permits.release();
+            throw e;
+        }
+        return future.whenComplete( new BiConsumer<T, Throwable>() {
+            @Override
+            public void accept ( T result, Throwable failure ) {
+                permits.release();
+            }
+        } );
+    }
+
+    /**
+     * @return an Executor creating a virtual thread per task where the JDK
+     *         supports them, otherwise a fixed pool of daemon threads
+     */
+    private static ExecutorService defaultExecutor () {
+        try {
+            Method factory = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+            return (ExecutorService)factory.invoke( null );
+        } catch ( Exception e ) {
+            // Before JDK 21
+        }
+        return Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            private final ThreadFactory factory = Executors.defaultThreadFactory();
+
+            @Override
+            public Thread newThread ( Runnable runnable ) {
+                Thread thread = factory.newThread( runnable );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+}
@@ -1,12 +1,15 @@
 package com.gigs2go.money.calculator;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.RoundingMode;
 
 import org.joda.money.BigMoney;
 import org.joda.money.CurrencyUnit;
 import org.joda.money.Money;
 
+import com.gigs2go.money.calculator.allocators.RatioAllocator;
+
 /**
  * <p>
  * A MoneyCalculator is a stateful representation of a sequence of operations
@@ -25,6 +28,16 @@ import org.joda.money.Money;
  * remainderScale (rounded using the RoundingMode)</p>
  * <p>
  * All internal calculations are done using variable-precision BigMoney's.
+ * Whilst the current value fits in a long at its scale, it is held as a
+ * 'scaled long' instead, and only promoted to a BigMoney when an operation
+ * would overflow. The results (including rounding and remainders) are
+ * identical either way.
+ * </p>
+ * <p>
+ * Optionally (see {@link #setExact(boolean)}) divisions are not rounded at
+ * all. The current value is instead held as an exact numerator over a
+ * denominator (a long, or a BigInteger once that overflows), and is only
+ * rounded once, by result().
  * </p>
  * <p>
  * Once the Calculator has been set - either explicitly or implicitly - all
@@ -44,8 +57,19 @@ public class MoneyCalculator {
     private static final int REMAINDER_SCALE = 3;
 
     private BigMoney currentValue = null;
+    /* The compact form of the current value, used until an overflow */
+    private boolean compact = false;
+    private CurrencyUnit currency = null;
+    private long unscaledValue = 0L;
+    private int scale = 0;
     private RoundingMode roundingMode = RoundingMode.HALF_UP;
     private int remainderScale = REMAINDER_SCALE;
+    /* The remainderScale as constructed, restored by reset() */
+    private final int initialRemainderScale;
+    /* In exact mode, the current value is divided by the denominator */
+    private boolean exact = false;
+    private long denominator = 1L;
+    private BigInteger bigDenominator = null;
 
     /**
      * Create a new MoneyCalculator with a default remainderScale of 3 and a
@@ -74,6 +98,7 @@ public class MoneyCalculator {
     public MoneyCalculator( int remainderScale, RoundingMode roundingMode ) {
         this.setRemainderScale( remainderScale );
         this.roundingMode = roundingMode;
+        this.initialRemainderScale = this.remainderScale;
     }
 
     /**
@@ -84,6 +109,25 @@ public class MoneyCalculator {
      */
     public MoneyCalculator clear () {
         currentValue = null;
+        compact = false;
+        currency = null;
+        denominator = 1L;
+        bigDenominator = null;
+        return this;
+    }
+
+    /**
+     * Clears the Calculator value, restores the remainderScale it was
+     * constructed with (which set() may have increased) and switches exact
+     * mode off. The Calculator is then in the same state as a newly
+     * constructed one, so may be reused.
+     * 
+     * @return A newly initialised {@link MoneyCalculator}
+     */
+    public MoneyCalculator reset () {
+        clear();
+        remainderScale = initialRemainderScale;
+        exact = false;
         return this;
     }
 
@@ -97,12 +141,41 @@ public class MoneyCalculator {
     public void setRemainderScale ( int remainderScale ) {
         if ( remainderScale > this.remainderScale ) {
             this.remainderScale = remainderScale;
+            if ( this.compact ) {
+                try {
+                    this.unscaledValue = ScaledArithmetic.rescale( this.unscaledValue, this.scale, this.remainderScale, RoundingMode.UNNECESSARY );
+                    this.scale = this.remainderScale;
+                } catch ( ArithmeticException e ) {
+                    promote();
+                }
+            }
             if ( this.currentValue != null ) {
                 this.currentValue = this.currentValue.withScale( this.remainderScale );
             }
         }
     }
 
+    /**
+     * Switches exact mode on or off. In exact mode, divide() keeps an exact
+     * quotient rather than rounding at the remainderScale, so a chain of
+     * operations is only rounded once, when the result is obtained. A quotient
+     * already held is kept until the next {@link #clear()}, and exact mode
+     * stays on until switched off or {@link #reset()}.
+     * 
+     * @param exact
+     *            true to divide exactly
+     */
+    public void setExact ( boolean exact ) {
+        this.exact = exact;
+    }
+
+    /**
+     * @return true if divisions are exact. See {@link #setExact(boolean)}
+     */
+    public boolean isExact () {
+        return exact;
+    }
+
     /**
      * Allocate the given amount of {@link Money} into 'len' amounts using the
      * given {@link Allocator}
@@ -117,13 +190,151 @@ public class MoneyCalculator {
      *         allocation
      */
     public Money[] allocate ( Allocator allocator, Money money, int len ) {
+        checkAllocation( money, len );
+        return allocator.allocate( money, len );
+    }
+
+    /**
+     * Allocate the given amount of {@link Money} into 'len' amounts using the
+     * given {@link Allocator}, writing the minor units of each amount into
+     * 'out'
+     * 
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param money
+     *            The amount of money to allocate
+     * @param len
+     *            The number of units to allocate the money to
+     * @param out
+     *            The array to write the minor units to, from index zero
+     * @return The number of elements written
+     */
+    public int allocate ( Allocator allocator, Money money, int len, long[] out ) {
+        checkAllocation( money, len );
+        if ( out == null ) {
+            throw new IllegalArgumentException( "out must not be null" );
+        }
+        return allocator.allocate( money, len, out, 0 );
+    }
+
+    /**
+     * Allocate each of the given amounts into 'len' amounts using the given
+     * {@link Allocator}, in a single call
+     *
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param amounts
+     *            The amounts of money to allocate, in the same CurrencyUnit
+     * @param len
+     *            The number of units to allocate each amount to
+     * @return The {@link BulkAllocation} holding every allocation
+     */
+    public BulkAllocation allocateAll ( Allocator allocator, Money[] amounts, int len ) {
+        return BulkAllocation.of( allocator, amounts, len );
+    }
+
+    /**
+     * Allocate each of the given amounts into its own number of amounts using
+     * the given {@link Allocator}, in a single call
+     *
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param amounts
+     *            The amounts of money to allocate, in the same CurrencyUnit
+     * @param lens
+     *            The number of units to allocate the amount at the same index
+     *            to
+     * @return The {@link BulkAllocation} holding every allocation
+     */
+    public BulkAllocation allocateAll ( Allocator allocator, Money[] amounts, int[] lens ) {
+        return BulkAllocation.of( allocator, amounts, lens );
+    }
+
+    /**
+     * Describe the allocation of the given amount of {@link Money} into 'len'
+     * amounts using the given {@link Allocator}
+     * 
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param money
+     *            The amount of money to allocate
+     * @param len
+     *            The number of units to allocate the money to
+     * @return The compact {@link Allocation}
+     */
+    public Allocation allocation ( Allocator allocator, Money money, int len ) {
+        checkAllocation( money, len );
+        return allocator.allocation( money, len );
+    }
+
+    /**
+     * Allocate the given amount of {@link Money} into 'len' amounts using the
+     * given {@link Allocator}, returning a List which calculates each amount
+     * on demand. The List takes constant memory, regardless of 'len'.
+     * 
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param money
+     *            The amount of money to allocate
+     * @param len
+     *            The number of units to allocate the money to
+     * @return An immutable List of {@link Money}'s representing the desired
+     *         allocation
+     */
+    public AllocationResult allocateLazily ( Allocator allocator, Money money, int len ) {
+        return new AllocationResult( allocation( allocator, money, len ) );
+    }
+
+    /**
+     * Allocate the given amount of {@link Money} according to the given ratios
+     * using the given {@link RatioAllocator}
+     * 
+     * @param allocator
+     *            The {@link RatioAllocator} to use
+     * @param money
+     *            The amount of money to allocate
+     * @param ratios
+     *            The ratios to allocate the money by
+     * @return One {@link Money} per ratio representing the desired allocation
+     */
+    public Money[] allocate ( RatioAllocator allocator, Money money, int[] ratios ) {
+        checkRatios( money, ratios == null ? 0 : ratios.length );
+        return allocator.allocate( money, ratios );
+    }
+
+    /**
+     * Allocate the given amount of {@link Money} according to the given ratios
+     * using the given {@link RatioAllocator}
+     * 
+     * @param allocator
+     *            The {@link RatioAllocator} to use
+     * @param money
+     *            The amount of money to allocate
+     * @param ratios
+     *            The ratios to allocate the money by
+     * @return One {@link Money} per ratio representing the desired allocation
+     */
+    public Money[] allocate ( RatioAllocator allocator, Money money, BigDecimal[] ratios ) {
+        checkRatios( money, ratios == null ? 0 : ratios.length );
+        return allocator.allocate( money, ratios );
+    }
+
+    private void checkRatios ( Money money, int ratios ) {
+        if ( !(ratios > 0) ) {
+            throw new IllegalArgumentException( "ratios must not be empty" );
+        }
+        if ( money == null ) {
+            throw new IllegalArgumentException( "money must not be null" );
+        }
+    }
+
+    private void checkAllocation ( Money money, int len ) {
         if ( !(len > 0) ) {
             throw new IllegalArgumentException( "len must be greater than zero : " + len );
         }
         if ( money == null ) {
             throw new IllegalArgumentException( "money must not be null" );
         }
-        return allocator.allocate( money, len );
     }
 
     /**
@@ -133,13 +344,22 @@ public class MoneyCalculator {
      * @return An initialised {@link MoneyCalculator}
      */
     public MoneyCalculator set ( Money money ) {
+        Metrics.event( MetricsRecorder.Event.SET );
         this.clear();
         int scale = money.getScale() + REMAINDER_SCALE;
         if ( remainderScale > scale ) {
             scale = remainderScale;
         }
-        this.currentValue = money.toBigMoney().withScale( scale );
-        this.setRemainderScale( this.currentValue.getScale() );
+        try {
+            this.unscaledValue = ScaledArithmetic.rescale( ScaledArithmetic.unscaledLong( money ), money.getScale(), scale, RoundingMode.UNNECESSARY );
+            this.scale = scale;
+            this.currency = money.getCurrencyUnit();
+            this.compact = true;
+        } catch ( ArithmeticException e ) {
+            Metrics.event( MetricsRecorder.Event.PROMOTION );
+            this.currentValue = money.toBigMoney().withScale( scale );
+        }
+        this.setRemainderScale( scale );
         return this;
     }
 
@@ -167,7 +387,22 @@ public class MoneyCalculator {
      * @return The {@link MoneyCalculator} for further operations
      */
     public MoneyCalculator add ( Money amount ) {
-        this.currentValue = this.currentValue.plus( amount );
+        Metrics.event( MetricsRecorder.Event.ADD );
+        if ( this.compact && this.bigDenominator == null && isCompatible( amount ) ) {
+            try {
+                long units = ScaledArithmetic.rescale( ScaledArithmetic.unscaledLong( amount ), amount.getScale(), this.scale, RoundingMode.UNNECESSARY );
+                this.unscaledValue = Math.addExact( this.unscaledValue, Math.multiplyExact( units, this.denominator ) );
+                return this;
+            } catch ( ArithmeticException e ) {
+                // Overflow
+            }
+        }
+        promote();
+        if ( isQuotient() ) {
+            this.currentValue = this.currentValue.plus( toNumerator( amount ) );
+        } else {
+            this.currentValue = this.currentValue.plus( amount );
+        }
         return this;
     }
 
@@ -195,7 +430,22 @@ public class MoneyCalculator {
      * @return The {@link MoneyCalculator} for further operations
      */
     public MoneyCalculator subtract ( Money amount ) {
-        this.currentValue = this.currentValue.minus( amount );
+        Metrics.event( MetricsRecorder.Event.SUBTRACT );
+        if ( this.compact && this.bigDenominator == null && isCompatible( amount ) ) {
+            try {
+                long units = ScaledArithmetic.rescale( ScaledArithmetic.unscaledLong( amount ), amount.getScale(), this.scale, RoundingMode.UNNECESSARY );
+                this.unscaledValue = Math.subtractExact( this.unscaledValue, Math.multiplyExact( units, this.denominator ) );
+                return this;
+            } catch ( ArithmeticException e ) {
+                // Overflow
+            }
+        }
+        promote();
+        if ( isQuotient() ) {
+            this.currentValue = this.currentValue.minus( toNumerator( amount ) );
+        } else {
+            this.currentValue = this.currentValue.minus( amount );
+        }
         return this;
     }
 
@@ -247,6 +497,22 @@ public class MoneyCalculator {
         return this.multiply( by );
     }
 
+    /**
+     * Performs an implicit {@link #clear()}, {@link #set(Money)},
+     * {@link #multiply(Rate)}
+     * 
+     * @param money
+     *            The initial value for the Calculator
+     * @param by
+     *            The Rate to multiply the initial value by
+     * @return The {@link MoneyCalculator} for further operations
+     */
+    public MoneyCalculator multiply ( Money money, Rate by ) {
+        this.clear();
+        this.set( money );
+        return this.multiply( by );
+    }
+
     /**
      * Multiplies the current amount by the given long
      * 
@@ -255,6 +521,16 @@ public class MoneyCalculator {
      * @return The {@link MoneyCalculator} for further operations
      */
     public MoneyCalculator multiply ( long by ) {
+        Metrics.event( MetricsRecorder.Event.MULTIPLY );
+        if ( this.compact ) {
+            try {
+                this.unscaledValue = Math.multiplyExact( this.unscaledValue, by );
+                return this;
+            } catch ( ArithmeticException e ) {
+                // Overflow
+            }
+        }
+        promote();
         this.currentValue = this.currentValue.multipliedBy( by );
         return this;
     }
@@ -267,6 +543,11 @@ public class MoneyCalculator {
      * @return The {@link MoneyCalculator} for further operations
      */
     public MoneyCalculator multiply ( double by ) {
+        Metrics.event( MetricsRecorder.Event.MULTIPLY );
+        if ( this.compact && (by == 1.0 || multiplyCompact( BigDecimal.valueOf( by ) )) ) {
+            return this;
+        }
+        promote();
         this.currentValue = this.currentValue.multipliedBy( by );
         return this;
     }
@@ -279,10 +560,33 @@ public class MoneyCalculator {
      * @return The {@link MoneyCalculator} for further operations
      */
     public MoneyCalculator multiply ( BigDecimal by ) {
+        Metrics.event( MetricsRecorder.Event.MULTIPLY );
+        if ( this.compact && (by.compareTo( BigDecimal.ONE ) == 0 || multiplyCompact( by )) ) {
+            return this;
+        }
+        promote();
         this.currentValue = this.currentValue.multipliedBy( by );
         return this;
     }
 
+    /**
+     * Multiplies the current amount by the given Rate, exactly as
+     * {@link #multiply(BigDecimal)} would multiply by its value
+     * 
+     * @param by
+     *            The Rate to multiply the current amount by
+     * @return The {@link MoneyCalculator} for further operations
+     */
+    public MoneyCalculator multiply ( Rate by ) {
+        Metrics.event( MetricsRecorder.Event.MULTIPLY );
+        if ( this.compact && (by.isOne() || (by.isCompact() && multiplyCompact( by.getUnscaledValue(), by.getScale() ))) ) {
+            return this;
+        }
+        promote();
+        this.currentValue = this.currentValue.multipliedBy( by.getValue() );
+        return this;
+    }
+
     /**
      * Performs an implicit {@link #clear()}, {@link #set(Money)},
      * {@link #divide(long)}
@@ -331,6 +635,22 @@ public class MoneyCalculator {
         return this.divide( by );
     }
 
+    /**
+     * Performs an implicit {@link #clear()}, {@link #set(Money)},
+     * {@link #divide(Rate)}
+     * 
+     * @param money
+     *            The initial value for the Calculator
+     * @param by
+     *            The Rate to divide the initial value by
+     * @return The {@link MoneyCalculator} for further operations
+     */
+    public MoneyCalculator divide ( Money money, Rate by ) {
+        this.clear();
+        this.set( money );
+        return this.divide( by );
+    }
+
     /**
      * Divides the current amount by the given long
      * 
@@ -339,6 +659,23 @@ public class MoneyCalculator {
      * @return The {@link MoneyCalculator} for further operations
      */
     public MoneyCalculator divide ( long by ) {
+        Metrics.event( MetricsRecorder.Event.DIVIDE );
+        if ( this.exact && isSet() ) {
+            if ( by == 0L ) {
+                throw new ArithmeticException( "Division by zero" );
+            }
+            multiplyDenominator( by );
+            return this;
+        }
+        if ( this.compact && roundingMode != null ) {
+            try {
+                this.unscaledValue = ScaledArithmetic.divide( this.unscaledValue, by, roundingMode );
+                return this;
+            } catch ( ArithmeticException e ) {
+                // Overflow or division by zero - BigMoney will report the latter
+            }
+        }
+        promote();
         this.currentValue = this.currentValue.dividedBy( by, roundingMode );
         return this;
     }
@@ -351,6 +688,15 @@ public class MoneyCalculator {
      * @return The {@link MoneyCalculator} for further operations
      */
     public MoneyCalculator divide ( double by ) {
+        Metrics.event( MetricsRecorder.Event.DIVIDE );
+        if ( this.exact && isSet() ) {
+            divideExactly( BigDecimal.valueOf( by ) );
+            return this;
+        }
+        if ( this.compact && roundingMode != null && (by == 1.0 || divideCompact( BigDecimal.valueOf( by ) )) ) {
+            return this;
+        }
+        promote();
         this.currentValue = this.currentValue.dividedBy( by, roundingMode );
         return this;
     }
@@ -363,10 +709,72 @@ public class MoneyCalculator {
      * @return The {@link MoneyCalculator} for further operations
      */
     public MoneyCalculator divide ( BigDecimal by ) {
+        Metrics.event( MetricsRecorder.Event.DIVIDE );
+        if ( this.exact && isSet() ) {
+            divideExactly( by );
+            return this;
+        }
+        if ( this.compact && roundingMode != null && (by.compareTo( BigDecimal.ONE ) == 0 || divideCompact( by )) ) {
+            return this;
+        }
+        promote();
         this.currentValue = this.currentValue.dividedBy( by, roundingMode );
         return this;
     }
 
+    /**
+     * Divides the current amount by the given Rate, exactly as
+     * {@link #divide(BigDecimal)} would divide by its value
+     * 
+     * @param by
+     *            The Rate to divide the current amount by
+     * @return The {@link MoneyCalculator} for further operations
+     */
+    public MoneyCalculator divide ( Rate by ) {
+        Metrics.event( MetricsRecorder.Event.DIVIDE );
+        if ( this.exact && isSet() ) {
+            divideExactly( by.getValue() );
+            return this;
+        }
+        if ( this.compact && roundingMode != null && (by.isOne() || (by.isCompact() && divideCompact( by.getUnscaledValue(), by.getScale() ))) ) {
+            return this;
+        }
+        promote();
+        this.currentValue = this.currentValue.dividedBy( by.getValue(), roundingMode );
+        return this;
+    }
+
+    /**
+     * Converts the current amount to another CurrencyUnit, by multiplying it
+     * by the table's rate (see {@link #multiply(Rate)}). Further operations,
+     * and the result, are then in the new CurrencyUnit. The remainderScale is
+     * increased to suit the new CurrencyUnit if necessary.
+     *
+     * @param rates
+     *            The table holding the rate
+     * @param to
+     *            The CurrencyUnit to convert to
+     * @return The {@link MoneyCalculator} for further operations
+     * @throws IllegalArgumentException
+     *             If the table has no rate for the conversion
+     * @throws IllegalStateException
+     *             If the calculator has no value to convert
+     */
+    public MoneyCalculator convert ( RateTable rates, CurrencyUnit to ) {
+        if ( !isSet() ) {
+            throw new IllegalStateException( "Calculator has no value to convert" );
+        }
+        CurrencyUnit from = (this.compact ? this.currency : this.currentValue.getCurrencyUnit());
+        this.multiply( rates.getRate( from, to ) );
+        if ( this.compact ) {
+            this.currency = to;
+        } else {
+            this.currentValue = BigMoney.of( to, this.currentValue.getAmount() );
+        }
+        this.setRemainderScale( to.getDecimalPlaces() + REMAINDER_SCALE );
+        return this;
+    }
+
     /**
      * Obtains the result of any/all preceding calculations since the last
      * {@link #clear()}
@@ -374,7 +782,7 @@ public class MoneyCalculator {
      * @return the result
      */
     public Result result () {
-        return toResult( this.roundingMode );
+        return toResult( this.roundingMode, new Result() );
     }
 
     /**
@@ -388,7 +796,139 @@ public class MoneyCalculator {
      * @return the result
      */
     public Result result ( RoundingMode roundingMode ) {
-        return toResult( roundingMode );
+        return toResult( roundingMode, new Result() );
+    }
+
+    /**
+     * Obtains the result of any/all preceding calculations since the last
+     * {@link #clear()}, refilling the given Result rather than creating a new
+     * one
+     * 
+     * @param result
+     *            The Result to refill
+     * @return the given result
+     */
+    public Result result ( Result result ) {
+        return toResult( this.roundingMode, result );
+    }
+
+    /**
+     * Obtains the result of any/all preceding calculations since the last
+     * {@link #clear()}, refilling the given Result rather than creating a new
+     * one
+     * 
+     * @param roundingMode
+     *            The RoundingMode used to calculate the result. See
+     *            {@link BigDecimal} for details.
+     * @param result
+     *            The Result to refill
+     * @return the given result
+     */
+    public Result result ( RoundingMode roundingMode, Result result ) {
+        return toResult( roundingMode, result );
+    }
+
+    /**
+     * Obtains the value of {@link #result()} in minor units, without creating
+     * a Result whenever the value fits in a long
+     * 
+     * @return the rounded value, in minor units
+     * @throws ArithmeticException
+     *             If the rounded value does not fit in a long
+     */
+    public long resultMinorUnits () {
+        return resultMinorUnits( this.roundingMode );
+    }
+
+    /**
+     * Obtains the value of {@link #result(RoundingMode)} in minor units,
+     * without creating a Result whenever the value fits in a long
+     * 
+     * @param roundingMode
+     *            The RoundingMode used to calculate the result. See
+     *            {@link BigDecimal} for details.
+     * @return the rounded value, in minor units
+     * @throws ArithmeticException
+     *             If the rounded value does not fit in a long
+     */
+    public long resultMinorUnits ( RoundingMode roundingMode ) {
+        if ( compact && !isQuotient() && currency.getDecimalPlaces() >= 0 ) {
+            try {
+                return ScaledArithmetic.rescale( unscaledValue, scale, currency.getDecimalPlaces(), roundingMode );
+            } catch ( ArithmeticException e ) {
+                // Overflow
+            }
+        }
+        return toResult( roundingMode, new Result() ).getValueMinorUnits();
+    }
+
+    /**
+     * Obtains the remainder of {@link #result()} as an unscaled value at the
+     * {@link #getRemainderScale()}, without creating a Result whenever the
+     * remainder fits in a long
+     * 
+     * @return the unscaled remainder
+     * @throws ArithmeticException
+     *             If the remainder does not fit in a long
+     */
+    public long remainderUnscaled () {
+        return remainderUnscaled( this.roundingMode );
+    }
+
+    /**
+     * Obtains the remainder of {@link #result(RoundingMode)} as an unscaled
+     * value at the {@link #getRemainderScale()}, without creating a Result
+     * whenever the remainder fits in a long
+     * 
+     * @param roundingMode
+     *            The RoundingMode used to calculate the result. See
+     *            {@link BigDecimal} for details.
+     * @return the unscaled remainder
+     * @throws ArithmeticException
+     *             If the remainder does not fit in a long
+     */
+    public long remainderUnscaled ( RoundingMode roundingMode ) {
+        if ( compact && !isQuotient() && currency.getDecimalPlaces() >= 0 ) {
+            try {
+                int decimalPlaces = currency.getDecimalPlaces();
+                long value = ScaledArithmetic.rescale( unscaledValue, scale, decimalPlaces, roundingMode );
+                return ScaledArithmetic.remainder( unscaledValue, scale, value, decimalPlaces, remainderScale, roundingMode );
+            } catch ( ArithmeticException e ) {
+                // Overflow
+            }
+        }
+        return toResult( roundingMode, new Result() ).getRemainderUnscaled();
+    }
+
+    /**
+     * @return true if the remainder of {@link #result()} is zero
+     */
+    public boolean isRemainderZero () {
+        return isRemainderZero( this.roundingMode );
+    }
+
+    /**
+     * @param roundingMode
+     *            The RoundingMode used to calculate the result. See
+     *            {@link BigDecimal} for details.
+     * @return true if the remainder of {@link #result(RoundingMode)} is zero
+     */
+    public boolean isRemainderZero ( RoundingMode roundingMode ) {
+        if ( compact && !isQuotient() && currency.getDecimalPlaces() >= 0 ) {
+            try {
+                return remainderUnscaled( roundingMode ) == 0L;
+            } catch ( ArithmeticException e ) {
+                // Overflow
+            }
+        }
+        return toResult( roundingMode, new Result() ).getRemainder().isZero();
+    }
+
+    /**
+     * @return the current remainderScale
+     */
+    public int getRemainderScale () {
+        return remainderScale;
     }
 
     /**
@@ -397,21 +937,303 @@ public class MoneyCalculator {
      * @return the result. NB The remainder may be negative depending on the
      *         value and the RoundingMode
      */
-    private Result toResult ( RoundingMode roundingMode ) {
-        Result result = new Result();
-        result.value = (currentValue != null ? currentValue.withCurrencyScale( roundingMode ).toMoney() : null);
-        result.remainder = (currentValue != null ? currentValue.minus( result.value ).withScale( remainderScale, roundingMode ) : null);
+    private Result toResult ( RoundingMode roundingMode, Result result ) {
+        MetricsRecorder recorder = Metrics.recorder;
+        if ( recorder == null ) {
+            return calculateResult( roundingMode, result );
+        }
+        recorder.event( MetricsRecorder.Event.RESULT );
+        long start = System.nanoTime();
+        calculateResult( roundingMode, result );
+        long nanos = System.nanoTime() - start;
+        recorder.result( roundingMode, result.isRemainderZero(), nanos );
         return result;
     }
 
-    class Result {
+    private Result calculateResult ( RoundingMode roundingMode, Result result ) {
+        if ( isQuotient() ) {
+            return toQuotientResult( roundingMode, result );
+        }
+        if ( compact && toCompactResult( roundingMode, result ) ) {
+            return result;
+        }
+        BigMoney value = toBigMoney();
+        Money money = (value != null ? MoneyInterner.intern( value.withCurrencyScale( roundingMode ).toMoney() ) : null);
+        result.set( money, (value != null ? value.minus( money ).withScale( remainderScale, roundingMode ) : null) );
+        return result;
+    }
+
+    /**
+     * Calculates the result directly from the compact value
+     * 
+     * @return false if the result could not be calculated using longs
+     */
+    private boolean toCompactResult ( RoundingMode roundingMode, Result result ) {
+        int decimalPlaces = currency.getDecimalPlaces();
+        if ( decimalPlaces < 0 ) {
+            return false;
+        }
+        try {
+            long value = ScaledArithmetic.rescale( unscaledValue, scale, decimalPlaces, roundingMode );
+            long remainder = ScaledArithmetic.remainder( unscaledValue, scale, value, decimalPlaces, remainderScale, roundingMode );
+            result.set( currency, value, remainder, remainderScale );
+            return true;
+        } catch ( ArithmeticException e ) {
+            return false;
+        }
+    }
+
+    /**
+     * Rounds the exact quotient, once for the value and once for the
+     * remainder (value - rounded value)
+     */
+    private Result toQuotientResult ( RoundingMode roundingMode, Result result ) {
+        if ( compact && bigDenominator == null && currency.getDecimalPlaces() >= 0 ) {
+            int decimalPlaces = currency.getDecimalPlaces();
+            try {
+                long value;
+                if ( scale >= decimalPlaces ) {
+                    value = ScaledArithmetic.divide( unscaledValue, Math.multiplyExact( denominator, ScaledArithmetic.pow10( scale - decimalPlaces ) ),
+                            roundingMode );
+                } else {
+                    value = ScaledArithmetic.divide( ScaledArithmetic.multiplyPow10( unscaledValue, decimalPlaces - scale ), denominator, roundingMode );
+                }
+                // (value - rounded value) at scale 'common', over the denominator
+                int common = Math.max( Math.max( scale, decimalPlaces ), remainderScale );
+                long difference = Math.subtractExact( ScaledArithmetic.multiplyPow10( unscaledValue, common - scale ), Math.multiplyExact(
+                        ScaledArithmetic.multiplyPow10( value, common - decimalPlaces ), denominator ) );
+                long remainder = ScaledArithmetic.divide( difference, Math.multiplyExact( denominator, ScaledArithmetic.pow10( common - remainderScale ) ),
+                        roundingMode );
+                result.set( currency, value, remainder, remainderScale );
+                return result;
+            } catch ( ArithmeticException e ) {
+                // Overflow
+            }
+        }
+        BigMoney numerator = toBigMoney();
+        BigDecimal divisor = new BigDecimal( bigDenominator != null ? bigDenominator : BigInteger.valueOf( denominator ) );
+        BigDecimal value = numerator.getAmount().divide( divisor, numerator.getCurrencyUnit().getDecimalPlaces(), roundingMode );
+        BigDecimal remainder = numerator.getAmount().subtract( value.multiply( divisor ) ).divide( divisor, remainderScale, roundingMode );
+        result.set( MoneyInterner.intern( Money.of( numerator.getCurrencyUnit(), value ) ), BigMoney.of( numerator.getCurrencyUnit(), remainder ) );
+        return result;
+    }
+
+    /**
+     * @return true if the current value is an exact quotient
+     */
+    private boolean isQuotient () {
+        return bigDenominator != null || denominator != 1L;
+    }
+
+    /**
+     * @return true if there is a current value
+     */
+    private boolean isSet () {
+        return compact || currentValue != null;
+    }
+
+    /**
+     * @return the amount multiplied by the denominator, so that it can be
+     *         combined with the numerator
+     */
+    private BigMoney toNumerator ( Money amount ) {
+        if ( bigDenominator != null ) {
+            return amount.toBigMoney().multipliedBy( new BigDecimal( bigDenominator ) );
+        }
+        return amount.toBigMoney().multipliedBy( denominator );
+    }
+
+    /**
+     * Divides the current value exactly, by multiplying the numerator by
+     * 10^scale and the denominator by the unscaled value
+     */
+    private void divideExactly ( BigDecimal by ) {
+        if ( by.signum() == 0 ) {
+            throw new ArithmeticException( "Division by zero" );
+        }
+        if ( by.scale() > 0 ) {
+            BigDecimal factor = BigDecimal.ONE.movePointRight( by.scale() );
+            if ( !(compact && multiplyCompact( factor )) ) {
+                promote();
+                currentValue = currentValue.multipliedBy( factor );
+            }
+        } else if ( by.scale() < 0 ) {
+            multiplyDenominator( BigInteger.TEN.pow( -by.scale() ) );
+        }
+        BigInteger unscaled = by.unscaledValue();
+        if ( unscaled.bitLength() < 64 ) {
+            multiplyDenominator( unscaled.longValue() );
+        } else {
+            multiplyDenominator( unscaled );
+        }
+    }
+
+    private void multiplyDenominator ( long by ) {
+        if ( bigDenominator == null ) {
+            try {
+                denominator = Math.multiplyExact( denominator, by );
+                return;
+            } catch ( ArithmeticException e ) {
+                // Overflow
+            }
+        }
+        multiplyDenominator( BigInteger.valueOf( by ) );
+    }
+
+    private void multiplyDenominator ( BigInteger by ) {
+        bigDenominator = (bigDenominator != null ? bigDenominator : BigInteger.valueOf( denominator )).multiply( by );
+    }
+
+    /**
+     * @return true if the amount can be combined with the compact value
+     *         without changing its scale. NB A null amount will throw a
+     *         NullPointerException
+     */
+    private boolean isCompatible ( Money amount ) {
+        return currency.equals( amount.getCurrencyUnit() ) && amount.getScale() <= scale;
+    }
+
+    /**
+     * Multiplies the compact value, producing the scale BigDecimal.multiply()
+     * would
+     * 
+     * @return false on overflow
+     */
+    private boolean multiplyCompact ( BigDecimal by ) {
+        try {
+            return multiplyCompact( ScaledArithmetic.unscaledLong( by ), by.scale() );
+        } catch ( ArithmeticException e ) {
+            return false;
+        }
+    }
+
+    /**
+     * Multiplies the compact value by unscaled * 10^-byScale
+     * 
+     * @return false on overflow
+     */
+    private boolean multiplyCompact ( long unscaled, int byScale ) {
+        try {
+            long product = Math.multiplyExact( unscaledValue, unscaled );
+            int productScale = Math.addExact( scale, byScale );
+            this.unscaledValue = product;
+            this.scale = productScale;
+            return true;
+        } catch ( ArithmeticException e ) {
+            return false;
+        }
+    }
+
+    /**
+     * Divides the compact value, retaining its scale as
+     * BigDecimal.divide(BigDecimal, RoundingMode) would
+     * 
+     * @return false on overflow or division by zero
+     */
+    private boolean divideCompact ( BigDecimal by ) {
+        try {
+            return divideCompact( ScaledArithmetic.unscaledLong( by ), by.scale() );
+        } catch ( ArithmeticException e ) {
+            return false;
+        }
+    }
+
+    /**
+     * Divides the compact value by unscaled * 10^-divisorScale
+     * 
+     * @return false on overflow or division by zero
+     */
+    private boolean divideCompact ( long unscaled, int divisorScale ) {
+        try {
+            long divisor = unscaled;
+            long dividend = unscaledValue;
+            if ( divisorScale >= 0 ) {
+                dividend = ScaledArithmetic.multiplyPow10( dividend, divisorScale );
+            } else {
+                divisor = ScaledArithmetic.multiplyPow10( divisor, -divisorScale );
+            }
+            this.unscaledValue = ScaledArithmetic.divide( dividend, divisor, roundingMode );
+            return true;
+        } catch ( ArithmeticException e ) {
+            return false;
+        }
+    }
+
+    /**
+     * Switches from the compact value to the equivalent BigMoney
+     */
+    private void promote () {
+        if ( compact ) {
+            Metrics.event( MetricsRecorder.Event.PROMOTION );
+            currentValue = toBigMoney();
+            compact = false;
+            currency = null;
+        }
+    }
+
+    /**
+     * @return the current value as a BigMoney, or null if there is none
+     */
+    private BigMoney toBigMoney () {
+        if ( compact ) {
+            return BigMoney.of( currency, BigDecimal.valueOf( unscaledValue, scale ) );
+        }
+        return currentValue;
+    }
+
+    /**
+     * <p>
+     * The result of a calculation - see {@link MoneyCalculator#result()}.
+     * </p>
+     * <p>
+     * A Result may be refilled by
+     * {@link MoneyCalculator#result(Result)}, so one instance can be reused
+     * for many calculations. When the result was calculated using longs, the
+     * value and remainder are only created as Money and BigMoney when first
+     * asked for; the primitive accessors never create them. Like the
+     * Calculator, it is <b>NOT</b> thread-safe.
+     * </p>
+     */
+    public static class Result {
+        private CurrencyUnit currency = null;
+        private boolean compact = false;
+        private long valueMinorUnits = 0L;
+        private long remainderUnscaled = 0L;
+        private int remainderScale = 0;
         private Money value = null;
         private BigMoney remainder = null;
 
+        /**
+         * Create a new, empty Result, which may be refilled by
+         * {@link MoneyCalculator#result(Result)}
+         */
+        public Result() {
+        }
+
+        void set ( Money value, BigMoney remainder ) {
+            this.compact = false;
+            this.currency = null;
+            this.value = value;
+            this.remainder = remainder;
+        }
+
+        void set ( CurrencyUnit currency, long valueMinorUnits, long remainderUnscaled, int remainderScale ) {
+            this.compact = true;
+            this.currency = currency;
+            this.valueMinorUnits = valueMinorUnits;
+            this.remainderUnscaled = remainderUnscaled;
+            this.remainderScale = remainderScale;
+            this.value = null;
+            this.remainder = null;
+        }
+
         /**
          * @return the value
          */
         public Money getValue () {
+            if ( value == null && compact ) {
+                value = MoneyInterner.ofMinor( currency, valueMinorUnits );
+            }
             return value;
         }
 
@@ -419,8 +1241,43 @@ public class MoneyCalculator {
          * @return the remainder
          */
         public BigMoney getRemainder () {
+            if ( remainder == null && compact ) {
+                remainder = BigMoney.of( currency, BigDecimal.valueOf( remainderUnscaled, remainderScale ) );
+            }
             return remainder;
         }
+
+        /**
+         * @return true if the remainder is zero (or there is none)
+         */
+        boolean isRemainderZero () {
+            return compact ? remainderUnscaled == 0L : (remainder == null || remainder.isZero());
+        }
+
+        /**
+         * @return the value, in minor units
+         * @throws ArithmeticException
+         *             If the value does not fit in a long
+         */
+        public long getValueMinorUnits () {
+            return compact ? valueMinorUnits : ScaledArithmetic.unscaledLong( value.getAmount() );
+        }
+
+        /**
+         * @return the unscaled remainder, at {@link #getRemainderScale()}
+         * @throws ArithmeticException
+         *             If the remainder does not fit in a long
+         */
+        public long getRemainderUnscaled () {
+            return compact ? remainderUnscaled : ScaledArithmetic.unscaledLong( remainder.getAmount() );
+        }
+
+        /**
+         * @return the scale of the remainder
+         */
+        public int getRemainderScale () {
+            return compact ? remainderScale : remainder.getScale();
+        }
     }
 
 }
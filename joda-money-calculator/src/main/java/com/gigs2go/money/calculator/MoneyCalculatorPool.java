@@ -0,0 +1,115 @@
+package com.gigs2go.money.calculator;
+
+import java.math.RoundingMode;
+
+/**
+ * <p>
+ * A MoneyCalculatorPool hands out pre-configured {@link MoneyCalculator}s,
+ * one per thread, together with a reusable {@link MoneyCalculator.Result}
+ * for each thread.<br/>
+ * Each calculator is created on first use by a thread, and then reset() and
+ * handed out again on every subsequent call, so steady-state use creates no
+ * calculators or Results:
+ * </p>
+ *
+ * <pre>
+ * MoneyCalculator.Result result = pool.get().set( amount ).multiply( rate ).result( pool.getResult() );
+ * </pre>
+ * <p>
+ * The pool itself is thread-safe, but the calculator and Result are only for
+ * the calling thread, and are shared by every use of this pool on that
+ * thread. A calculation must therefore finish with its Result before the
+ * same thread calls {@link #get()} again.
+ * </p>
+ *
+ * @see MoneyCalculator
+ */
+public class MoneyCalculatorPool {
+    private static final int REMAINDER_SCALE = 3;
+
+    private final int remainderScale;
+    private final RoundingMode roundingMode;
+    private final ThreadLocal<Entry> entries = new ThreadLocal<Entry>() {
+        @Override
+        protected Entry initialValue () {
+            return new Entry( new MoneyCalculator( remainderScale, roundingMode ) );
+        }
+    };
+
+    /**
+     * Create a new MoneyCalculatorPool handing out calculators with a
+     * default remainderScale of 3 and a default RoundingMode of 'HALF_UP'
+     */
+    public MoneyCalculatorPool() {
+        this( REMAINDER_SCALE, RoundingMode.HALF_UP );
+    }
+
+    /**
+     * Create a new MoneyCalculatorPool handing out calculators with a
+     * default remainderScale of 3 and the given RoundingMode
+     *
+     * @param roundingMode
+     */
+    public MoneyCalculatorPool( RoundingMode roundingMode ) {
+        this( REMAINDER_SCALE, roundingMode );
+    }
+
+    /**
+     * Create a new MoneyCalculatorPool handing out calculators with the
+     * given remainderScale and RoundingMode
+     *
+     * @param remainderScale
+     * @param roundingMode
+     */
+    public MoneyCalculatorPool( int remainderScale, RoundingMode roundingMode ) {
+        this.remainderScale = remainderScale;
+        this.roundingMode = roundingMode;
+    }
+
+    /**
+     * @return The calling thread's calculator, reset() so that it is in the
+     *         same state as a newly constructed one
+     */
+    public MoneyCalculator get () {
+        return entries.get().calculator.reset();
+    }
+
+    /**
+     * @return The calling thread's reusable Result, for use with
+     *         {@link MoneyCalculator#result(MoneyCalculator.Result)}
+     */
+    public MoneyCalculator.Result getResult () {
+        return entries.get().result;
+    }
+
+    /**
+     * Discards the calling thread's calculator and Result, e.g. before
+     * returning the thread to a long-lived thread pool
+     */
+    public void remove () {
+        entries.remove();
+    }
+
+    /**
+     * @return the remainderScale of each calculator
+     */
+    public int getRemainderScale () {
+        return remainderScale;
+    }
+
+    /**
+     * @return the RoundingMode of each calculator
+     */
+    public RoundingMode getRoundingMode () {
+        return roundingMode;
+    }
+
+    private static final class Entry {
+        private final MoneyCalculator calculator;
+        private final MoneyCalculator.Result result = new MoneyCalculator.Result();
+
+        Entry( MoneyCalculator calculator ) {
+            this.calculator = calculator;
+        }
+    }
+}
@@ -0,0 +1,494 @@
+package com.gigs2go.money.calculator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import org.joda.money.BigMoney;
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * A compact binary encoding of Money, BigMoney, {@link MoneyCalculator.Result}
+ * and allocations, read from and written to a ByteBuffer.
+ * </p>
+ * <p>
+ * Unsigned integers are written as varints (7 bits per byte, least
+ * significant first, the top bit set on all but the last byte), and signed
+ * integers as zig-zag varints. An amount is:
+ * </p>
+ *
+ * <pre>
+ * varint  The ISO-4217 numeric code of the currency
+ * varint  zigzag( scale ) &lt;&lt; 1 | big
+ * big == 0 : zigzag varint  The unscaled value
+ * big == 1 : varint         The length of the unscaled value, then its
+ *                           two's-complement bytes (BigInteger.toByteArray())
+ * </pre>
+ * <p>
+ * A Result is a flags byte (1 if it has a value, 2 if it has a remainder)
+ * followed by the value and remainder amounts present.
+ * </p>
+ * <p>
+ * An allocation (an array of Money in one currency, in minor units) is
+ * run-length encoded, as allocations only ever hold one or two distinct
+ * values:
+ * </p>
+ *
+ * <pre>
+ * varint  The ISO-4217 numeric code of the currency
+ * varint  The number of elements
+ * varint  The number of runs
+ * each run :
+ *   varint  length &lt;&lt; 1 | big
+ *   big == 0 : zigzag varint  The minor units, less those of the previous
+ *                             run (wrapping)
+ *   big == 1 : varint         The length of the minor units, then their
+ *                             two's-complement bytes
+ * </pre>
+ * <p>
+ * The get methods read single fields at an absolute position without moving
+ * the buffer or creating any objects, so records can be inspected in place.
+ * Writing past the limit of a buffer throws a BufferOverflowException, and
+ * reading past it a BufferUnderflowException.
+ * </p>
+ */
+public final class MoneyCodec {
+    private static final int MAX_VARINT_LENGTH = 10;
+
+    private MoneyCodec() {
+    }
+
+    /**
+     * @param buffer
+     *            The buffer to write to, at its position
+     * @param money
+     *            The amount to write
+     * @throws IllegalArgumentException
+     *             If the currency has no numeric code
+     */
+    public static void writeMoney ( ByteBuffer buffer, Money money ) {
+        writeAmount( buffer, money.getCurrencyUnit(), money.getAmount() );
+    }
+
+    /**
+     * @param buffer
+     *            The buffer to write to, at its position
+     * @param money
+     *            The amount to write
+     * @throws IllegalArgumentException
+     *             If the currency has no numeric code
+     */
+    public static void writeBigMoney ( ByteBuffer buffer, BigMoney money ) {
+        writeAmount( buffer, money.getCurrencyUnit(), money.getAmount() );
+    }
+
+    /**
+     * @param buffer
+     *            The buffer to read from, at its position
+     * @return the amount, as Money
+     * @throws ArithmeticException
+     *             If the amount has more decimal places than its currency
+     */
+    public static Money readMoney ( ByteBuffer buffer ) {
+        CurrencyUnit currency = currency( readVarLong( buffer ) );
+        long header = readVarLong( buffer );
+        int scale = (int)unzigzag( header >>> 1 );
+        if ( (header & 1L) == 0L ) {
+            long unscaled = unzigzag( readVarLong( buffer ) );
+            if ( scale == currency.getDecimalPlaces() ) {
+                return MoneyInterner.ofMinor( currency, unscaled );
+            }
+            return Money.of( currency, BigDecimal.valueOf( unscaled, scale ) );
+        }
+        return Money.of( currency, new BigDecimal( readBigInteger( buffer ), scale ) );
+    }
+
+    /**
+     * @param buffer
+     *            The buffer to read from, at its position
+     * @return the amount, as BigMoney
+     */
+    public static BigMoney readBigMoney ( ByteBuffer buffer ) {
+        CurrencyUnit currency = currency( readVarLong( buffer ) );
+        long header = readVarLong( buffer );
+        int scale = (int)unzigzag( header >>> 1 );
+        if ( (header & 1L) == 0L ) {
+            return BigMoney.of( currency, BigDecimal.valueOf( unzigzag( readVarLong( buffer ) ), scale ) );
+        }
+        return BigMoney.of( currency, new BigDecimal( readBigInteger( buffer ), scale ) );
+    }
+
+    /**
+     * @param buffer
+     *            The buffer to write to, at its position
+     * @param result
+     *            The result to write
+     */
+    public static void writeResult ( ByteBuffer buffer, MoneyCalculator.Result result ) {
+        Money value = result.getValue();
+        BigMoney remainder = result.getRemainder();
+        buffer.put( (byte)((value != null ? 1 : 0) | (remainder != null ? 2 : 0)) );
+        if ( value != null ) {
+            writeMoney( buffer, value );
+        }
+        if ( remainder != null ) {
+            writeBigMoney( buffer, remainder );
+        }
+    }
+
+    /**
+     * @param buffer
+     *            The buffer to read from, at its position
+     * @return the result
+     */
+    public static MoneyCalculator.Result readResult ( ByteBuffer buffer ) {
+        int flags = buffer.get();
+        Money value = ((flags & 1) != 0 ? readMoney( buffer ) : null);
+        BigMoney remainder = ((flags & 2) != 0 ? readBigMoney( buffer ) : null);
+        MoneyCalculator.Result result = new MoneyCalculator.Result();
+        result.set( value, remainder );
+        return result;
+    }
+
+    /**
+     * Writes an allocation, such as the output of an {@link Allocator}
+     *
+     * @param buffer
+     *            The buffer to write to, at its position
+     * @param amounts
+     *            The amounts, all in the same currency
+     * @throws IllegalArgumentException
+     *             If there are no amounts, or the currency has no numeric
+     *             code
+     * @throws CurrencyMismatchException
+     *             If the amounts are not all in the same currency
+     */
+    public static void writeAllocation ( ByteBuffer buffer, Money[] amounts ) {
+        if ( amounts.length == 0 ) {
+            throw new IllegalArgumentException( "amounts must not be empty" );
+        }
+        CurrencyUnit currency = amounts[0].getCurrencyUnit();
+        int runs = 1;
+        for ( int i = 1; i < amounts.length; i++ ) {
+            if ( !currency.equals( amounts[i].getCurrencyUnit() ) ) {
+                throw new CurrencyMismatchException( currency, amounts[i].getCurrencyUnit() );
+            }
+            if ( !amounts[i].equals( amounts[i - 1] ) ) {
+                runs++;
+            }
+        }
+        writeVarLong( buffer, numericCode( currency ) );
+        writeVarLong( buffer, amounts.length );
+        writeVarLong( buffer, runs );
+        long previous = 0L;
+        for ( int from = 0; from < amounts.length; ) {
+            int to = from + 1;
+            while ( to < amounts.length && amounts[to].equals( amounts[from] ) ) {
+                to++;
+            }
+            BigInteger minorUnits = amounts[from].getAmount().unscaledValue();
+            if ( minorUnits.bitLength() < 64 ) {
+                long value = minorUnits.longValue();
+                writeVarLong( buffer, (long)(to - from) << 1 );
+                writeVarLong( buffer, zigzag( value - previous ) );
+                previous = value;
+            } else {
+                writeVarLong( buffer, ((long)(to - from) << 1) | 1L );
+                writeBigInteger( buffer, minorUnits );
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * @param buffer
+     *            The buffer to read from, at its position
+     * @return the allocation. Elements with equal values share the same Money
+     *         instance.
+     */
+    public static Money[] readAllocation ( ByteBuffer buffer ) {
+        CurrencyUnit currency = currency( readVarLong( buffer ) );
+        Money[] result = new Money[checkSize( readVarLong( buffer ) )];
+        long runs = readVarLong( buffer );
+        long previous = 0L;
+        int index = 0;
+        for ( long run = 0; run < runs; run++ ) {
+            long header = readVarLong( buffer );
+            int len = checkRun( header >>> 1, index, result.length );
+            Money value;
+            if ( (header & 1L) == 0L ) {
+                previous += unzigzag( readVarLong( buffer ) );
+                value = MoneyInterner.ofMinor( currency, previous );
+            } else {
+                value = Money.of( currency, new BigDecimal( readBigInteger( buffer ), currency.getDecimalPlaces() ) );
+            }
+            for ( int i = 0; i < len; i++ ) {
+                result[index++] = value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads an allocation as minor units, without creating any Money
+     *
+     * @param buffer
+     *            The buffer to read from, at its position
+     * @param out
+     *            The array to write the minor units to
+     * @param offset
+     *            The index of 'out' to start writing at
+     * @return The number of elements written
+     * @throws ArithmeticException
+     *             If an element does not fit a long
+     */
+    public static int readAllocation ( ByteBuffer buffer, long[] out, int offset ) {
+        readVarLong( buffer );
+        int size = checkSize( readVarLong( buffer ) );
+        if ( out.length - offset < size ) {
+            throw new IllegalArgumentException( "out must have room for " + size + " elements : " + (out.length - offset) );
+        }
+        long runs = readVarLong( buffer );
+        long previous = 0L;
+        int index = 0;
+        for ( long run = 0; run < runs; run++ ) {
+            long header = readVarLong( buffer );
+            int len = checkRun( header >>> 1, index, size );
+            if ( (header & 1L) != 0L ) {
+                throw new ArithmeticException( "Overflow : " + readBigInteger( buffer ) );
+            }
+            previous += unzigzag( readVarLong( buffer ) );
+            for ( int i = 0; i < len; i++ ) {
+                out[offset + index++] = previous;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @param buffer
+     *            The buffer
+     * @param position
+     *            The position of an encoded amount or allocation
+     * @return the currency of the amount or allocation
+     */
+    public static CurrencyUnit getCurrencyUnit ( ByteBuffer buffer, int position ) {
+        return currency( getVarLong( buffer, position ) );
+    }
+
+    /**
+     * @param buffer
+     *            The buffer
+     * @param position
+     *            The position of an encoded amount
+     * @return the scale of the amount
+     */
+    public static int getScale ( ByteBuffer buffer, int position ) {
+        position += varLength( buffer, position );
+        return (int)unzigzag( getVarLong( buffer, position ) >>> 1 );
+    }
+
+    /**
+     * @param buffer
+     *            The buffer
+     * @param position
+     *            The position of an encoded amount
+     * @return the unscaled value of the amount
+     * @throws ArithmeticException
+     *             If the unscaled value does not fit a long
+     */
+    public static long getUnscaledValue ( ByteBuffer buffer, int position ) {
+        position += varLength( buffer, position );
+        long header = getVarLong( buffer, position );
+        if ( (header & 1L) != 0L ) {
+            throw new ArithmeticException( "Unscaled value does not fit a long" );
+        }
+        return unzigzag( getVarLong( buffer, position + varLength( buffer, position ) ) );
+    }
+
+    /**
+     * @param buffer
+     *            The buffer
+     * @param position
+     *            The position of an encoded amount
+     * @return the number of bytes the amount occupies, so that the next
+     *         record can be found
+     */
+    public static int getLength ( ByteBuffer buffer, int position ) {
+        int start = position;
+        position += varLength( buffer, position );
+        long header = getVarLong( buffer, position );
+        position += varLength( buffer, position );
+        if ( (header & 1L) == 0L ) {
+            position += varLength( buffer, position );
+        } else {
+            int len = (int)getVarLong( buffer, position );
+            position += varLength( buffer, position ) + len;
+        }
+        return position - start;
+    }
+
+    /**
+     * @param buffer
+     *            The buffer
+     * @param position
+     *            The position of an encoded allocation
+     * @return the number of elements in the allocation
+     */
+    public static int getAllocationSize ( ByteBuffer buffer, int position ) {
+        position += varLength( buffer, position );
+        return checkSize( getVarLong( buffer, position ) );
+    }
+
+    /**
+     * @param buffer
+     *            The buffer
+     * @param position
+     *            The position of an encoded allocation
+     * @param index
+     *            The index of the element
+     * @return the element, in minor units
+     * @throws ArithmeticException
+     *             If the element does not fit a long
+     */
+    public static long getAllocationMinorUnits ( ByteBuffer buffer, int position, int index ) {
+        position += varLength( buffer, position );
+        long size = getVarLong( buffer, position );
+        if ( index < 0 || index >= size ) {
+            throw new IndexOutOfBoundsException( "Index " + index + " out of range for size " + size );
+        }
+        position += varLength( buffer, position );
+        position += varLength( buffer, position );
+        long previous = 0L;
+        long end = 0L;
+        while ( true ) {
+            long header = getVarLong( buffer, position );
+            position += varLength( buffer, position );
+            end += header >>> 1;
+            if ( (header & 1L) == 0L ) {
+                previous += unzigzag( getVarLong( buffer, position ) );
+                position += varLength( buffer, position );
+                if ( index < end ) {
+                    return previous;
+                }
+            } else {
+                if ( index < end ) {
+                    throw new ArithmeticException( "Element does not fit a long : " + index );
+                }
+                int len = (int)getVarLong( buffer, position );
+                position += varLength( buffer, position ) + len;
+            }
+        }
+    }
+
+    private static void writeAmount ( ByteBuffer buffer, CurrencyUnit currency, BigDecimal amount ) {
+        writeVarLong( buffer, numericCode( currency ) );
+        BigInteger unscaled = amount.unscaledValue();
+        long scale = zigzag( amount.scale() ) << 1;
+        if ( unscaled.bitLength() < 64 ) {
+            writeVarLong( buffer, scale );
+            writeVarLong( buffer, zigzag( unscaled.longValue() ) );
+        } else {
+            writeVarLong( buffer, scale | 1L );
+            writeBigInteger( buffer, unscaled );
+        }
+    }
+
+    private static void writeBigInteger ( ByteBuffer buffer, BigInteger value ) {
+        byte[] bytes = value.toByteArray();
+        writeVarLong( buffer, bytes.length );
+        buffer.put( bytes );
+    }
+
+    private static BigInteger readBigInteger ( ByteBuffer buffer ) {
+        long len = readVarLong( buffer );
+        if ( len < 1L || len > buffer.remaining() ) {
+            throw new IllegalArgumentException( "Invalid BigInteger length : " + len );
+        }
+        byte[] bytes = new byte[(int)len];
+        buffer.get( bytes );
+        return new BigInteger( bytes );
+    }
+
+    private static void writeVarLong ( ByteBuffer buffer, long value ) {
+        while ( (value & ~0x7FL) != 0L ) {
+            buffer.put( (byte)((value & 0x7FL) | 0x80L) );
+            value >>>= 7;
+        }
+        buffer.put( (byte)value );
+    }
+
+    private static long readVarLong ( ByteBuffer buffer ) {
+        long result = 0L;
+        for ( int shift = 0; shift < 7 * MAX_VARINT_LENGTH; shift += 7 ) {
+            byte b = buffer.get();
+            result |= (long)(b & 0x7F) << shift;
+            if ( b >= 0 ) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException( "Malformed varint" );
+    }
+
+    private static long getVarLong ( ByteBuffer buffer, int position ) {
+        long result = 0L;
+        for ( int shift = 0; shift < 7 * MAX_VARINT_LENGTH; shift += 7 ) {
+            byte b = buffer.get( position++ );
+            result |= (long)(b & 0x7F) << shift;
+            if ( b >= 0 ) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException( "Malformed varint" );
+    }
+
+    private static int varLength ( ByteBuffer buffer, int position ) {
+        int len = 1;
+        while ( buffer.get( position++ ) < 0 ) {
+            if ( ++len > MAX_VARINT_LENGTH ) {
+                throw new IllegalArgumentException( "Malformed varint" );
+            }
+        }
+        return len;
+    }
+
+    private static long zigzag ( long value ) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag ( long value ) {
+        return (value >>> 1) ^ -(value & 1L);
+    }
+
+    private static int numericCode ( CurrencyUnit currency ) {
+        int code = currency.getNumericCode();
+        if ( code < 0 ) {
+            throw new IllegalArgumentException( "Currency has no numeric code : " + currency );
+        }
+        return code;
+    }
+
+    private static CurrencyUnit currency ( long numericCode ) {
+        if ( numericCode > 999L ) {
+            throw new IllegalArgumentException( "Invalid numeric currency code : " + numericCode );
+        }
+        return CurrencyUnit.ofNumericCode( (int)numericCode );
+    }
+
+    private static int checkSize ( long size ) {
+        if ( size < 0L || size > Integer.MAX_VALUE - 8 ) {
+            throw new IllegalArgumentException( "Invalid size : " + size );
+        }
+        return (int)size;
+    }
+
+    private static int checkRun ( long len, int index, int size ) {
+        if ( len > size - index ) {
+            throw new IllegalArgumentException( "Run of " + len + " overruns size " + size );
+        }
+        return (int)len;
+    }
+}
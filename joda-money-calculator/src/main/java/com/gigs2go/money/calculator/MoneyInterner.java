@@ -0,0 +1,154 @@
+package com.gigs2go.money.calculator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * A per-CurrencyUnit table of shared Money instances for a range of
+ * minor-unit values.<br/>
+ * Allocations and results are dominated by a few small values (zero, one
+ * minor unit, whole units), and Money is immutable, so the calculators and
+ * allocators in this package obtain their Money from here rather than
+ * creating a new instance for each.
+ * </p>
+ * <p>
+ * The range defaults to {@value #DEFAULT_MIN} to {@value #DEFAULT_MAX} minor
+ * units inclusive. Each currency's table is created on first use, and each
+ * entry the first time it is asked for.
+ * </p>
+ * <p>
+ * Interned Money is never evicted: each currency used retains a table of
+ * (max - min + 1) references, plus up to that many Money instances, for the
+ * life of the JVM (or until the range is next replaced). The default keeps
+ * that to about a hundred per currency; widen it with
+ * {@link #setRange(long, long)} only if the extra values are common enough
+ * to justify the memory.
+ * </p>
+ */
+public final class MoneyInterner {
+    /**
+     * The default smallest interned value, in minor units
+     */
+    public static final long DEFAULT_MIN = -1L;
+    /**
+     * The default largest interned value, in minor units
+     */
+    public static final long DEFAULT_MAX = 100L;
+
+    private static volatile Table table = new Table( DEFAULT_MIN, DEFAULT_MAX );
+
+    private MoneyInterner() {
+    }
+
+    /**
+     * Replaces the interned range. Money already handed out is unaffected.
+     *
+     * @param min
+     *            The smallest value to intern, in minor units
+     * @param max
+     *            The largest value to intern, in minor units
+     */
+    public static void setRange ( long min, long max ) {
+        if ( min > max ) {
+            throw new IllegalArgumentException( "min must not be greater than max : " + min + " > " + max );
+        }
+        if ( max - min >= Integer.MAX_VALUE - 8 || max - min < 0L ) {
+            throw new IllegalArgumentException( "Range too large : " + min + " to " + max );
+        }
+        table = new Table( min, max );
+    }
+
+    /**
+     * @return the smallest interned value, in minor units
+     */
+    public static long getMin () {
+        return table.min;
+    }
+
+    /**
+     * @return the largest interned value, in minor units
+     */
+    public static long getMax () {
+        return table.max;
+    }
+
+    /**
+     * Equivalent to {@link Money#ofMinor(CurrencyUnit, long)}, but returns a
+     * shared instance for values within the interned range
+     *
+     * @param currency
+     *            The CurrencyUnit
+     * @param minorUnits
+     *            The amount in minor units
+     * @return The Money
+     */
+    public static Money ofMinor ( CurrencyUnit currency, long minorUnits ) {
+        Table current = table;
+        if ( minorUnits < current.min || minorUnits > current.max ) {
+            return Money.ofMinor( currency, minorUnits );
+        }
+        AtomicReferenceArray<Money> values = current.values( currency );
+        int index = (int)(minorUnits - current.min);
+        Money result = values.get( index );
+        if ( result == null ) {
+            result = Money.ofMinor( currency, minorUnits );
+            values.set( index, result );
+        }
+        return result;
+    }
+
+    /**
+     * @param money
+     *            The Money
+     * @return the shared instance equal to 'money' if it is within the
+     *         interned range, otherwise 'money' itself
+     */
+    public static Money intern ( Money money ) {
+        Table current = table;
+        long minorUnits;
+        try {
+            minorUnits = money.getAmountMinorLong();
+        } catch ( ArithmeticException e ) {
+            return money;
+        }
+        if ( minorUnits < current.min || minorUnits > current.max ) {
+            return money;
+        }
+        AtomicReferenceArray<Money> values = current.values( money.getCurrencyUnit() );
+        int index = (int)(minorUnits - current.min);
+        Money result = values.get( index );
+        if ( result == null ) {
+            values.set( index, money );
+            result = money;
+        }
+        return result;
+    }
+
+    private static final class Table {
+        private final long min;
+        private final long max;
+        private final ConcurrentMap<CurrencyUnit, AtomicReferenceArray<Money>> currencies = new ConcurrentHashMap<CurrencyUnit, AtomicReferenceArray<Money>>();
+
+        Table( long min, long max ) {
+            this.min = min;
+            this.max = max;
+        }
+
+        AtomicReferenceArray<Money> values ( CurrencyUnit currency ) {
+            AtomicReferenceArray<Money> values = currencies.get( currency );
+            if ( values == null ) {
+                values = new AtomicReferenceArray<Money>( (int)(max - min + 1) );
+                AtomicReferenceArray<Money> existing = currencies.putIfAbsent( currency, values );
+                if ( existing != null ) {
+                    values = existing;
+                }
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package com.gigs2go.money.calculator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * A MoneyProgram is an immutable, recorded chain of {@link MoneyCalculator}
+ * operations, which may be run against any number of amounts.<br/>
+ * Running a program against an amount gives exactly the Result a
+ * MoneyCalculator (with the same remainderScale and RoundingMode) would give
+ * after set() to the amount, the same operations, and result().
+ * </p>
+ * <p>
+ * For each CurrencyUnit, the program is compiled once into long arithmetic
+ * on the scaled value. The scale after every step depends only on the
+ * operations, so it is worked out at compile time. Any multiply is merged
+ * into the step which follows it (another multiply, an add, or a divide),
+ * since multiplication is exact - only a divide rounds, and nothing is merged
+ * across one. An amount which overflows a long at any step is recalculated
+ * using a MoneyCalculator, so the results are always identical.
+ * </p>
+ * <p>
+ * A MoneyProgram is thread-safe. Programs are built using a {@link Builder}:
+ * </p>
+ *
+ * <pre>
+ * MoneyProgram program = new MoneyProgram.Builder().multiply( rate ).divide( 365 ).add( fee ).build();
+ * MoneyCalculator.Result result = program.run( balance );
+ * </pre>
+ *
+ * @see MoneyCalculator
+ * @see BatchMoneyCalculator
+ */
+public final class MoneyProgram {
+    private static final int REMAINDER_SCALE = 3;
+
+    private final List<Operation> operations;
+    private final int remainderScale;
+    private final RoundingMode roundingMode;
+    /* The program compiled for the most recently used CurrencyUnit */
+    private volatile Compiled compiled = null;
+
+    MoneyProgram( List<Operation> operations, int remainderScale, RoundingMode roundingMode ) {
+        this.operations = Collections.unmodifiableList( new ArrayList<Operation>( operations ) );
+        this.remainderScale = Math.max( remainderScale, REMAINDER_SCALE );
+        this.roundingMode = roundingMode;
+    }
+
+    /**
+     * Runs the program against the given amount
+     *
+     * @param amount
+     *            The initial value
+     * @return the result
+     */
+    public MoneyCalculator.Result run ( Money amount ) {
+        return run( amount, new MoneyCalculator.Result() );
+    }
+
+    /**
+     * Runs the program against the given amount, refilling the given Result
+     * rather than creating a new one
+     *
+     * @param amount
+     *            The initial value
+     * @param result
+     *            The Result to refill
+     * @return the given result
+     */
+    public MoneyCalculator.Result run ( Money amount, MoneyCalculator.Result result ) {
+        Compiled program = compile( amount.getCurrencyUnit() );
+        if ( program.isCompact() ) {
+            try {
+                long value = program.evaluate( ScaledArithmetic.unscaledLong( amount ) );
+                long rounded = program.round( value );
+                result.set( amount.getCurrencyUnit(), rounded, program.remainder( value, rounded ), program.getRemainderScale() );
+                return result;
+            } catch ( ArithmeticException e ) {
+                // Overflow
+            }
+        }
+        return replay( new MoneyCalculator( remainderScale, roundingMode ), amount, result );
+    }
+
+    /**
+     * @return the number of recorded operations
+     */
+    public int size () {
+        return operations.size();
+    }
+
+    /**
+     * @return the remainderScale
+     */
+    public int getRemainderScale () {
+        return remainderScale;
+    }
+
+    /**
+     * @return the RoundingMode
+     */
+    public RoundingMode getRoundingMode () {
+        return roundingMode;
+    }
+
+    /**
+     * Runs the program step by step, using the given calculator
+     */
+    MoneyCalculator.Result replay ( MoneyCalculator calculator, Money amount, MoneyCalculator.Result result ) {
+        calculator.set( amount );
+        for ( Operation operation : operations ) {
+            operation.applyTo( calculator );
+        }
+        return calculator.result( result );
+    }
+
+    /**
+     * @return the program compiled for the given CurrencyUnit
+     */
+    Compiled compile ( CurrencyUnit currency ) {
+        Compiled program = compiled;
+        if ( program == null || !program.currency.equals( currency ) ) {
+            program = newCompiled( currency );
+            compiled = program;
+        }
+        return program;
+    }
+
+    /**
+     * @return the program newly compiled for the given CurrencyUnit, without
+     *         caching it
+     */
+    Compiled newCompiled ( CurrencyUnit currency ) {
+        return new Compiled( currency, remainderScale, roundingMode, operations );
+    }
+
+    /**
+     * Records a chain of operations, to build a {@link MoneyProgram}. A
+     * Builder is <b>NOT</b> thread-safe, but the programs it builds are.
+     */
+    public static final class Builder {
+        private final List<Operation> operations = new ArrayList<Operation>();
+        private final int remainderScale;
+        private final RoundingMode roundingMode;
+        private CurrencyUnit currency = null;
+
+        /**
+         * Create a new Builder with a default remainderScale of 3 and a
+         * default RoundingMode of 'HALF_UP'
+         */
+        public Builder() {
+            this( REMAINDER_SCALE, RoundingMode.HALF_UP );
+        }
+
+        /**
+         * Create a new Builder with a default remainderScale of 3 and the
+         * given RoundingMode
+         *
+         * @param roundingMode
+         */
+        public Builder( RoundingMode roundingMode ) {
+            this( REMAINDER_SCALE, roundingMode );
+        }
+
+        /**
+         * Create a new Builder with the given remainderScale and RoundingMode
+         *
+         * @param remainderScale
+         * @param roundingMode
+         */
+        public Builder( int remainderScale, RoundingMode roundingMode ) {
+            this.remainderScale = remainderScale;
+            this.roundingMode = roundingMode;
+        }
+
+        /**
+         * Add the provided amount to the current value. Every amount added
+         * or subtracted must have the same CurrencyUnit.
+         *
+         * @param amount
+         *            The amount to add
+         * @return The {@link Builder} for further operations
+         */
+        public Builder add ( Money amount ) {
+            return record( Operation.of( Operation.Type.ADD, checkCurrency( amount ) ) );
+        }
+
+        /**
+         * Subtract the provided amount from the current value. Every amount
+         * added or subtracted must have the same CurrencyUnit.
+         *
+         * @param amount
+         *            The amount to subtract
+         * @return The {@link Builder} for further operations
+         */
+        public Builder subtract ( Money amount ) {
+            return record( Operation.of( Operation.Type.SUBTRACT, checkCurrency( amount ) ) );
+        }
+
+        /**
+         * Multiplies the current value by the given long
+         *
+         * @param by
+         *            The value to multiply by
+         * @return The {@link Builder} for further operations
+         */
+        public Builder multiply ( long by ) {
+            return record( Operation.of( Operation.Type.MULTIPLY_LONG, by ) );
+        }
+
+        /**
+         * Multiplies the current value by the given double
+         *
+         * @param by
+         *            The value to multiply by
+         * @return The {@link Builder} for further operations
+         */
+        public Builder multiply ( double by ) {
+            return record( Operation.of( Operation.Type.MULTIPLY_DOUBLE, by ) );
+        }
+
+        /**
+         * Multiplies the current value by the given BigDecimal
+         *
+         * @param by
+         *            The value to multiply by
+         * @return The {@link Builder} for further operations
+         */
+        public Builder multiply ( BigDecimal by ) {
+            return record( Operation.of( Operation.Type.MULTIPLY_DECIMAL, by ) );
+        }
+
+        /**
+         * Multiplies the current value by the given Rate
+         *
+         * @param by
+         *            The Rate to multiply by
+         * @return The {@link Builder} for further operations
+         */
+        public Builder multiply ( Rate by ) {
+            return record( Operation.of( Operation.Type.MULTIPLY_DECIMAL, by.getValue() ) );
+        }
+
+        /**
+         * Divides the current value by the given long
+         *
+         * @param by
+         *            The value to divide by
+         * @return The {@link Builder} for further operations
+         */
+        public Builder divide ( long by ) {
+            return record( Operation.of( Operation.Type.DIVIDE_LONG, by ) );
+        }
+
+        /**
+         * Divides the current value by the given double
+         *
+         * @param by
+         *            The value to divide by
+         * @return The {@link Builder} for further operations
+         */
+        public Builder divide ( double by ) {
+            return record( Operation.of( Operation.Type.DIVIDE_DOUBLE, by ) );
+        }
+
+        /**
+         * Divides the current value by the given BigDecimal
+         *
+         * @param by
+         *            The value to divide by
+         * @return The {@link Builder} for further operations
+         */
+        public Builder divide ( BigDecimal by ) {
+            return record( Operation.of( Operation.Type.DIVIDE_DECIMAL, by ) );
+        }
+
+        /**
+         * Divides the current value by the given Rate
+         *
+         * @param by
+         *            The Rate to divide by
+         * @return The {@link Builder} for further operations
+         */
+        public Builder divide ( Rate by ) {
+            return record( Operation.of( Operation.Type.DIVIDE_DECIMAL, by.getValue() ) );
+        }
+
+        /**
+         * @return A {@link MoneyProgram} of the operations recorded so far.
+         *         The Builder may continue to be used.
+         */
+        public MoneyProgram build () {
+            return new MoneyProgram( operations, remainderScale, roundingMode );
+        }
+
+        private Builder record ( Operation operation ) {
+            operations.add( operation );
+            return this;
+        }
+
+        private Money checkCurrency ( Money amount ) {
+            if ( currency == null ) {
+                currency = amount.getCurrencyUnit();
+            } else if ( !currency.equals( amount.getCurrencyUnit() ) ) {
+                throw new CurrencyMismatchException( currency, amount.getCurrencyUnit() );
+            }
+            return amount;
+        }
+    }
+
+    /**
+     * The operations, compiled for one CurrencyUnit into steps on the
+     * unscaled value
+     */
+    static final class Compiled {
+        private static final int ADD = 0;
+        private static final int MULTIPLY = 1;
+        private static final int DIVIDE = 2;
+
+        private final CurrencyUnit currency;
+        private final int decimalPlaces;
+        private final int remainderScale;
+        private final RoundingMode roundingMode;
+        private final int[] kinds;
+        private final long[] multipliers;
+        private final long[] operands;
+        private final int stepCount;
+        private final int scale;
+        private final boolean compact;
+
+        Compiled( CurrencyUnit currency, int remainderScale, RoundingMode roundingMode, List<Operation> operations ) {
+            this.currency = currency;
+            this.decimalPlaces = currency.getDecimalPlaces();
+            // As MoneyCalculator.set()
+            this.remainderScale = Math.max( remainderScale, decimalPlaces + REMAINDER_SCALE );
+            this.roundingMode = roundingMode;
+            // Each operation needs at most two steps, plus a trailing multiply
+            int size = 2 * operations.size() + 1;
+            this.kinds = new int[size];
+            this.multipliers = new long[size];
+            this.operands = new long[size];
+            int steps = 0;
+            int currentScale = this.remainderScale;
+            boolean valid = decimalPlaces >= 0 && roundingMode != null;
+            try {
+                // A multiplier waiting to be merged into the next step
+                long pending = ScaledArithmetic.pow10( this.remainderScale - decimalPlaces );
+                for ( Operation operation : operations ) {
+                    long multiplier = 1L;
+                    long operand = 0L;
+                    int kind;
+                    switch ( operation.getType() ) {
+                    case ADD:
+                    case SUBTRACT:
+                        Money money = operation.getMoney();
+                        if ( !currency.equals( money.getCurrencyUnit() ) ) {
+                            // Left for MoneyCalculator to report
+                            valid = false;
+                        }
+                        operand = ScaledArithmetic.unscaledLong( money );
+                        if ( operand == 0L ) {
+                            continue;
+                        }
+                        if ( money.getScale() > currentScale ) {
+                            multiplier = ScaledArithmetic.pow10( money.getScale() - currentScale );
+                            currentScale = money.getScale();
+                        } else {
+                            operand = ScaledArithmetic.multiplyPow10( operand, currentScale - money.getScale() );
+                        }
+                        if ( operation.getType() == Operation.Type.SUBTRACT ) {
+                            operand = Math.negateExact( operand );
+                        }
+                        kind = ADD;
+                        break;
+                    case MULTIPLY_LONG:
+                        if ( operation.getLongValue() == 1L ) {
+                            continue;
+                        }
+                        multiplier = operation.getLongValue();
+                        kind = MULTIPLY;
+                        break;
+                    case MULTIPLY_DOUBLE:
+                    case MULTIPLY_DECIMAL:
+                        BigDecimal factor = decimalOperand( operation );
+                        if ( factor == null ) {
+                            continue;
+                        }
+                        multiplier = ScaledArithmetic.unscaledLong( factor );
+                        currentScale = Math.addExact( currentScale, factor.scale() );
+                        kind = MULTIPLY;
+                        break;
+                    case DIVIDE_LONG:
+                        if ( operation.getLongValue() == 1L ) {
+                            continue;
+                        }
+                        operand = operation.getLongValue();
+                        kind = DIVIDE;
+                        break;
+                    default:
+                        BigDecimal divisor = decimalOperand( operation );
+                        if ( divisor == null ) {
+                            continue;
+                        }
+                        operand = ScaledArithmetic.unscaledLong( divisor );
+                        if ( divisor.scale() >= 0 ) {
+                            multiplier = ScaledArithmetic.pow10( divisor.scale() );
+                        } else {
+                            operand = ScaledArithmetic.multiplyPow10( operand, -divisor.scale() );
+                        }
+                        kind = DIVIDE;
+                        break;
+                    }
+                    if ( kind == MULTIPLY ) {
+                        try {
+                            pending = Math.multiplyExact( pending, multiplier );
+                            continue;
+                        } catch ( ArithmeticException e ) {
+                            // Too big to merge, so it becomes a step of its own
+                            steps = step( steps, MULTIPLY, pending, 0L );
+                            pending = multiplier;
+                            continue;
+                        }
+                    }
+                    try {
+                        multiplier = Math.multiplyExact( pending, multiplier );
+                    } catch ( ArithmeticException e ) {
+                        steps = step( steps, MULTIPLY, pending, 0L );
+                    }
+                    steps = step( steps, kind, multiplier, operand );
+                    pending = 1L;
+                }
+                if ( pending != 1L ) {
+                    steps = step( steps, MULTIPLY, pending, 0L );
+                }
+            } catch ( ArithmeticException e ) {
+                // An operand which does not fit in a long
+                valid = false;
+            }
+            this.scale = currentScale;
+            this.compact = valid;
+            this.stepCount = steps;
+        }
+
+        private int step ( int index, int kind, long multiplier, long operand ) {
+            kinds[index] = kind;
+            multipliers[index] = multiplier;
+            operands[index] = operand;
+            return index + 1;
+        }
+
+        /**
+         * @return the BigDecimal a double or BigDecimal operation multiplies
+         *         or divides by, or null if BigMoney would treat it as one
+         */
+        private static BigDecimal decimalOperand ( Operation operation ) {
+            if ( operation.getType() == Operation.Type.MULTIPLY_DOUBLE || operation.getType() == Operation.Type.DIVIDE_DOUBLE ) {
+                return operation.getDoubleValue() == 1.0 ? null : BigDecimal.valueOf( operation.getDoubleValue() );
+            }
+            return operation.getDecimalValue().compareTo( BigDecimal.ONE ) == 0 ? null : operation.getDecimalValue();
+        }
+
+        /**
+         * @return false if no amount can be calculated using longs
+         */
+        boolean isCompact () {
+            return compact;
+        }
+
+        /**
+         * @return the scale of the remainders
+         */
+        int getRemainderScale () {
+            return remainderScale;
+        }
+
+        /**
+         * @param amount
+         *            The amount, in minor units
+         * @return the unscaled value after every step
+         * @throws ArithmeticException
+         *             On overflow, or a genuine error (which replaying the
+         *             operations will report)
+         */
+        long evaluate ( long amount ) {
+            long value = amount;
+            for ( int step = 0; step < stepCount; step++ ) {
+                switch ( kinds[step] ) {
+                case ADD:
+                    value = Math.addExact( Math.multiplyExact( value, multipliers[step] ), operands[step] );
+                    break;
+                case MULTIPLY:
+                    value = Math.multiplyExact( value, multipliers[step] );
+                    break;
+                default:
+                    value = ScaledArithmetic.divide( Math.multiplyExact( value, multipliers[step] ), operands[step], roundingMode );
+                    break;
+                }
+            }
+            return value;
+        }
+
+        /**
+         * @return the evaluated value, rounded to minor units
+         */
+        long round ( long value ) {
+            return ScaledArithmetic.rescale( value, scale, decimalPlaces, roundingMode );
+        }
+
+        /**
+         * @return the unscaled remainder of the evaluated value, at the
+         *         remainderScale
+         */
+        long remainder ( long value, long rounded ) {
+            return ScaledArithmetic.remainder( value, scale, rounded, decimalPlaces, remainderScale, roundingMode );
+        }
+    }
+}
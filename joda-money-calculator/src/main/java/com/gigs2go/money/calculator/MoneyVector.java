@@ -0,0 +1,389 @@
+package com.gigs2go.money.calculator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * A fixed-size, columnar vector of amounts in a single CurrencyUnit.<br/>
+ * Each amount is held as a long number of minor units, so a vector costs
+ * about 8 bytes per amount rather than a Money, a BigDecimal and a BigInteger
+ * each. The rare amount which does not fit a long is held (as a BigDecimal)
+ * in a side table instead.
+ * </p>
+ * <p>
+ * Scaling runs through a {@link BatchMoneyCalculator}, and allocating runs
+ * through an {@link Allocator}, so the results are exactly those of the
+ * equivalent {@link MoneyCalculator} and Allocator calls on each amount.
+ * </p>
+ * <p>
+ * A MoneyVector is <b>NOT</b> thread-safe.
+ * </p>
+ */
+public class MoneyVector {
+    /* Marks an amount held in the overflow table */
+    private static final long OVERFLOW = Long.MIN_VALUE;
+
+    private final CurrencyUnit currency;
+    private final long[] minorUnits;
+    private final Map<Integer, BigDecimal> overflow = new HashMap<Integer, BigDecimal>();
+
+    /**
+     * Create a new MoneyVector of 'size' zero amounts
+     *
+     * @param currency
+     *            The CurrencyUnit of every amount
+     * @param size
+     *            The number of amounts
+     */
+    public MoneyVector( CurrencyUnit currency, int size ) {
+        if ( currency == null ) {
+            throw new NullPointerException( "CurrencyUnit must not be null" );
+        }
+        if ( size < 0 ) {
+            throw new IllegalArgumentException( "size must not be negative : " + size );
+        }
+        this.currency = currency;
+        this.minorUnits = new long[size];
+    }
+
+    /**
+     * @param currency
+     *            The CurrencyUnit of every amount
+     * @param minorUnits
+     *            The amounts, in minor units. The array is copied.
+     * @return a new MoneyVector holding the given amounts
+     */
+    public static MoneyVector of ( CurrencyUnit currency, long... minorUnits ) {
+        MoneyVector result = new MoneyVector( currency, minorUnits.length );
+        for ( int i = 0; i < minorUnits.length; i++ ) {
+            result.set( i, minorUnits[i] );
+        }
+        return result;
+    }
+
+    /**
+     * @param currency
+     *            The CurrencyUnit of every amount
+     * @param amounts
+     *            The amounts
+     * @return a new MoneyVector holding the given amounts
+     * @throws CurrencyMismatchException
+     *             If any amount is not in the given currency
+     */
+    public static MoneyVector of ( CurrencyUnit currency, Money... amounts ) {
+        MoneyVector result = new MoneyVector( currency, amounts.length );
+        for ( int i = 0; i < amounts.length; i++ ) {
+            result.set( i, amounts[i] );
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of amounts
+     */
+    public int size () {
+        return minorUnits.length;
+    }
+
+    /**
+     * @return the CurrencyUnit of every amount
+     */
+    public CurrencyUnit getCurrencyUnit () {
+        return currency;
+    }
+
+    /**
+     * @return the number of amounts which do not fit a long, and are held in
+     *         the side table
+     */
+    public int getOverflowCount () {
+        return overflow.size();
+    }
+
+    /**
+     * @param index
+     *            The index of the amount
+     * @return true if the amount does not fit a long
+     */
+    public boolean isOverflow ( int index ) {
+        return minorUnits[index] == OVERFLOW;
+    }
+
+    /**
+     * @param index
+     *            The index of the amount
+     * @return the amount
+     */
+    public Money get ( int index ) {
+        long value = minorUnits[index];
+        if ( value == OVERFLOW ) {
+            return Money.of( currency, overflow.get( index ) );
+        }
+        return MoneyInterner.ofMinor( currency, value );
+    }
+
+    /**
+     * @param index
+     *            The index of the amount
+     * @return the amount, in minor units
+     * @throws ArithmeticException
+     *             If the amount does not fit a long
+     */
+    public long getMinorUnits ( int index ) {
+        long value = minorUnits[index];
+        if ( value == OVERFLOW ) {
+            return overflow.get( index ).movePointRight( currency.getDecimalPlaces() ).longValueExact();
+        }
+        return value;
+    }
+
+    /**
+     * @param index
+     *            The index of the amount
+     * @param amount
+     *            The new amount
+     * @return The {@link MoneyVector} for further operations
+     * @throws CurrencyMismatchException
+     *             If the amount is not in this vector's currency
+     */
+    public MoneyVector set ( int index, Money amount ) {
+        if ( !currency.equals( amount.getCurrencyUnit() ) ) {
+            throw new CurrencyMismatchException( currency, amount.getCurrencyUnit() );
+        }
+        set( index, amount.getAmount() );
+        return this;
+    }
+
+    /**
+     * @param index
+     *            The index of the amount
+     * @param minorUnits
+     *            The new amount, in minor units
+     * @return The {@link MoneyVector} for further operations
+     */
+    public MoneyVector set ( int index, long minorUnits ) {
+        if ( minorUnits == OVERFLOW ) {
+            set( index, BigDecimal.valueOf( minorUnits, currency.getDecimalPlaces() ) );
+        } else {
+            this.minorUnits[index] = minorUnits;
+            overflow.remove( index );
+        }
+        return this;
+    }
+
+    /**
+     * @return the sum of every amount
+     */
+    public Money sum () {
+        long sum = 0L;
+        BigDecimal big = null;
+        for ( int i = 0; i < minorUnits.length; i++ ) {
+            long value = minorUnits[i];
+            if ( value == OVERFLOW ) {
+                continue;
+            }
+            long updated = sum + value;
+            if ( ((sum ^ updated) & (value ^ updated)) < 0 ) {
+                big = add( big, BigDecimal.valueOf( sum, currency.getDecimalPlaces() ) );
+                updated = value;
+            }
+            sum = updated;
+        }
+        for ( BigDecimal value : overflow.values() ) {
+            big = add( big, value );
+        }
+        if ( big == null ) {
+            return MoneyInterner.ofMinor( currency, sum );
+        }
+        return Money.of( currency, big.add( BigDecimal.valueOf( sum, currency.getDecimalPlaces() ) ) );
+    }
+
+    /**
+     * Adds each amount of 'other' to the amount at the same index
+     *
+     * @param other
+     *            A vector of the same size and currency
+     * @return The {@link MoneyVector} for further operations
+     */
+    public MoneyVector add ( MoneyVector other ) {
+        checkCompatible( other );
+        for ( int i = 0; i < minorUnits.length; i++ ) {
+            long value = minorUnits[i];
+            long by = other.minorUnits[i];
+            long updated = value + by;
+            if ( value == OVERFLOW || by == OVERFLOW || updated == OVERFLOW || ((value ^ updated) & (by ^ updated)) < 0 ) {
+                set( i, amount( i ).add( other.amount( i ) ) );
+            } else {
+                minorUnits[i] = updated;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Subtracts each amount of 'other' from the amount at the same index
+     *
+     * @param other
+     *            A vector of the same size and currency
+     * @return The {@link MoneyVector} for further operations
+     */
+    public MoneyVector subtract ( MoneyVector other ) {
+        checkCompatible( other );
+        for ( int i = 0; i < minorUnits.length; i++ ) {
+            long value = minorUnits[i];
+            long by = other.minorUnits[i];
+            long updated = value - by;
+            if ( value == OVERFLOW || by == OVERFLOW || updated == OVERFLOW || ((value ^ by) & (value ^ updated)) < 0 ) {
+                set( i, amount( i ).subtract( other.amount( i ) ) );
+            } else {
+                minorUnits[i] = updated;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Multiplies every amount by 'factor', rounding each exactly as
+     * {@link MoneyCalculator#result()} would
+     *
+     * @param factor
+     *            The factor to multiply by
+     * @param roundingMode
+     *            The RoundingMode for each result
+     * @return A new MoneyVector holding the scaled amounts
+     */
+    public MoneyVector scale ( BigDecimal factor, RoundingMode roundingMode ) {
+        return calculate( new BatchMoneyCalculator( currency, roundingMode ).multiply( factor ) );
+    }
+
+    /**
+     * Applies the operations of the given {@link BatchMoneyCalculator} to
+     * every amount
+     *
+     * @param calculator
+     *            The calculator, for this vector's currency
+     * @return A new MoneyVector holding each rounded value
+     */
+    public MoneyVector calculate ( BatchMoneyCalculator calculator ) {
+        if ( !currency.equals( calculator.getCurrencyUnit() ) ) {
+            throw new CurrencyMismatchException( currency, calculator.getCurrencyUnit() );
+        }
+        MoneyVector result = new MoneyVector( currency, minorUnits.length );
+        if ( overflow.isEmpty() ) {
+            try {
+                calculator.calculate( minorUnits, result.minorUnits, null );
+                // OVERFLOW may itself be a result
+                for ( int i = 0; i < result.minorUnits.length; i++ ) {
+                    if ( result.minorUnits[i] == OVERFLOW ) {
+                        result.set( i, OVERFLOW );
+                    }
+                }
+                return result;
+            } catch ( ArithmeticException e ) {
+                // A result does not fit a long, so calculate each amount
+            }
+        }
+        MoneyProgram program = calculator.toProgram();
+        for ( int i = 0; i < minorUnits.length; i++ ) {
+            result.set( i, program.run( get( i ) ).getValue() );
+        }
+        return result;
+    }
+
+    /**
+     * Allocates the amount at 'index' across 'len' divisions
+     *
+     * @param index
+     *            The index of the amount
+     * @param allocator
+     *            The {@link Allocator} to use
+     * @param len
+     *            The number of divisions to use
+     * @return A new MoneyVector holding the allocated amounts, as specified
+     *         by the allocator's strategy
+     */
+    public MoneyVector allocate ( int index, Allocator allocator, int len ) {
+        if ( isOverflow( index ) ) {
+            return of( currency, allocator.allocate( get( index ), len ) );
+        }
+        return allocate( currency, minorUnits[index], allocator, len );
+    }
+
+    /**
+     * Allocates an amount of minor units straight into a new vector of the
+     * allocator's {@link Allocator#size(int)}, without creating a Money
+     *
+     * @throws IllegalStateException
+     *             If the allocator does not write as many elements as its
+     *             size() promised
+     */
+    static MoneyVector allocate ( CurrencyUnit currency, long minorUnits, Allocator allocator, int len ) {
+        if ( !(len > 0) ) {
+            throw new IllegalArgumentException( "len must be greater than zero : " + len );
+        }
+        MoneyVector result = new MoneyVector( currency, allocator.size( len ) );
+        int count = allocator.allocate( currency, minorUnits, len, result.minorUnits, 0 );
+        if ( count != result.minorUnits.length ) {
+            throw new IllegalStateException( "Allocator wrote " + count + " elements, but its size() is " + result.minorUnits.length );
+        }
+        // OVERFLOW may itself be a division
+        for ( int i = 0; i < count; i++ ) {
+            if ( result.minorUnits[i] == OVERFLOW ) {
+                result.set( i, OVERFLOW );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return every amount as Money
+     */
+    public Money[] toMoney () {
+        Money[] result = new Money[minorUnits.length];
+        for ( int i = 0; i < result.length; i++ ) {
+            result[i] = get( i );
+        }
+        return result;
+    }
+
+    private void set ( int index, BigDecimal amount ) {
+        BigDecimal scaled = amount.setScale( currency.getDecimalPlaces() );
+        try {
+            long value = ScaledArithmetic.unscaledLong( scaled );
+            if ( value != OVERFLOW ) {
+                minorUnits[index] = value;
+                overflow.remove( index );
+                return;
+            }
+        } catch ( ArithmeticException e ) {
+            // Does not fit a long
+        }
+        minorUnits[index] = OVERFLOW;
+        overflow.put( index, scaled );
+    }
+
+    private BigDecimal amount ( int index ) {
+        long value = minorUnits[index];
+        return value == OVERFLOW ? overflow.get( index ) : BigDecimal.valueOf( value, currency.getDecimalPlaces() );
+    }
+
+    private void checkCompatible ( MoneyVector other ) {
+        if ( !currency.equals( other.currency ) ) {
+            throw new CurrencyMismatchException( currency, other.currency );
+        }
+        if ( minorUnits.length != other.minorUnits.length ) {
+            throw new IllegalArgumentException( "Vectors must be the same size : " + minorUnits.length + " != " + other.minorUnits.length );
+        }
+    }
+
+    private static BigDecimal add ( BigDecimal total, BigDecimal value ) {
+        return total == null ? value : total.add( value );
+    }
+}
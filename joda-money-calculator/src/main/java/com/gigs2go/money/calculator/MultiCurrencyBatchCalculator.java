@@ -0,0 +1,219 @@
+package com.gigs2go.money.calculator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * A MultiCurrencyBatchCalculator runs a {@link MoneyProgram} against a batch
+ * of amounts in any mix of CurrencyUnits.<br/>
+ * Each CurrencyUnit's decimal places, scales and powers of ten are worked out
+ * once, when the program is first compiled for it, and cached for the life of
+ * the calculator. The amounts are grouped by CurrencyUnit, and each group is
+ * run through its compiled program in a tight loop. The results are written
+ * back in input order.
+ * </p>
+ * <p>
+ * Each amount gives exactly the result the program (or a MoneyCalculator)
+ * would give for it alone. Note that a program which adds or subtracts Money
+ * can only be run against amounts of that CurrencyUnit - any other will
+ * result in a CurrencyMismatchException.
+ * </p>
+ * <p>
+ * A MultiCurrencyBatchCalculator is thread-safe.
+ * </p>
+ *
+ * @see MoneyProgram
+ * @see BatchMoneyCalculator
+ */
+public class MultiCurrencyBatchCalculator {
+    private final MoneyProgram program;
+    private final ConcurrentMap<CurrencyUnit, MoneyProgram.Compiled> compiled = new ConcurrentHashMap<CurrencyUnit, MoneyProgram.Compiled>();
+
+    /**
+     * Create a new MultiCurrencyBatchCalculator running the given program
+     *
+     * @param program
+     *            The {@link MoneyProgram} to run
+     */
+    public MultiCurrencyBatchCalculator( MoneyProgram program ) {
+        if ( program == null ) {
+            throw new NullPointerException( "MoneyProgram must not be null" );
+        }
+        this.program = program;
+    }
+
+    /**
+     * Runs the program against every amount
+     *
+     * @param amounts
+     *            The amounts, in any CurrencyUnits
+     * @return One Result per amount, in input order
+     */
+    public MoneyCalculator.Result[] calculate ( Money[] amounts ) {
+        long[] values = new long[amounts.length];
+        long[] remainders = new long[amounts.length];
+        MoneyCalculator.Result[] results = new MoneyCalculator.Result[amounts.length];
+        int[] order = group( amounts );
+        MoneyCalculator fallback = null;
+        CurrencyUnit currency = null;
+        MoneyProgram.Compiled group = null;
+        for ( int i = 0; i < order.length; i++ ) {
+            int index = order[i];
+            Money amount = amounts[index];
+            if ( !amount.getCurrencyUnit().equals( currency ) ) {
+                currency = amount.getCurrencyUnit();
+                group = compile( currency );
+            }
+            MoneyCalculator.Result result = new MoneyCalculator.Result();
+            if ( calculate( group, amount, index, values, remainders ) ) {
+                result.set( amount.getCurrencyUnit(), values[index], remainders[index], group.getRemainderScale() );
+            } else {
+                if ( fallback == null ) {
+                    fallback = new MoneyCalculator( program.getRemainderScale(), program.getRoundingMode() );
+                }
+                program.replay( fallback.reset(), amount, result );
+            }
+            results[index] = result;
+        }
+        return results;
+    }
+
+    /**
+     * Runs the program against every amount, writing the results as
+     * primitives
+     *
+     * @param amounts
+     *            The amounts, in any CurrencyUnits
+     * @param values
+     *            Receives each rounded value, in minor units of its own
+     *            CurrencyUnit
+     * @param remainders
+     *            Receives each unscaled remainder, at the
+     *            {@link #getRemainderScale(CurrencyUnit)} of its own
+     *            CurrencyUnit. May be null if the remainders are not needed.
+     * @throws ArithmeticException
+     *             If a rounded value or remainder does not fit in a long
+     */
+    public void calculate ( Money[] amounts, long[] values, long[] remainders ) {
+        if ( values.length < amounts.length ) {
+            throw new IllegalArgumentException( "values must have room for " + amounts.length + " elements : " + values.length );
+        }
+        if ( remainders != null && remainders.length < amounts.length ) {
+            throw new IllegalArgumentException( "remainders must have room for " + amounts.length + " elements : " + remainders.length );
+        }
+        int[] order = group( amounts );
+        MoneyCalculator fallback = null;
+        MoneyCalculator.Result result = null;
+        CurrencyUnit currency = null;
+        MoneyProgram.Compiled group = null;
+        for ( int i = 0; i < order.length; i++ ) {
+            int index = order[i];
+            Money amount = amounts[index];
+            if ( !amount.getCurrencyUnit().equals( currency ) ) {
+                currency = amount.getCurrencyUnit();
+                group = compile( currency );
+            }
+            if ( !calculate( group, amount, index, values, remainders ) ) {
+                if ( fallback == null ) {
+                    fallback = new MoneyCalculator( program.getRemainderScale(), program.getRoundingMode() );
+                    result = new MoneyCalculator.Result();
+                }
+                program.replay( fallback.reset(), amount, result );
+                values[index] = result.getValueMinorUnits();
+                if ( remainders != null ) {
+                    remainders[index] = result.getRemainderUnscaled();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param currency
+     *            The CurrencyUnit
+     * @return the scale of the remainders for amounts in the given
+     *         CurrencyUnit
+     */
+    public int getRemainderScale ( CurrencyUnit currency ) {
+        return compile( currency ).getRemainderScale();
+    }
+
+    /**
+     * @return the program
+     */
+    public MoneyProgram getProgram () {
+        return program;
+    }
+
+    private MoneyProgram.Compiled compile ( CurrencyUnit currency ) {
+        MoneyProgram.Compiled group = compiled.get( currency );
+        if ( group == null ) {
+            group = program.newCompiled( currency );
+            MoneyProgram.Compiled existing = compiled.putIfAbsent( currency, group );
+            if ( existing != null ) {
+                group = existing;
+            }
+        }
+        return group;
+    }
+
+    /**
+     * @return the indices of the amounts, grouped by CurrencyUnit (a stable
+     *         counting sort, in order of each CurrencyUnit's first
+     *         appearance)
+     */
+    private static int[] group ( Money[] amounts ) {
+        Map<CurrencyUnit, Integer> groups = new HashMap<CurrencyUnit, Integer>();
+        int[] groupOf = new int[amounts.length];
+        int[] counts = new int[Math.min( amounts.length, 16 ) + 1];
+        for ( int i = 0; i < amounts.length; i++ ) {
+            CurrencyUnit currency = amounts[i].getCurrencyUnit();
+            Integer id = groups.get( currency );
+            if ( id == null ) {
+                id = groups.size();
+                groups.put( currency, id );
+                if ( id + 1 >= counts.length ) {
+                    int[] larger = new int[counts.length * 2];
+                    System.arraycopy( counts, 0, larger, 0, counts.length );
+                    counts = larger;
+                }
+            }
+            groupOf[i] = id;
+            counts[id + 1]++;
+        }
+        // counts[g] becomes the start of group g
+        for ( int g = 1; g < counts.length; g++ ) {
+            counts[g] += counts[g - 1];
+        }
+        int[] order = new int[amounts.length];
+        for ( int i = 0; i < amounts.length; i++ ) {
+            order[counts[groupOf[i]]++] = i;
+        }
+        return order;
+    }
+
+    /**
+     * @return false if the amount could not be calculated using longs
+     */
+    private static boolean calculate ( MoneyProgram.Compiled group, Money amount, int index, long[] values, long[] remainders ) {
+        if ( !group.isCompact() ) {
+            return false;
+        }
+        try {
+            long value = group.evaluate( ScaledArithmetic.unscaledLong( amount ) );
+            long rounded = group.round( value );
+            if ( remainders != null ) {
+                remainders[index] = group.remainder( value, rounded );
+            }
+            values[index] = rounded;
+            return true;
+        } catch ( ArithmeticException e ) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.gigs2go.money.calculator;
+
+import java.math.BigDecimal;
+
+import org.joda.money.Money;
+
+/**
+ * A single recorded {@link MoneyCalculator} operation, which can be replayed
+ * against any calculator.
+ */
+final class Operation {
+    enum Type {
+        ADD, SUBTRACT, MULTIPLY_LONG, MULTIPLY_DOUBLE, MULTIPLY_DECIMAL, DIVIDE_LONG, DIVIDE_DOUBLE, DIVIDE_DECIMAL
+    }
+
+    private final Type type;
+    private final Money money;
+    private final long longValue;
+    private final double doubleValue;
+    private final BigDecimal decimalValue;
+
+    private Operation( Type type, Money money, long longValue, double doubleValue, BigDecimal decimalValue ) {
+        this.type = type;
+        this.money = money;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+        this.decimalValue = decimalValue;
+    }
+
+    static Operation of ( Type type, Money money ) {
+        if ( money == null ) {
+            throw new NullPointerException( "Money must not be null" );
+        }
+        return new Operation( type, money, 0L, 0.0, null );
+    }
+
+    static Operation of ( Type type, long value ) {
+        return new Operation( type, null, value, 0.0, null );
+    }
+
+    static Operation of ( Type type, double value ) {
+        return new Operation( type, null, 0L, value, null );
+    }
+
+    static Operation of ( Type type, BigDecimal value ) {
+        if ( value == null ) {
+            throw new NullPointerException( "Value must not be null" );
+        }
+        return new Operation( type, null, 0L, 0.0, value );
+    }
+
+    /**
+     * Replays this operation against the given calculator
+     */
+    void applyTo ( MoneyCalculator calculator ) {
+        switch ( type ) {
+        case ADD:
+            calculator.add( money );
+            break;
+        case SUBTRACT:
+            calculator.subtract( money );
+            break;
+        case MULTIPLY_LONG:
+            calculator.multiply( longValue );
+            break;
+        case MULTIPLY_DOUBLE:
+            calculator.multiply( doubleValue );
+            break;
+        case MULTIPLY_DECIMAL:
+            calculator.multiply( decimalValue );
+            break;
+        case DIVIDE_LONG:
+            calculator.divide( longValue );
+            break;
+        case DIVIDE_DOUBLE:
+            calculator.divide( doubleValue );
+            break;
+        default:
+            calculator.divide( decimalValue );
+            break;
+        }
+    }
+
+    Type getType () {
+        return type;
+    }
+
+    Money getMoney () {
+        return money;
+    }
+
+    long getLongValue () {
+        return longValue;
+    }
+
+    double getDoubleValue () {
+        return doubleValue;
+    }
+
+    BigDecimal getDecimalValue () {
+        return decimalValue;
+    }
+}
@@ -0,0 +1,156 @@
+package com.gigs2go.money.calculator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * Describes how a calculation over a range of indices may be split across a
+ * {@link ForkJoinPool}.<br/>
+ * A range is only split while it holds more than 'threshold' indices, so
+ * small inputs always run on the calling thread. Every index is calculated
+ * exactly as it would be sequentially, so results do not depend on how (or
+ * whether) the range was split.
+ * </p>
+ * <p>
+ * A Parallelism is immutable and may be shared.
+ * </p>
+ *
+ * @see BatchMoneyCalculator
+ * @see Allocation
+ */
+public final class Parallelism {
+    /**
+     * The default threshold - ranges of this size, or smaller, are not split
+     */
+    public static final int DEFAULT_THRESHOLD = 8192;
+
+    private static final Parallelism SEQUENTIAL = new Parallelism( null, Integer.MAX_VALUE );
+
+    /**
+     * Work on a sub-range of indices
+     */
+    public interface RangeAction {
+        /**
+         * @param from
+         *            The first index, inclusive
+         * @param to
+         *            The last index, exclusive
+         */
+        void apply ( int from, int to );
+    }
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    private Parallelism( ForkJoinPool pool, int threshold ) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return A Parallelism which always runs on the calling thread
+     */
+    public static Parallelism sequential () {
+        return SEQUENTIAL;
+    }
+
+    /**
+     * @return A Parallelism using the common ForkJoinPool and the
+     *         {@link #DEFAULT_THRESHOLD}
+     */
+    public static Parallelism common () {
+        return of( ForkJoinPool.commonPool(), DEFAULT_THRESHOLD );
+    }
+
+    /**
+     * @param pool
+     *            The ForkJoinPool to run on
+     * @param threshold
+     *            The largest range which is not split
+     * @return A Parallelism using the given pool and threshold
+     */
+    public static Parallelism of ( ForkJoinPool pool, int threshold ) {
+        if ( pool == null ) {
+            throw new NullPointerException( "ForkJoinPool must not be null" );
+        }
+        if ( !(threshold > 0) ) {
+            throw new IllegalArgumentException( "threshold must be greater than zero : " + threshold );
+        }
+        return new Parallelism( pool, threshold );
+    }
+
+    /**
+     * @return the pool, or null if sequential
+     */
+    public ForkJoinPool getPool () {
+        return pool;
+    }
+
+    /**
+     * @return the threshold
+     */
+    public int getThreshold () {
+        return threshold;
+    }
+
+    /**
+     * Applies the action to the whole range, splitting it across the pool if
+     * it is larger than the threshold. Any RuntimeException thrown by the
+     * action is re-thrown to the caller once the range is complete.
+     *
+     * @param from
+     *            The first index, inclusive
+     * @param to
+     *            The last index, exclusive
+     * @param action
+     *            The action to apply to each sub-range
+     */
+    public void forRange ( int from, int to, RangeAction action ) {
+        if ( pool == null || to - from <= threshold ) {
+            if ( from < to ) {
+                action.apply( from, to );
+            }
+            return;
+        }
+        RangeTask task = new RangeTask( from, to, threshold, action );
+        if ( ForkJoinTask.getPool() == pool ) {
+            // Already running in the pool, so fork from here
+            task.invoke();
+        } else {
+            pool.invoke( task );
+        }
+    }
+
+    @Override
+    public String toString () {
+        return pool == null ? "Parallelism[sequential]" : "Parallelism[" + pool.getParallelism() + ", " + threshold + "]";
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final RangeAction action;
+
+        RangeTask( int from, int to, int threshold, RangeAction action ) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute () {
+            if ( to - from <= threshold ) {
+                action.apply( from, to );
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll( new RangeTask( from, middle, threshold, action ), new RangeTask( middle, to, threshold, action ) );
+        }
+    }
+}
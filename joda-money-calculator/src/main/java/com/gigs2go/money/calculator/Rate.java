@@ -0,0 +1,105 @@
+package com.gigs2go.money.calculator;
+
+import java.math.BigDecimal;
+
+/**
+ * <p>
+ * An immutable factor (an FX or interest rate, say) to multiply or divide by,
+ * converted once rather than on every use.<br/>
+ * A double is converted exactly as {@link BigDecimal#valueOf(double)} would,
+ * so multiplying or dividing by a Rate gives the same results as multiplying
+ * or dividing by the double (or BigDecimal) it was created from. Whilst the
+ * unscaled value fits a long, the calculators apply it using long arithmetic
+ * without converting anything.
+ * </p>
+ *
+ * @see MoneyCalculator#multiply(Rate)
+ * @see MoneyCalculator#divide(Rate)
+ */
+public final class Rate {
+    private final BigDecimal value;
+    private final boolean one;
+    private final boolean compact;
+    private final long unscaledValue;
+
+    private Rate( BigDecimal value ) {
+        this.value = value;
+        this.one = value.compareTo( BigDecimal.ONE ) == 0;
+        boolean fits = value.unscaledValue().bitLength() < 64;
+        this.compact = fits;
+        this.unscaledValue = (fits ? value.unscaledValue().longValue() : 0L);
+    }
+
+    /**
+     * @param value
+     *            The factor
+     * @return a Rate equal to BigDecimal.valueOf( value )
+     * @throws NumberFormatException
+     *             If the value is infinite or NaN
+     */
+    public static Rate of ( double value ) {
+        return new Rate( BigDecimal.valueOf( value ) );
+    }
+
+    /**
+     * @param value
+     *            The factor
+     * @return a Rate equal to the given value
+     */
+    public static Rate of ( BigDecimal value ) {
+        if ( value == null ) {
+            throw new NullPointerException( "Rate must not be null" );
+        }
+        return new Rate( value );
+    }
+
+    /**
+     * @return the factor
+     */
+    public BigDecimal getValue () {
+        return value;
+    }
+
+    /**
+     * @return true if the factor is one (at any scale)
+     */
+    boolean isOne () {
+        return one;
+    }
+
+    /**
+     * @return true if the unscaled value fits a long
+     */
+    boolean isCompact () {
+        return compact;
+    }
+
+    /**
+     * @return the unscaled value, if {@link #isCompact()}
+     */
+    long getUnscaledValue () {
+        return unscaledValue;
+    }
+
+    /**
+     * @return the scale of the factor
+     */
+    int getScale () {
+        return value.scale();
+    }
+
+    @Override
+    public boolean equals ( Object other ) {
+        return other instanceof Rate && value.equals( ((Rate)other).value );
+    }
+
+    @Override
+    public int hashCode () {
+        return value.hashCode();
+    }
+
+    @Override
+    public String toString () {
+        return value.toString();
+    }
+}
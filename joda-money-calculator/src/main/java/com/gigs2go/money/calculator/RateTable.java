@@ -0,0 +1,180 @@
+package com.gigs2go.money.calculator;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.money.CurrencyUnit;
+
+/**
+ * <p>
+ * An immutable table of exchange rates between pairs of currencies, built
+ * using a {@link RateTable.Builder}.<br/>
+ * Each rate converts an amount in the 'from' currency to the 'to' currency
+ * (to = from * rate). Alongside it, each pair holds the same rate scaled by
+ * the difference in decimal places, which converts minor units directly, so
+ * neither is calculated when converting. Both are held as a {@link Rate}.
+ * </p>
+ * <p>
+ * No rate is implied: converting back again needs its own entry. Every
+ * currency converts to itself at a rate of one.
+ * </p>
+ *
+ * @see CurrencyConverter
+ */
+public final class RateTable {
+    private static final Entry IDENTITY = new Entry( Rate.of( BigDecimal.ONE ), Rate.of( BigDecimal.ONE ) );
+
+    private final Map<CurrencyUnit, Map<CurrencyUnit, Entry>> entries;
+    private final int size;
+
+    private RateTable( Map<CurrencyUnit, Map<CurrencyUnit, Entry>> entries, int size ) {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    /**
+     * @param from
+     *            The currency to convert from
+     * @param to
+     *            The currency to convert to
+     * @return the Rate which converts an amount in 'from' to 'to'
+     * @throws IllegalArgumentException
+     *             If the table has no rate for the pair
+     */
+    public Rate getRate ( CurrencyUnit from, CurrencyUnit to ) {
+        return entry( from, to ).rate;
+    }
+
+    /**
+     * @param from
+     *            The currency to convert from
+     * @param to
+     *            The currency to convert to
+     * @return the Rate which converts minor units of 'from' to minor units of
+     *         'to'
+     * @throws IllegalArgumentException
+     *             If the table has no rate for the pair
+     */
+    public Rate getMinorUnitRate ( CurrencyUnit from, CurrencyUnit to ) {
+        return entry( from, to ).minorUnitRate;
+    }
+
+    /**
+     * @param from
+     *            The currency to convert from
+     * @param to
+     *            The currency to convert to
+     * @return true if the table can convert from 'from' to 'to'
+     */
+    public boolean contains ( CurrencyUnit from, CurrencyUnit to ) {
+        if ( from.equals( to ) ) {
+            return true;
+        }
+        Map<CurrencyUnit, Entry> rates = entries.get( from );
+        return rates != null && rates.containsKey( to );
+    }
+
+    /**
+     * @return the number of rates in the table
+     */
+    public int size () {
+        return size;
+    }
+
+    private Entry entry ( CurrencyUnit from, CurrencyUnit to ) {
+        if ( from.equals( to ) ) {
+            return IDENTITY;
+        }
+        Map<CurrencyUnit, Entry> rates = entries.get( from );
+        Entry entry = (rates != null ? rates.get( to ) : null);
+        if ( entry == null ) {
+            throw new IllegalArgumentException( "No rate from " + from + " to " + to );
+        }
+        return entry;
+    }
+
+    private static final class Entry {
+        private final Rate rate;
+        private final Rate minorUnitRate;
+
+        Entry( Rate rate, Rate minorUnitRate ) {
+            this.rate = rate;
+            this.minorUnitRate = minorUnitRate;
+        }
+    }
+
+    /**
+     * Collects rates for a new {@link RateTable}. A Builder is <b>NOT</b>
+     * thread-safe, but may be reused once built.
+     */
+    public static class Builder {
+        private final Map<CurrencyUnit, Map<CurrencyUnit, BigDecimal>> rates = new HashMap<CurrencyUnit, Map<CurrencyUnit, BigDecimal>>();
+
+        /**
+         * Adds (or replaces) the rate from one currency to another
+         *
+         * @param from
+         *            The currency to convert from
+         * @param to
+         *            The currency to convert to
+         * @param rate
+         *            The rate, greater than zero (to = from * rate)
+         * @return The {@link Builder} for further rates
+         */
+        public Builder put ( CurrencyUnit from, CurrencyUnit to, BigDecimal rate ) {
+            if ( from == null || to == null || rate == null ) {
+                throw new NullPointerException( "Currencies and rate must not be null" );
+            }
+            if ( rate.signum() <= 0 ) {
+                throw new IllegalArgumentException( "Rate must be greater than zero : " + rate );
+            }
+            if ( from.equals( to ) ) {
+                throw new IllegalArgumentException( "Cannot set a rate from " + from + " to itself" );
+            }
+            Map<CurrencyUnit, BigDecimal> toRates = rates.get( from );
+            if ( toRates == null ) {
+                toRates = new HashMap<CurrencyUnit, BigDecimal>();
+                rates.put( from, toRates );
+            }
+            toRates.put( to, rate );
+            return this;
+        }
+
+        /**
+         * Adds (or replaces) the rate from one currency to another, converted
+         * as {@link BigDecimal#valueOf(double)} would
+         *
+         * @param from
+         *            The currency to convert from
+         * @param to
+         *            The currency to convert to
+         * @param rate
+         *            The rate, greater than zero (to = from * rate)
+         * @return The {@link Builder} for further rates
+         */
+        public Builder put ( CurrencyUnit from, CurrencyUnit to, double rate ) {
+            return put( from, to, BigDecimal.valueOf( rate ) );
+        }
+
+        /**
+         * @return a new RateTable holding every rate added so far
+         */
+        public RateTable build () {
+            Map<CurrencyUnit, Map<CurrencyUnit, Entry>> entries = new HashMap<CurrencyUnit, Map<CurrencyUnit, Entry>>();
+            int size = 0;
+            for ( Map.Entry<CurrencyUnit, Map<CurrencyUnit, BigDecimal>> from : rates.entrySet() ) {
+                Map<CurrencyUnit, Entry> toEntries = new HashMap<CurrencyUnit, Entry>();
+                for ( Map.Entry<CurrencyUnit, BigDecimal> to : from.getValue().entrySet() ) {
+                    BigDecimal rate = to.getValue();
+                    int shift = to.getKey().getDecimalPlaces() - from.getKey().getDecimalPlaces();
+                    toEntries.put( to.getKey(), new Entry( Rate.of( rate ), Rate.of( rate.movePointRight( shift ) ) ) );
+                    size++;
+                }
+                entries.put( from.getKey(), Collections.unmodifiableMap( toEntries ) );
+            }
+            return new RateTable( Collections.unmodifiableMap( entries ), size );
+        }
+    }
+}
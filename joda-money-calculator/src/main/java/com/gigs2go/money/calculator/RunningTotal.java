@@ -0,0 +1,385 @@
+package com.gigs2go.money.calculator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * A running total of postings in a single CurrencyUnit, which can be
+ * checkpointed and rolled back, and can total the most recent postings.
+ * </p>
+ * <p>
+ * The most recent 'capacity' postings are retained in a ring of prefix sums
+ * (in minor units) and posting times, so adding a posting, taking a
+ * {@link Checkpoint}, rolling back to one, and totalling the last N postings
+ * are all O(1); totalling the postings since a given time is O(log N).
+ * A rollback may go back as far as the oldest retained posting.
+ * </p>
+ * <p>
+ * The total is exact, however large it grows. Each posting, and each windowed
+ * total, must fit a long in minor units; a windowed total which does not
+ * throws an ArithmeticException. Results are calculated by a
+ * {@link MoneyCalculator} with the same remainderScale and RoundingMode, so
+ * are identical to {@link MoneyCalculator#result()}.
+ * </p>
+ * <p>
+ * A RunningTotal is <b>NOT</b> thread-safe.
+ * </p>
+ */
+public class RunningTotal {
+    private static final int REMAINDER_SCALE = 3;
+
+    private final CurrencyUnit currency;
+    private final int capacity;
+    private final MoneyCalculator calculator;
+    /* Slot k % (capacity + 1) holds the low 64 bits of the sum of postings 1..k */
+    private final long[] prefix;
+    /* ... and the high 64 bits, so that windowed totals can detect overflow */
+    private final long[] prefixHigh;
+    /* Slot k % (capacity + 1) holds the time of posting k */
+    private final long[] times;
+    private long count = 0L;
+    /* The oldest k whose prefix sum is still retained */
+    private long oldest = 0L;
+    private long latest = Long.MIN_VALUE;
+    private long total = 0L;
+    /* The part of the total which has overflowed a long, or null */
+    private BigInteger excess = null;
+
+    /**
+     * Create a new RunningTotal with a default remainderScale of 3 and a
+     * default RoundingMode of 'HALF_UP'
+     *
+     * @param currency
+     *            The CurrencyUnit of every posting
+     * @param capacity
+     *            The number of recent postings to retain
+     */
+    public RunningTotal( CurrencyUnit currency, int capacity ) {
+        this( currency, capacity, REMAINDER_SCALE, RoundingMode.HALF_UP );
+    }
+
+    /**
+     * Create a new RunningTotal with a default remainderScale of 3 and the
+     * given RoundingMode
+     *
+     * @param currency
+     *            The CurrencyUnit of every posting
+     * @param capacity
+     *            The number of recent postings to retain
+     * @param roundingMode
+     */
+    public RunningTotal( CurrencyUnit currency, int capacity, RoundingMode roundingMode ) {
+        this( currency, capacity, REMAINDER_SCALE, roundingMode );
+    }
+
+    /**
+     * Create a new RunningTotal with the given remainderScale and
+     * RoundingMode
+     *
+     * @param currency
+     *            The CurrencyUnit of every posting
+     * @param capacity
+     *            The number of recent postings to retain
+     * @param remainderScale
+     * @param roundingMode
+     */
+    public RunningTotal( CurrencyUnit currency, int capacity, int remainderScale, RoundingMode roundingMode ) {
+        if ( currency == null ) {
+            throw new NullPointerException( "CurrencyUnit must not be null" );
+        }
+        if ( capacity < 1 || capacity > Integer.MAX_VALUE - 9 ) {
+            throw new IllegalArgumentException( "Invalid capacity : " + capacity );
+        }
+        this.currency = currency;
+        this.capacity = capacity;
+        this.calculator = new MoneyCalculator( remainderScale, roundingMode );
+        this.prefix = new long[capacity + 1];
+        this.prefixHigh = new long[capacity + 1];
+        this.times = new long[capacity + 1];
+    }
+
+    /**
+     * Adds a posting, timed now - or at the time of the previous posting, if
+     * the system clock has since been set back
+     *
+     * @param amount
+     *            The amount to post. Reversals are negative.
+     * @return The {@link RunningTotal} for further operations
+     */
+    public RunningTotal add ( Money amount ) {
+        return add( amount, Math.max( System.currentTimeMillis(), latest ) );
+    }
+
+    /**
+     * Adds a posting
+     *
+     * @param amount
+     *            The amount to post. Reversals are negative.
+     * @param timeMillis
+     *            The time of the posting, which must not be before that of
+     *            the previous posting
+     * @return The {@link RunningTotal} for further operations
+     * @throws ArithmeticException
+     *             If the amount does not fit a long in minor units
+     */
+    public RunningTotal add ( Money amount, long timeMillis ) {
+        if ( !currency.equals( amount.getCurrencyUnit() ) ) {
+            throw new CurrencyMismatchException( currency, amount.getCurrencyUnit() );
+        }
+        return add( amount.getAmountMinorLong(), timeMillis );
+    }
+
+    /**
+     * Adds a posting
+     *
+     * @param minorUnits
+     *            The amount to post, in minor units. Reversals are negative.
+     * @param timeMillis
+     *            The time of the posting, which must not be before that of
+     *            the previous posting
+     * @return The {@link RunningTotal} for further operations
+     */
+    public RunningTotal add ( long minorUnits, long timeMillis ) {
+        if ( timeMillis < latest ) {
+            throw new IllegalArgumentException( "Posting time " + timeMillis + " is before the previous posting " + latest );
+        }
+        long low = prefix[slot( count )];
+        long sum = low + minorUnits;
+        // Sign extend the posting, and carry out of the low 64 bits
+        long high = prefixHigh[slot( count )] + (minorUnits >> 63) + (Long.compareUnsigned( sum, low ) < 0 ? 1 : 0);
+        count++;
+        prefix[slot( count )] = sum;
+        prefixHigh[slot( count )] = high;
+        times[slot( count )] = timeMillis;
+        latest = timeMillis;
+        if ( count - oldest > capacity ) {
+            oldest = count - capacity;
+        }
+        long updated = total + minorUnits;
+        if ( ((total ^ updated) & (minorUnits ^ updated)) < 0 ) {
+            excess = (excess == null ? BigInteger.valueOf( total ) : excess.add( BigInteger.valueOf( total ) ));
+            updated = minorUnits;
+        }
+        total = updated;
+        return this;
+    }
+
+    /**
+     * @return a checkpoint of the current total, which may later be rolled
+     *         back to
+     */
+    public Checkpoint checkpoint () {
+        return new Checkpoint( count, prefix[slot( count )], latest, total, excess );
+    }
+
+    /**
+     * Restores the total to that of the given checkpoint, discarding every
+     * posting made since it was taken
+     *
+     * @param checkpoint
+     *            A checkpoint taken from this RunningTotal
+     * @return The {@link RunningTotal} for further operations
+     * @throws IllegalArgumentException
+     *             If the checkpoint is older than the oldest retained posting,
+     *             or was itself discarded by an earlier rollback
+     */
+    public RunningTotal rollback ( Checkpoint checkpoint ) {
+        if ( checkpoint.count < oldest || checkpoint.count > count || prefix[slot( checkpoint.count )] != checkpoint.prefix ) {
+            throw new IllegalArgumentException( "Checkpoint " + checkpoint.count + " is not within the retained postings " + oldest + " to "
+                    + count );
+        }
+        count = checkpoint.count;
+        latest = checkpoint.latest;
+        total = checkpoint.total;
+        excess = checkpoint.excess;
+        return this;
+    }
+
+    /**
+     * Discards every posting, and resets the total to zero
+     *
+     * @return The {@link RunningTotal} for further operations
+     */
+    public RunningTotal clear () {
+        count = 0L;
+        oldest = 0L;
+        latest = Long.MIN_VALUE;
+        total = 0L;
+        excess = null;
+        prefix[0] = 0L;
+        prefixHigh[0] = 0L;
+        return this;
+    }
+
+    /**
+     * @return the total of every posting
+     */
+    public Money getTotal () {
+        if ( excess == null ) {
+            return MoneyInterner.ofMinor( currency, total );
+        }
+        return Money.of( currency, new BigDecimal( excess.add( BigInteger.valueOf( total ) ), currency.getDecimalPlaces() ) );
+    }
+
+    /**
+     * @return the total of every posting, as a Result. See
+     *         {@link MoneyCalculator#result()}
+     */
+    public MoneyCalculator.Result result () {
+        return calculator.set( getTotal() ).result();
+    }
+
+    /**
+     * @param roundingMode
+     *            The RoundingMode to use
+     * @return the total of every posting, as a Result. See
+     *         {@link MoneyCalculator#result(RoundingMode)}
+     */
+    public MoneyCalculator.Result result ( RoundingMode roundingMode ) {
+        return calculator.set( getTotal() ).result( roundingMode );
+    }
+
+    /**
+     * @param n
+     *            The number of postings, no more than are retained
+     * @return the total of the last 'n' postings, in minor units
+     * @throws ArithmeticException
+     *             If the total does not fit a long
+     */
+    public long getLastMinorUnits ( int n ) {
+        if ( n < 0 || n > count - oldest ) {
+            throw new IllegalArgumentException( "Only " + getRetainedCount() + " postings are retained : " + n );
+        }
+        return window( count - n, count );
+    }
+
+    /**
+     * @param n
+     *            The number of postings, no more than are retained
+     * @return the total of the last 'n' postings, as a Result
+     */
+    public MoneyCalculator.Result resultOfLast ( int n ) {
+        return calculator.set( MoneyInterner.ofMinor( currency, getLastMinorUnits( n ) ) ).result();
+    }
+
+    /**
+     * @param timeMillis
+     *            The earliest posting time to include
+     * @return the total of the postings made at or after 'timeMillis', in
+     *         minor units
+     * @throws IllegalArgumentException
+     *             If the window reaches back beyond the retained postings
+     * @throws ArithmeticException
+     *             If the total does not fit a long
+     */
+    public long getMinorUnitsSince ( long timeMillis ) {
+        if ( oldest > 0L && times[slot( oldest )] >= timeMillis ) {
+            throw new IllegalArgumentException( "Postings since " + timeMillis + " are no longer all retained" );
+        }
+        // Find the first retained posting at or after timeMillis
+        long low = oldest + 1;
+        long high = count + 1;
+        while ( low < high ) {
+            long mid = (low + high) >>> 1;
+            if ( times[slot( mid )] < timeMillis ) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return window( low - 1, count );
+    }
+
+    /**
+     * @param timeMillis
+     *            The earliest posting time to include
+     * @return the total of the postings made at or after 'timeMillis', as a
+     *         Result
+     * @throws IllegalArgumentException
+     *             If the window reaches back beyond the retained postings
+     */
+    public MoneyCalculator.Result resultSince ( long timeMillis ) {
+        return calculator.set( MoneyInterner.ofMinor( currency, getMinorUnitsSince( timeMillis ) ) ).result();
+    }
+
+    /**
+     * @return the number of postings in the total
+     */
+    public long getCount () {
+        return count;
+    }
+
+    /**
+     * @return the number of postings currently retained, which may be fewer
+     *         than the capacity after a rollback
+     */
+    public int getRetainedCount () {
+        return (int)(count - oldest);
+    }
+
+    /**
+     * @return the number of recent postings retained
+     */
+    public int getCapacity () {
+        return capacity;
+    }
+
+    /**
+     * @return the CurrencyUnit of every posting
+     */
+    public CurrencyUnit getCurrencyUnit () {
+        return currency;
+    }
+
+    /**
+     * @return the total of postings 'from' + 1 to 'to', from the 128 bit
+     *         difference of their prefix sums
+     */
+    private long window ( long from, long to ) {
+        long fromLow = prefix[slot( from )];
+        long toLow = prefix[slot( to )];
+        long low = toLow - fromLow;
+        long high = prefixHigh[slot( to )] - prefixHigh[slot( from )] - (Long.compareUnsigned( toLow, fromLow ) < 0 ? 1 : 0);
+        if ( high != (low >> 63) ) {
+            throw new ArithmeticException( "Total of postings " + (from + 1) + " to " + to + " does not fit a long" );
+        }
+        return low;
+    }
+
+    private int slot ( long k ) {
+        return (int)(k % (capacity + 1));
+    }
+
+    /**
+     * An immutable checkpoint of a {@link RunningTotal}. See
+     * {@link RunningTotal#rollback(Checkpoint)}
+     */
+    public static final class Checkpoint {
+        private final long count;
+        private final long prefix;
+        private final long latest;
+        private final long total;
+        private final BigInteger excess;
+
+        private Checkpoint( long count, long prefix, long latest, long total, BigInteger excess ) {
+            this.count = count;
+            this.prefix = prefix;
+            this.latest = latest;
+            this.total = total;
+            this.excess = excess;
+        }
+
+        /**
+         * @return the number of postings in the total when it was taken
+         */
+        public long getCount () {
+            return count;
+        }
+    }
+}
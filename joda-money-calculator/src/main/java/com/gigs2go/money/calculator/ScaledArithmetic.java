@@ -0,0 +1,237 @@
+package com.gigs2go.money.calculator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+import org.joda.money.Money;
+
+/**
+ * <p>
+ * Exact arithmetic on 'scaled longs' - a long unscaled value together with a
+ * scale, exactly as {@link BigDecimal} holds them.<br/>
+ * Every operation either returns the same value (and rounding) that the
+ * equivalent {@link BigDecimal} operation would produce, or throws an
+ * {@link ArithmeticException}. Overflow is reported in the same way as
+ * division by zero or {@link RoundingMode#UNNECESSARY}, so callers are
+ * expected to fall back to {@link BigDecimal} on any ArithmeticException, and
+ * let that report genuine errors.
+ * </p>
+ *
+ * @see BigDecimal
+ * @see RoundingMode
+ */
+public final class ScaledArithmetic {
+    /**
+     * The largest power of ten which fits in a long
+     */
+    public static final int MAX_POWER_OF_TEN = 18;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_POWER_OF_TEN + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for ( int i = 1; i <= MAX_POWER_OF_TEN; i++ ) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+        }
+    }
+
+    private ScaledArithmetic() {
+    }
+
+    /**
+     * @param n
+     *            The exponent, 0 to {@link #MAX_POWER_OF_TEN}
+     * @return 10 to the power of n
+     * @throws ArithmeticException
+     *             If the result does not fit in a long
+     */
+    public static long pow10 ( int n ) {
+        if ( n < 0 || n > MAX_POWER_OF_TEN ) {
+            throw new ArithmeticException( "Overflow : 10^" + n );
+        }
+        return POWERS_OF_TEN[n];
+    }
+
+    /**
+     * @param value
+     *            The value to multiply
+     * @param n
+     *            The (non-negative) power of ten to multiply by
+     * @return value * 10^n
+     * @throws ArithmeticException
+     *             If the result does not fit in a long
+     */
+    public static long multiplyPow10 ( long value, int n ) {
+        if ( value == 0L || n == 0 ) {
+            return value;
+        }
+        return Math.multiplyExact( value, pow10( n ) );
+    }
+
+    /**
+     * Divides one long by another, rounding the quotient as
+     * {@link BigDecimal#divide(BigDecimal, RoundingMode)} would.
+     *
+     * @param dividend
+     *            The dividend
+     * @param divisor
+     *            The divisor
+     * @param roundingMode
+     *            The RoundingMode to apply to an inexact quotient
+     * @return The rounded quotient
+     * @throws ArithmeticException
+     *             If the divisor is zero, the result overflows, or rounding
+     *             is necessary and the roundingMode is UNNECESSARY
+     */
+    public static long divide ( long dividend, long divisor, RoundingMode roundingMode ) {
+        if ( roundingMode == null ) {
+            throw new NullPointerException( "RoundingMode must not be null" );
+        }
+        if ( divisor == -1L && dividend == Long.MIN_VALUE ) {
+            throw new ArithmeticException( "Overflow" );
+        }
+        long quotient = dividend / divisor;
+        long remainder = dividend - quotient * divisor;
+        if ( remainder == 0L ) {
+            return quotient;
+        }
+        // The sign of the exact quotient
+        long signum = ((dividend ^ divisor) >> 63) | 1L;
+        boolean increment;
+        switch ( roundingMode ) {
+        case UNNECESSARY:
+            throw new ArithmeticException( "Rounding necessary" );
+        case DOWN:
+            increment = false;
+            break;
+        case UP:
+            increment = true;
+            break;
+        case CEILING:
+            increment = signum > 0;
+            break;
+        case FLOOR:
+            increment = signum < 0;
+            break;
+        default:
+            // Compare the remainder with the distance to the next quotient;
+            // this cannot overflow, even for a divisor of Long.MIN_VALUE
+            long absRemainder = Math.abs( remainder );
+            int comparison = Long.compare( absRemainder, Math.abs( divisor ) - absRemainder );
+            if ( roundingMode == RoundingMode.HALF_UP ) {
+                increment = comparison >= 0;
+            } else if ( roundingMode == RoundingMode.HALF_DOWN ) {
+                increment = comparison > 0;
+            } else {
+                increment = comparison > 0 || (comparison == 0 && (quotient & 1L) != 0L);
+            }
+            break;
+        }
+        return increment ? quotient + signum : quotient;
+    }
+
+    /**
+     * Changes the scale of an unscaled value, as
+     * {@link BigDecimal#setScale(int, RoundingMode)} would.
+     *
+     * @param unscaled
+     *            The unscaled value
+     * @param fromScale
+     *            The current scale
+     * @param toScale
+     *            The new scale
+     * @param roundingMode
+     *            The RoundingMode to apply when reducing the scale
+     * @return The unscaled value at the new scale
+     * @throws ArithmeticException
+     *             If the result overflows, or rounding is necessary and the
+     *             roundingMode is UNNECESSARY
+     */
+    public static long rescale ( long unscaled, int fromScale, int toScale, RoundingMode roundingMode ) {
+        if ( roundingMode == null ) {
+            throw new NullPointerException( "RoundingMode must not be null" );
+        }
+        long difference = (long)toScale - fromScale;
+        if ( difference > Integer.MAX_VALUE || difference < -Integer.MAX_VALUE ) {
+            throw new ArithmeticException( "Overflow" );
+        }
+        if ( difference >= 0 ) {
+            return multiplyPow10( unscaled, (int)difference );
+        }
+        return divide( unscaled, pow10( (int)-difference ), roundingMode );
+    }
+
+    /**
+     * Calculates the difference between a value and its rounded equivalent
+     * (value - rounded), at the given remainderScale
+     *
+     * @param unscaled
+     *            The unscaled value
+     * @param scale
+     *            The scale of the value
+     * @param rounded
+     *            The unscaled rounded value
+     * @param roundedScale
+     *            The scale of the rounded value
+     * @param remainderScale
+     *            The scale of the result
+     * @param roundingMode
+     *            The RoundingMode to apply if the result must be rounded to
+     *            the remainderScale
+     * @return The unscaled difference, at the remainderScale
+     * @throws ArithmeticException
+     *             If the result overflows, or rounding is necessary and the
+     *             roundingMode is UNNECESSARY
+     */
+    public static long remainder ( long unscaled, int scale, long rounded, int roundedScale, int remainderScale, RoundingMode roundingMode ) {
+        int differenceScale = Math.max( scale, roundedScale );
+        long difference = Math.subtractExact( multiplyPow10( unscaled, differenceScale - scale ), multiplyPow10( rounded, differenceScale - roundedScale ) );
+        return rescale( difference, differenceScale, remainderScale, roundingMode );
+    }
+
+    /**
+     * @param value
+     *            The BigDecimal
+     * @return The unscaled value of the BigDecimal as a long
+     * @throws ArithmeticException
+     *             If the unscaled value does not fit in a long
+     */
+    public static long unscaledLong ( BigDecimal value ) {
+        return longValue( value.unscaledValue() );
+    }
+
+    /**
+     * Money is always at its currency's scale, so its minor units are read
+     * directly, without creating a BigInteger; any other scale falls back to
+     * {@link #unscaledLong(BigDecimal)}.
+     *
+     * @param money
+     *            The Money
+     * @return The unscaled value of the amount (at the Money's scale) as a
+     *         long
+     * @throws ArithmeticException
+     *             If the unscaled value does not fit in a long
+     */
+    public static long unscaledLong ( Money money ) {
+        if ( money.getScale() == money.getCurrencyUnit().getDecimalPlaces() ) {
+            return money.getAmountMinorLong();
+        }
+        return unscaledLong( money.getAmount() );
+    }
+
+    /**
+     * @param value
+     *            The BigInteger
+     * @return The value as a long
+     * @throws ArithmeticException
+     *             If the value does not fit in a long
+     */
+    public static long longValue ( BigInteger value ) {
+        if ( value.bitLength() > 63 ) {
+            throw new ArithmeticException( "Overflow : " + value );
+        }
+        return value.longValue();
+    }
+
+}
@@ -1,5 +1,10 @@
 package com.gigs2go.money.calculator.allocators;
 
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.joda.money.Money;
+
 import com.gigs2go.money.calculator.Allocator;
 
 public enum AllocatorStrategy {
@@ -18,4 +23,32 @@ public enum AllocatorStrategy {
         return allocator;
     }
 
+    /**
+     * Allocates the given Money as a stream, without creating an array. The
+     * stream takes constant memory, however large 'len' is.
+     *
+     * @param money
+     *            The Money to allocate
+     * @param len
+     *            The number of divisions to use
+     * @return A sequential stream of each division
+     */
+    public Stream<Money> stream ( Money money, int len ) {
+        return allocator.allocation( money, len ).stream();
+    }
+
+    /**
+     * Allocates the given Money as a stream of minor units, without creating
+     * an array. The stream takes constant memory, however large 'len' is.
+     *
+     * @param money
+     *            The Money to allocate
+     * @param len
+     *            The number of divisions to use
+     * @return A sequential stream of the minor units of each division
+     */
+    public LongStream minorUnits ( Money money, int len ) {
+        return allocator.allocation( money, len ).minorUnits();
+    }
+
 }
@@ -1,11 +1,10 @@
 package com.gigs2go.money.calculator.allocators;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
-
 import org.joda.money.CurrencyUnit;
 import org.joda.money.Money;
 
+import com.gigs2go.money.calculator.Allocation;
+import com.gigs2go.money.calculator.Allocation.Orientation;
 import com.gigs2go.money.calculator.Allocator;
 
 /**
@@ -17,23 +16,22 @@ import com.gigs2go.money.calculator.Allocator;
 public class BackLoadedAllocatorImpl implements Allocator {
 
     public Money[] allocate ( Money money, int len ) {
-        Money[] result = new Money[len];
-        int scale = money.getScale();
-        CurrencyUnit currency = money.getCurrencyUnit();
-
-        // Integral ops only
-        BigInteger amount = money.getAmount().unscaledValue();
-        BigInteger[] divAndR = amount.divideAndRemainder( BigInteger.valueOf( len ) );
-        int remainder = divAndR[1].intValue();
-        BigDecimal lowResult = BigDecimal.valueOf( divAndR[0].longValue() ).movePointLeft( scale );
-        BigDecimal highResult = BigDecimal.valueOf( divAndR[0].longValue() + 1 ).movePointLeft( scale );
-        for ( int i = 0; i < remainder; i++ ) {
-            result[len - i - 1] = Money.of( currency, highResult );
-        }
-        for ( int i = remainder; i < len; i++ ) {
-            result[len - i - 1] = Money.of( currency, lowResult );
-        }
-        return result;
+        return allocation( money, len ).toMoney();
+    }
+
+    public int allocate ( Money money, int len, long[] out, int offset ) {
+        return Allocation.fill( money, len, Orientation.BACK, out, offset );
+    }
+
+    public int allocate ( CurrencyUnit currency, long minorUnits, int len, long[] out, int offset ) {
+        return Allocation.fill( minorUnits, len, Orientation.BACK, out, offset );
+    }
+
+    public int size ( int len ) {
+        return Allocation.size( len, Orientation.BACK );
+    }
 
+    public Allocation allocation ( Money money, int len ) {
+        return Allocation.of( money, len, Orientation.BACK );
     }
 }
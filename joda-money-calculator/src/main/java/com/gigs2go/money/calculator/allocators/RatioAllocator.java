@@ -0,0 +1,318 @@
+package com.gigs2go.money.calculator.allocators;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+import com.gigs2go.money.calculator.Metrics;
+import com.gigs2go.money.calculator.MetricsRecorder;
+import com.gigs2go.money.calculator.MoneyInterner;
+import com.gigs2go.money.calculator.ScaledArithmetic;
+
+/**
+ * <p>
+ * Given a Money and an array of ratios, this allocator returns an array with
+ * one item per ratio, where each item is the (truncated) share of the Money
+ * for that ratio. The leftover minor units are then shared, one each, across
+ * items with a non-zero ratio according to the {@link RatioStrategy}.<br/>
+ * No rounding is performed, and the total value of the array elements is
+ * exactly equal to the original value.
+ * </p>
+ * <p>
+ * All calculations are done on longs of minor units (falling back to
+ * BigInteger for individual products which overflow, and for any Money whose
+ * minor units do not fit a long), and take time linear in the number of
+ * ratios. Ratios must not be negative, and their total must
+ * be greater than zero and fit in a long.
+ * </p>
+ */
+public class RatioAllocator {
+    private final RatioStrategy strategy;
+
+    /**
+     * Create a new RatioAllocator which shares leftover minor units according
+     * to the given strategy
+     *
+     * @param strategy
+     *            The {@link RatioStrategy} to use
+     */
+    public RatioAllocator( RatioStrategy strategy ) {
+        if ( strategy == null ) {
+            throw new NullPointerException( "RatioStrategy must not be null" );
+        }
+        this.strategy = strategy;
+    }
+
+    /**
+     * @return the strategy
+     */
+    public RatioStrategy getStrategy () {
+        return strategy;
+    }
+
+    /**
+     * Allocates the given amount of Money according to the given ratios
+     *
+     * @param money
+     *            The Money to allocate
+     * @param ratios
+     *            The ratios to allocate by
+     * @return One Money per ratio
+     */
+    public Money[] allocate ( Money money, int[] ratios ) {
+        long[] weights = new long[ratios.length];
+        for ( int i = 0; i < ratios.length; i++ ) {
+            weights[i] = ratios[i];
+        }
+        return allocate( money, weights );
+    }
+
+    /**
+     * Allocates the given amount of Money according to the given ratios
+     *
+     * @param money
+     *            The Money to allocate
+     * @param ratios
+     *            The ratios to allocate by
+     * @return One Money per ratio
+     */
+    public Money[] allocate ( Money money, long[] ratios ) {
+        long minorUnits;
+        try {
+            minorUnits = ScaledArithmetic.unscaledLong( money );
+        } catch ( ArithmeticException e ) {
+            return allocate( money.getCurrencyUnit(), money.getAmount().unscaledValue(), ratios );
+        }
+        long[] out = new long[ratios.length];
+        allocate( minorUnits, ratios, out, 0 );
+        return toMoney( money.getCurrencyUnit(), out );
+    }
+
+    /**
+     * Allocates the given amount of Money according to the given ratios. The
+     * ratios are compared exactly, at the largest of their scales.
+     *
+     * @param money
+     *            The Money to allocate
+     * @param ratios
+     *            The ratios to allocate by
+     * @return One Money per ratio
+     * @throws ArithmeticException
+     *             If a ratio does not fit in a long at that scale
+     */
+    public Money[] allocate ( Money money, BigDecimal[] ratios ) {
+        int scale = 0;
+        for ( BigDecimal ratio : ratios ) {
+            scale = Math.max( scale, ratio.scale() );
+        }
+        long[] weights = new long[ratios.length];
+        for ( int i = 0; i < ratios.length; i++ ) {
+            weights[i] = ScaledArithmetic.rescale( ScaledArithmetic.unscaledLong( ratios[i] ), ratios[i].scale(), scale, RoundingMode.UNNECESSARY );
+        }
+        return allocate( money, weights );
+    }
+
+    /**
+     * Allocates the given number of minor units according to the given
+     * ratios, writing one share per ratio into 'out'
+     *
+     * @param minorUnits
+     *            The amount to allocate
+     * @param ratios
+     *            The ratios to allocate by
+     * @param out
+     *            The array to write the shares to
+     * @param offset
+     *            The index of 'out' to start writing at
+     * @return The number of elements written, which is the number of ratios
+     */
+    public int allocate ( long minorUnits, long[] ratios, long[] out, int offset ) {
+        int len = ratios.length;
+        long total = total( ratios );
+        if ( offset < 0 || out.length - offset < len ) {
+            throw new IllegalArgumentException( "out must have room for " + len + " elements from offset " + offset + " : " + out.length );
+        }
+        Metrics.recordAllocation( len );
+
+        // Truncated shares first, keeping the remainders only if they are
+        // needed to choose who gets the leftovers
+        long[] remainders = (strategy == RatioStrategy.LARGEST_REMAINDER ? new long[len] : null);
+        long leftover = minorUnits;
+        for ( int i = 0; i < len; i++ ) {
+            long share;
+            long remainder;
+            try {
+                long product = Math.multiplyExact( minorUnits, ratios[i] );
+                share = product / total;
+                remainder = product - share * total;
+            } catch ( ArithmeticException e ) {
+                BigInteger[] divAndR = BigInteger.valueOf( minorUnits ).multiply( BigInteger.valueOf( ratios[i] ) )
+                        .divideAndRemainder( BigInteger.valueOf( total ) );
+                share = divAndR[0].longValue();
+                remainder = divAndR[1].longValue();
+            }
+            out[offset + i] = share;
+            leftover -= share;
+            if ( remainders != null ) {
+                remainders[i] = Math.abs( remainder );
+            }
+        }
+
+        // Fewer leftovers than non-zero ratios, so the count fits an int
+        long unit = Long.signum( leftover );
+        int count = (int)Math.abs( leftover );
+        int[] indices = leftovers( ratios, remainders, count );
+        for ( int i = 0; i < count; i++ ) {
+            out[offset + indices[i]] += unit;
+        }
+        return len;
+    }
+
+    /**
+     * Allocates an amount too large for a long exactly as
+     * {@link #allocate(long, long[], long[], int)} would, in BigInteger
+     * minor units
+     */
+    private Money[] allocate ( CurrencyUnit currency, BigInteger minorUnits, long[] ratios ) {
+        int len = ratios.length;
+        BigInteger total = BigInteger.valueOf( total( ratios ) );
+        Metrics.recordAllocation( len );
+        Metrics.recordEvent( MetricsRecorder.Event.PROMOTION );
+
+        long[] remainders = (strategy == RatioStrategy.LARGEST_REMAINDER ? new long[len] : null);
+        BigInteger[] shares = new BigInteger[len];
+        BigInteger leftover = minorUnits;
+        for ( int i = 0; i < len; i++ ) {
+            BigInteger[] divAndR = minorUnits.multiply( BigInteger.valueOf( ratios[i] ) ).divideAndRemainder( total );
+            shares[i] = divAndR[0];
+            leftover = leftover.subtract( shares[i] );
+            if ( remainders != null ) {
+                // Less than the total, so fits a long
+                remainders[i] = divAndR[1].abs().longValue();
+            }
+        }
+
+        BigInteger unit = BigInteger.valueOf( leftover.signum() );
+        int count = leftover.abs().intValue();
+        int[] indices = leftovers( ratios, remainders, count );
+        for ( int i = 0; i < count; i++ ) {
+            shares[indices[i]] = shares[indices[i]].add( unit );
+        }
+        Money[] result = new Money[len];
+        for ( int i = 0; i < len; i++ ) {
+            result[i] = Money.of( currency, new BigDecimal( shares[i], currency.getDecimalPlaces() ) );
+        }
+        return result;
+    }
+
+    /**
+     * @return The total of the ratios, checking that there is at least one,
+     *         none is negative, and the total is greater than zero
+     */
+    private static long total ( long[] ratios ) {
+        if ( ratios.length == 0 ) {
+            throw new IllegalArgumentException( "ratios must not be empty" );
+        }
+        long total = 0L;
+        for ( long ratio : ratios ) {
+            if ( ratio < 0L ) {
+                throw new IllegalArgumentException( "ratios must not be negative : " + ratio );
+            }
+            total = Math.addExact( total, ratio );
+        }
+        if ( total == 0L ) {
+            throw new IllegalArgumentException( "ratios must total more than zero" );
+        }
+        return total;
+    }
+
+    /**
+     * @return The indices which receive the 'count' leftover minor units, one
+     *         each, in the first 'count' elements
+     */
+    private int[] leftovers ( long[] ratios, long[] remainders, int count ) {
+        int[] indices;
+        switch ( strategy ) {
+        case FRONT_LOADING:
+            indices = new int[count];
+            for ( int i = 0, n = 0; n < count; i++ ) {
+                if ( ratios[i] != 0L ) {
+                    indices[n++] = i;
+                }
+            }
+            break;
+        case BACK_LOADING:
+            indices = new int[count];
+            for ( int i = ratios.length - 1, n = 0; n < count; i-- ) {
+                if ( ratios[i] != 0L ) {
+                    indices[n++] = i;
+                }
+            }
+            break;
+        default:
+            indices = (count > 0 ? largest( remainders, count ) : new int[0]);
+            break;
+        }
+        return indices;
+    }
+
+    /**
+     * Selects the indices of the 'count' largest remainders (lower indices
+     * first on a tie) in linear (expected) time. The result is the same
+     * whichever pivots are chosen.
+     */
+    private static int[] largest ( long[] remainders, int count ) {
+        int[] indices = new int[remainders.length];
+        for ( int i = 0; i < indices.length; i++ ) {
+            indices[i] = i;
+        }
+        int from = 0;
+        int to = indices.length - 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while ( from < to ) {
+            int pivot = indices[from + random.nextInt( to - from + 1 )];
+            int i = from;
+            int j = to;
+            while ( i <= j ) {
+                while ( before( remainders, indices[i], pivot ) ) {
+                    i++;
+                }
+                while ( before( remainders, pivot, indices[j] ) ) {
+                    j--;
+                }
+                if ( i <= j ) {
+                    int swap = indices[i];
+                    indices[i++] = indices[j];
+                    indices[j--] = swap;
+                }
+            }
+            if ( count - 1 <= j ) {
+                to = j;
+            } else if ( count - 1 >= i ) {
+                from = i;
+            } else {
+                break;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * @return true if index 'a' should receive a leftover before index 'b'
+     */
+    private static boolean before ( long[] remainders, int a, int b ) {
+        return remainders[a] > remainders[b] || (remainders[a] == remainders[b] && a < b);
+    }
+
+    private static Money[] toMoney ( CurrencyUnit currency, long[] minorUnits ) {
+        Money[] result = new Money[minorUnits.length];
+        for ( int i = 0; i < minorUnits.length; i++ ) {
+            result[i] = (i > 0 && minorUnits[i] == minorUnits[i - 1] ? result[i - 1] : MoneyInterner.ofMinor( currency, minorUnits[i] ));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,35 @@
+package com.gigs2go.money.calculator.allocators;
+
+/**
+ * How a {@link RatioAllocator} shares out the leftover minor units, once each
+ * ratio has received its truncated share.
+ */
+public enum RatioStrategy {
+    /**
+     * One each to the shares with the largest truncated remainders (the
+     * 'largest remainder' or 'Hamilton' method). Ties go to the earlier ratio.
+     */
+    LARGEST_REMAINDER,
+    /**
+     * One each to the first shares with a non-zero ratio
+     */
+    FRONT_LOADING,
+    /**
+     * One each to the last shares with a non-zero ratio
+     */
+    BACK_LOADING;
+
+    private RatioAllocator allocator;
+
+    RatioStrategy() {
+        this.allocator = new RatioAllocator( this );
+    }
+
+    /**
+     * @return the allocator
+     */
+    public RatioAllocator getAllocator () {
+        return allocator;
+    }
+
+}
@@ -1,11 +1,10 @@
 package com.gigs2go.money.calculator.allocators;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
-
 import org.joda.money.CurrencyUnit;
 import org.joda.money.Money;
 
+import com.gigs2go.money.calculator.Allocation;
+import com.gigs2go.money.calculator.Allocation.Orientation;
 import com.gigs2go.money.calculator.Allocator;
 
 /**
@@ -16,20 +15,22 @@ import com.gigs2go.money.calculator.Allocator;
 public class RemainderAllocatorImpl implements Allocator {
 
     public Money[] allocate ( Money money, int len ) {
-        Money[] result = new Money[len + 1];
-        int scale = money.getScale();
-        CurrencyUnit currency = money.getCurrencyUnit();
-
-        // Integral ops only
-        BigInteger amount = money.getAmount().unscaledValue();
-        BigInteger[] divAndR = amount.divideAndRemainder( BigInteger.valueOf( len ) );
-        long remainder = divAndR[1].longValue();
-        BigDecimal division = BigDecimal.valueOf( divAndR[0].longValue() ).movePointLeft( scale );
-        for ( int i = 0; i < len; i++ ) {
-            result[i] = Money.of( currency, division );
-        }
-        result[len] = Money.of( currency, BigDecimal.valueOf( remainder ).movePointLeft( scale ) );
-        return result;
+        return allocation( money, len ).toMoney();
+    }
+
+    public int allocate ( Money money, int len, long[] out, int offset ) {
+        return Allocation.fill( money, len, Orientation.TRAILING, out, offset );
+    }
+
+    public int allocate ( CurrencyUnit currency, long minorUnits, int len, long[] out, int offset ) {
+        return Allocation.fill( minorUnits, len, Orientation.TRAILING, out, offset );
+    }
+
+    public int size ( int len ) {
+        return Allocation.size( len, Orientation.TRAILING );
+    }
 
+    public Allocation allocation ( Money money, int len ) {
+        return Allocation.of( money, len, Orientation.TRAILING );
     }
 }
@@ -30,18 +30,25 @@ public interface Constants {
 
     public static final Money GBP_0_00 = Money.parse( "GBP 0.00" );
     public static final Money GBP_0_01 = Money.parse( "GBP 0.01" );
+    public static final Money GBP_0_02 = Money.parse( "GBP 0.02" );
+    public static final Money GBP_0_03 = Money.parse( "GBP 0.03" );
+    public static final Money GBP_0_07 = Money.parse( "GBP 0.07" );
+    public static final Money GBP_1_00 = Money.parse( "GBP 1.00" );
     public static final Money GBP_1_11 = Money.parse( "GBP 1.11" );
     public static final Money GBP_1_15 = Money.parse( "GBP 1.15" );
     public static final Money GBP_1_16 = Money.parse( "GBP 1.16" );
     public static final Money GBP_1_23 = Money.parse( "GBP 1.23" );
     public static final Money GBP_1_66 = Money.parse( "GBP 1.66" );
     public static final Money GBP_1_67 = Money.parse( "GBP 1.67" );
+    public static final Money GBP_2_00 = Money.parse( "GBP 2.00" );
     public static final Money GBP_2_10 = Money.parse( "GBP 2.10" );
     public static final Money GBP_2_33 = Money.parse( "GBP 2.33" );
+    public static final Money GBP_2_50 = Money.parse( "GBP 2.50" );
     public static final Money GBP_3_33 = Money.parse( "GBP 3.33" );
     public static final Money GBP_3_34 = Money.parse( "GBP 3.34" );
     public static final Money GBP_4_56 = Money.parse( "GBP 4.56" );
     public static final Money GBP_5_00 = Money.parse( "GBP 5.00" );
+    public static final Money GBP_7_01 = Money.parse( "GBP 7.01" );
     public static final Money GBP_7_80 = Money.parse( "GBP 7.80" );
     public static final Money GBP_7_81 = Money.parse( "GBP 7.81" );
     public static final Money GBP_9_99 = Money.parse( "GBP 9.99" );
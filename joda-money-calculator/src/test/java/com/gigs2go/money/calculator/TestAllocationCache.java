@@ -0,0 +1,66 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.gigs2go.money.calculator.allocators.AllocatorStrategy;
+
+/**
+ * Test AllocationCache
+ */
+public class TestAllocationCache extends AbstractCalculatorTest {
+    private static final Allocator FRONT = AllocatorStrategy.FRONT_LOADING.getAllocator();
+    private static final Allocator BACK = AllocatorStrategy.BACK_LOADING.getAllocator();
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testMaxSize () {
+        new AllocationCache( 0 );
+    }
+
+    @Test
+    public void testHit () {
+        AllocationCache cache = new AllocationCache( 16 );
+        AllocationResult result = cache.allocate( FRONT, GBP_10_00, 3 );
+        assertArrayEquals( FRONT.allocate( GBP_10_00, 3 ), result.toArray() );
+        assertSame( result, cache.allocate( FRONT, GBP_10_00, 3 ) );
+        assertSame( result.getAllocation(), cache.allocation( FRONT, GBP_10_00, 3 ) );
+        assertEquals( 2L, cache.getHitCount() );
+        assertEquals( 1L, cache.getMissCount() );
+    }
+
+    @Test
+    public void testKey () {
+        AllocationCache cache = new AllocationCache( 16 );
+        AllocationResult result = cache.allocate( FRONT, GBP_10_00, 3 );
+        assertNotSame( result, cache.allocate( BACK, GBP_10_00, 3 ) );
+        assertNotSame( result, cache.allocate( FRONT, GBP_10_00, 6 ) );
+        assertNotSame( result, cache.allocate( FRONT, GBP_10_01, 3 ) );
+        assertEquals( BACK.allocate( GBP_10_00, 3 )[2], cache.allocate( BACK, GBP_10_00, 3 ).get( 2 ) );
+        assertEquals( 4, cache.size() );
+        assertEquals( 4L, cache.getMissCount() );
+        assertEquals( 1L, cache.getHitCount() );
+    }
+
+    @Test
+    public void testEviction () {
+        AllocationCache cache = new AllocationCache( 2 );
+        AllocationResult three = cache.allocate( FRONT, GBP_10_00, 3 );
+        cache.allocate( FRONT, GBP_10_00, 6 );
+        // Touch 3, so 6 is the least recently used
+        cache.allocate( FRONT, GBP_10_00, 3 );
+        cache.allocate( FRONT, GBP_10_00, 12 );
+        assertEquals( 2, cache.size() );
+        assertSame( three, cache.allocate( FRONT, GBP_10_00, 3 ) );
+        cache.allocate( FRONT, GBP_10_00, 6 );
+        assertEquals( 2L, cache.getHitCount() );
+        assertEquals( 4L, cache.getMissCount() );
+
+        cache.clear();
+        assertEquals( 0, cache.size() );
+        assertEquals( 0L, cache.getHitCount() );
+    }
+}
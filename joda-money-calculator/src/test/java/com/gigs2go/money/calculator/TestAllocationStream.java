@@ -0,0 +1,68 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Spliterator;
+import java.util.function.BinaryOperator;
+
+import org.joda.money.Money;
+import org.junit.Test;
+
+import com.gigs2go.money.calculator.allocators.AllocatorStrategy;
+
+/**
+ * Test streaming allocations
+ */
+public class TestAllocationStream extends AbstractCalculatorTest {
+    @Test
+    public void testMinorUnits () {
+        assertArrayEquals( new long[] { 334, 333, 333 }, AllocatorStrategy.FRONT_LOADING.minorUnits( GBP_10_00, 3 ).toArray() );
+        assertArrayEquals( new long[] { 333, 333, 334 }, AllocatorStrategy.BACK_LOADING.minorUnits( GBP_10_00, 3 ).toArray() );
+        assertArrayEquals( new long[] { 333, 333, 333, 1 }, AllocatorStrategy.REMAINDER.minorUnits( GBP_10_00, 3 ).toArray() );
+    }
+
+    @Test
+    public void testStream () {
+        for ( AllocatorStrategy strategy : AllocatorStrategy.values() ) {
+            assertEquals( strategy.getAllocator().allocate( GBP_10_00, 3 ).length, strategy.stream( GBP_10_00, 3 ).count() );
+            assertArrayEquals( strategy.getAllocator().allocate( GBP_10_00, 3 ), strategy.stream( GBP_10_00, 3 ).toArray() );
+        }
+    }
+
+    @Test
+    public void testSplit () {
+        Spliterator.OfLong spliterator = AllocatorStrategy.FRONT_LOADING.getAllocator().allocation( GBP_10_00, 1000 ).spliterator();
+        assertTrue( spliterator.hasCharacteristics( Spliterator.SIZED | Spliterator.SUBSIZED ) );
+        Spliterator.OfLong prefix = spliterator.trySplit();
+        assertNotNull( prefix );
+        assertEquals( 500, prefix.estimateSize() );
+        assertEquals( 500, spliterator.estimateSize() );
+
+        Spliterator.OfLong single = Allocation.of( GBP, 1L, 1, Allocation.Orientation.FRONT ).spliterator();
+        assertNull( single.trySplit() );
+    }
+
+    @Test
+    public void testParallel () {
+        Money total = Money.ofMinor( GBP, 123456789L );
+        for ( AllocatorStrategy strategy : AllocatorStrategy.values() ) {
+            for ( int len : new int[] { 1, 7, 1000, 1000003 } ) {
+                long[] expected = new long[Allocation.size( len, strategy.getAllocator().allocation( total, len ).getOrientation() )];
+                strategy.getAllocator().allocate( total, len, expected, 0 );
+                assertArrayEquals( expected, strategy.minorUnits( total, len ).parallel().toArray() );
+                assertEquals( total.getAmountMinorLong(), strategy.minorUnits( total, len ).parallel().sum() );
+            }
+        }
+        Money sum = AllocatorStrategy.BACK_LOADING.stream( total, 100000 ).parallel().reduce( GBP_0_00, new BinaryOperator<Money>() {
+            @Override
+            public Money apply ( Money a, Money b ) {
+                return a.plus( b );
+            }
+        } );
+        assertEquals( total, sum );
+    }
+}
@@ -0,0 +1,147 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.Money;
+import org.junit.Test;
+
+/**
+ * Test BatchMoneyCalculator against MoneyCalculator
+ */
+public class TestBatchCalculator extends AbstractCalculatorTest {
+    @Test( expected = CurrencyMismatchException.class )
+    public void testCurrencyMismatch () {
+        new BatchMoneyCalculator( GBP ).add( JPY_1000 );
+    }
+
+    @Test( expected = CurrencyMismatchException.class )
+    public void testAmountCurrencyMismatch () {
+        new BatchMoneyCalculator( GBP ).calculate( new Money[] { JPY_1000 }, new long[1], null );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testValuesTooShort () {
+        new BatchMoneyCalculator( GBP ).calculate( new long[2], new long[1], null );
+    }
+
+    @Test( expected = ArithmeticException.class )
+    public void testDivideZero () {
+        new BatchMoneyCalculator( GBP ).divide( LONG_0 ).calculate( new long[] { 333 }, new long[1], null );
+    }
+
+    @Test
+    public void testDivide () {
+        BatchMoneyCalculator calculator = new BatchMoneyCalculator( GBP ).divide( LONG_3 );
+        long[] values = new long[3];
+        long[] remainders = new long[3];
+        calculator.calculate( new Money[] { GBP_3_33, GBP_10_00, GBP_10_02 }, values, remainders );
+        assertEquals( 5, calculator.getRemainderScale() );
+        assertArrayEquals( new long[] { 111, 333, 334 }, values );
+        assertArrayEquals( new long[] { 0, 333, 0 }, remainders );
+    }
+
+    @Test
+    public void testOverflow () {
+        BatchMoneyCalculator calculator = new BatchMoneyCalculator( GBP ).multiply( 1000L ).divide( 3000L );
+        long[] values = new long[1];
+        long[] remainders = new long[1];
+        calculator.calculate( new long[] { 9223372036854775L }, values, remainders );
+        assertArrayEquals( new long[] { 3074457345618258L }, values );
+        assertArrayEquals( new long[] { 333 }, remainders );
+    }
+
+    @Test
+    public void testRandomChains () {
+        Random random = new Random( 20131018L );
+        RoundingMode[] modes = { RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR, RoundingMode.HALF_UP,
+                RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN };
+        for ( int i = 0; i < 500; i++ ) {
+            RoundingMode roundingMode = modes[random.nextInt( modes.length )];
+            int remainderScale = random.nextInt( 8 );
+            BatchMoneyCalculator batch = new BatchMoneyCalculator( GBP, remainderScale, roundingMode );
+            MoneyCalculator calculator = new MoneyCalculator( remainderScale, roundingMode );
+            long[] operands = new long[4];
+            int[] kinds = new int[operands.length];
+            for ( int step = 0; step < operands.length; step++ ) {
+                operands[step] = (random.nextLong() >> (40 + random.nextInt( 24 ))) | 1L;
+                kinds[step] = random.nextInt( 7 );
+                switch ( kinds[step] ) {
+                case 0:
+                    batch.add( Money.ofMinor( GBP, operands[step] ) );
+                    break;
+                case 1:
+                    batch.subtract( Money.ofMinor( GBP, operands[step] ) );
+                    break;
+                case 2:
+                    batch.multiply( operands[step] );
+                    break;
+                case 3:
+                    batch.multiply( BigDecimal.valueOf( operands[step], 3 ) );
+                    break;
+                case 4:
+                    batch.divide( operands[step] );
+                    break;
+                case 5:
+                    batch.divide( operands[step] / 1000.0 );
+                    break;
+                default:
+                    batch.divide( BigDecimal.valueOf( operands[step], 2 ) );
+                    break;
+                }
+            }
+            long[] amounts = new long[50];
+            long[] expectedValues = new long[amounts.length];
+            long[] expectedRemainders = new long[amounts.length];
+            for ( int j = 0; j < amounts.length; j++ ) {
+                amounts[j] = random.nextLong() >> random.nextInt( 64 );
+                calculator.set( Money.ofMinor( GBP, amounts[j] ) );
+                for ( int step = 0; step < operands.length; step++ ) {
+                    switch ( kinds[step] ) {
+                    case 0:
+                        calculator.add( Money.ofMinor( GBP, operands[step] ) );
+                        break;
+                    case 1:
+                        calculator.subtract( Money.ofMinor( GBP, operands[step] ) );
+                        break;
+                    case 2:
+                        calculator.multiply( operands[step] );
+                        break;
+                    case 3:
+                        calculator.multiply( BigDecimal.valueOf( operands[step], 3 ) );
+                        break;
+                    case 4:
+                        calculator.divide( operands[step] );
+                        break;
+                    case 5:
+                        calculator.divide( operands[step] / 1000.0 );
+                        break;
+                    default:
+                        calculator.divide( BigDecimal.valueOf( operands[step], 2 ) );
+                        break;
+                    }
+                }
+                MoneyCalculator.Result result = calculator.result();
+                try {
+                    expectedValues[j] = ScaledArithmetic.unscaledLong( result.getValue().getAmount() );
+                    expectedRemainders[j] = ScaledArithmetic.unscaledLong( result.getRemainder().getAmount() );
+                } catch ( ArithmeticException e ) {
+                    // Too large for a long - leave it out
+                    amounts[j] = 0L;
+                    j--;
+                }
+            }
+            long[] values = new long[amounts.length];
+            long[] remainders = new long[amounts.length];
+            batch.calculate( amounts, values, remainders );
+            assertArrayEquals( expectedValues, values );
+            assertArrayEquals( expectedRemainders, remainders );
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.Money;
+import org.junit.Test;
+
+import com.gigs2go.money.calculator.allocators.AllocatorStrategy;
+
+/**
+ * Test bulk allocation of many amounts into one flattened array
+ */
+public class TestBulkAllocation extends AbstractCalculatorTest {
+    @Test
+    public void testAllocate () {
+        BulkAllocation allocation = getCalculator().allocateAll( AllocatorStrategy.FRONT_LOADING.getAllocator(),
+                new Money[] { GBP_10_00, GBP_0_01 }, 3 );
+        assertEquals( 2, allocation.size() );
+        assertEquals( GBP, allocation.getCurrencyUnit() );
+        assertArrayEquals( new long[] { 334, 333, 333, 1, 0, 0 }, allocation.getMinorUnits() );
+        assertArrayEquals( new int[] { 0, 3, 6 }, allocation.getOffsets() );
+        assertEquals( GBP_0_01, allocation.getMoney( 1, 0 ) );
+    }
+
+    @Test
+    public void testAllocateLens () {
+        BulkAllocation allocation = getCalculator().allocateAll( AllocatorStrategy.REMAINDER.getAllocator(),
+                new Money[] { GBP_10_00, GBP_10_01 }, new int[] { 3, 2 } );
+        assertArrayEquals( new long[] { 333, 333, 333, 1, 500, 500, 1 }, allocation.getMinorUnits() );
+        assertEquals( 4, allocation.getLength( 0 ) );
+        assertEquals( 4, allocation.getOffset( 1 ) );
+        assertEquals( 1L, allocation.getMinorUnits( 1, 2 ) );
+    }
+
+    @Test( expected = IndexOutOfBoundsException.class )
+    public void testDivisionOutOfRange () {
+        BulkAllocation.of( AllocatorStrategy.BACK_LOADING.getAllocator(), GBP, new long[] { 1000, 1001 }, 2 ).getMinorUnits( 0, 2 );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testAllocateZero () {
+        BulkAllocation.of( AllocatorStrategy.BACK_LOADING.getAllocator(), GBP, new long[] { 1000 }, new int[] { 0 } );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testLensMismatch () {
+        BulkAllocation.of( AllocatorStrategy.BACK_LOADING.getAllocator(), GBP, new long[] { 1000 }, new int[] { 1, 2 } );
+    }
+
+    @Test( expected = CurrencyMismatchException.class )
+    public void testCurrencyMismatch () {
+        BulkAllocation.of( AllocatorStrategy.BACK_LOADING.getAllocator(), new Money[] { GBP_10_00, JPY_1000 }, 2 );
+    }
+
+    @Test
+    public void testMatchesSingleAllocations () {
+        Random random = new Random( 20131109L );
+        Parallelism parallelism = Parallelism.of( ForkJoinPool.commonPool(), 16 );
+        for ( AllocatorStrategy strategy : AllocatorStrategy.values() ) {
+            Allocator allocator = strategy.getAllocator();
+            long[] amounts = new long[1000];
+            int[] lens = new int[amounts.length];
+            Money[] money = new Money[amounts.length];
+            for ( int i = 0; i < amounts.length; i++ ) {
+                amounts[i] = random.nextLong() >> random.nextInt( 64 );
+                lens[i] = 1 + random.nextInt( 20 );
+                money[i] = Money.ofMinor( GBP, amounts[i] );
+            }
+            BulkAllocation bulk = BulkAllocation.of( allocator, GBP, amounts, lens, parallelism );
+            BulkAllocation fromMoney = BulkAllocation.of( allocator, money, lens );
+            assertArrayEquals( bulk.getOffsets(), fromMoney.getOffsets() );
+            assertArrayEquals( bulk.getMinorUnits(), fromMoney.getMinorUnits() );
+            for ( int i = 0; i < amounts.length; i++ ) {
+                long[] expected = new long[allocator.size( lens[i] )];
+                allocator.allocate( money[i], lens[i], expected, 0 );
+                assertArrayEquals( expected, Arrays.copyOfRange( bulk.getMinorUnits(), bulk.getOffset( i ), bulk.getOffset( i + 1 ) ) );
+            }
+            BulkAllocation uniform = BulkAllocation.of( allocator, money, 7, parallelism );
+            for ( int i = 0; i < amounts.length; i++ ) {
+                Money[] expected = allocator.allocate( money[i], 7 );
+                assertEquals( expected.length, uniform.getLength( i ) );
+                for ( int j = 0; j < expected.length; j++ ) {
+                    assertEquals( expected[j], uniform.getMoney( i, j ) );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOtherAllocator () {
+        final Allocator builtIn = AllocatorStrategy.BACK_LOADING.getAllocator();
+        // Relies on the default allocate( CurrencyUnit, long, ... ) and size()
+        Allocator allocator = new Allocator() {
+            @Override
+            public Money[] allocate ( Money money, int len ) {
+                return builtIn.allocate( money, len );
+            }
+
+            @Override
+            public int allocate ( Money money, int len, long[] out, int offset ) {
+                return builtIn.allocate( money, len, out, offset );
+            }
+
+            @Override
+            public Allocation allocation ( Money money, int len ) {
+                return builtIn.allocation( money, len );
+            }
+        };
+        long[] amounts = { 1000, -1001, 7 };
+        assertArrayEquals( BulkAllocation.of( builtIn, GBP, amounts, 3 ).getMinorUnits(), BulkAllocation.of( allocator, GBP, amounts, 3 )
+                .getMinorUnits() );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testSizeMismatch () {
+        final Allocator builtIn = AllocatorStrategy.REMAINDER.getAllocator();
+        // Writes a trailing remainder, but does not override size()
+        Allocator allocator = new Allocator() {
+            @Override
+            public Money[] allocate ( Money money, int len ) {
+                return builtIn.allocate( money, len );
+            }
+
+            @Override
+            public int allocate ( Money money, int len, long[] out, int offset ) {
+                return builtIn.allocate( money, len, out, offset );
+            }
+
+            @Override
+            public Allocation allocation ( Money money, int len ) {
+                return builtIn.allocation( money, len );
+            }
+        };
+        BulkAllocation.of( allocator, GBP, new long[] { 1000, 1001 }, 2 );
+    }
+}
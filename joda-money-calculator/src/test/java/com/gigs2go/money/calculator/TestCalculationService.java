@@ -0,0 +1,137 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.joda.money.Money;
+import org.junit.Test;
+
+import com.gigs2go.money.calculator.allocators.AllocatorStrategy;
+
+/**
+ * Test MoneyCalculationService
+ */
+public class TestCalculationService extends AbstractCalculatorTest {
+    @Test( expected = IllegalArgumentException.class )
+    public void testMaxInFlightZero () {
+        new MoneyCalculationService( Executors.newSingleThreadExecutor(), 0 );
+    }
+
+    @Test
+    public void testCalculate () throws InterruptedException, ExecutionException {
+        MoneyCalculationService service = new MoneyCalculationService();
+        try {
+            List<CompletableFuture<MoneyCalculator.Result>> futures = new ArrayList<CompletableFuture<MoneyCalculator.Result>>();
+            for ( int i = 0; i < 100; i++ ) {
+                futures.add( service.calculate( new MoneyCalculationService.Calculation() {
+                    @Override
+                    public MoneyCalculator.Result calculate ( MoneyCalculator calculator ) {
+                        return calculator.set( GBP_10_00 ).divide( LONG_3 ).result();
+                    }
+                } ) );
+            }
+            for ( CompletableFuture<MoneyCalculator.Result> future : futures ) {
+                assertEquals( GBP_3_33, future.get().getValue() );
+            }
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    public void testAllocate () throws InterruptedException, ExecutionException {
+        MoneyCalculationService service = new MoneyCalculationService();
+        try {
+            Money[] result = service.allocate( AllocatorStrategy.FRONT_LOADING.getAllocator(), GBP_10_00, 3 ).get();
+            assertArrayEquals( new Money[] { GBP_3_34, GBP_3_33, GBP_3_33 }, result );
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    public void testBatch () throws InterruptedException, ExecutionException {
+        MoneyCalculationService service = new MoneyCalculationService();
+        try {
+            BatchMoneyCalculator batch = new BatchMoneyCalculator( GBP ).divide( LONG_3 );
+            long[] values = service.calculate( batch, new long[] { 1000, 1002 }, new long[2], null ).get();
+            assertArrayEquals( new long[] { 333, 334 }, values );
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test( expected = ExecutionException.class )
+    public void testFailure () throws InterruptedException, ExecutionException {
+        MoneyCalculationService service = new MoneyCalculationService();
+        try {
+            service.calculate( new MoneyCalculationService.Calculation() {
+                @Override
+                public MoneyCalculator.Result calculate ( MoneyCalculator calculator ) {
+                    return calculator.set( GBP_10_00 ).divide( LONG_0 ).result();
+                }
+            } ).get();
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    public void testBackPressure () throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        try {
+            final MoneyCalculationService service = new MoneyCalculationService( executor, 2 );
+            MoneyCalculationService.Calculation blocked = new MoneyCalculationService.Calculation() {
+                @Override
+                public MoneyCalculator.Result calculate ( MoneyCalculator calculator ) {
+                    try {
+                        release.await();
+                    } catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return calculator.set( GBP_1_00 ).result();
+                }
+            };
+            CompletableFuture<MoneyCalculator.Result> first = service.calculate( blocked );
+            service.calculate( blocked );
+            assertEquals( 2, service.getInFlight() );
+
+            // The third submission must wait for a permit
+            final CountDownLatch submitted = new CountDownLatch( 1 );
+            Thread submitter = new Thread( new Runnable() {
+                @Override
+                public void run () {
+                    service.calculate( new MoneyCalculationService.Calculation() {
+                        @Override
+                        public MoneyCalculator.Result calculate ( MoneyCalculator calculator ) {
+                            return calculator.set( GBP_1_00 ).result();
+                        }
+                    } );
+                    submitted.countDown();
+                }
+            } );
+            submitter.start();
+            submitter.join( 200 );
+            assertEquals( 1, submitted.getCount() );
+
+            release.countDown();
+            assertEquals( GBP_1_00, first.get().getValue() );
+            submitter.join();
+            assertEquals( 0, submitted.getCount() );
+            assertTrue( service.getInFlight() <= 2 );
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
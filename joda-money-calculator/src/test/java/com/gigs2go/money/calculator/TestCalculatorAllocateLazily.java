@@ -0,0 +1,68 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.joda.money.Money;
+import org.junit.Test;
+
+import com.gigs2go.money.calculator.allocators.AllocatorStrategy;
+
+/**
+ * Test Calculator lazy allocations
+ */
+public class TestCalculatorAllocateLazily extends AbstractCalculatorTest {
+    @Test( expected = IllegalArgumentException.class )
+    public void testAllocateLazilyNull () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.allocateLazily( AllocatorStrategy.FRONT_LOADING.getAllocator(), null, 1 );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testAllocateLazilyZero () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.allocateLazily( AllocatorStrategy.FRONT_LOADING.getAllocator(), GBP_10_00, 0 );
+    }
+
+    @Test( expected = IndexOutOfBoundsException.class )
+    public void testAllocateLazilyIndex () {
+        MoneyCalculator calculator = getCalculator();
+        AllocationResult money = calculator.allocateLazily( AllocatorStrategy.FRONT_LOADING.getAllocator(), GBP_10_00, 3 );
+        money.get( 3 );
+    }
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void testAllocateLazilyImmutable () {
+        MoneyCalculator calculator = getCalculator();
+        AllocationResult money = calculator.allocateLazily( AllocatorStrategy.FRONT_LOADING.getAllocator(), GBP_10_00, 3 );
+        money.set( 0, GBP_0_00 );
+    }
+
+    @Test
+    public void testAllocateLazilyMatchesArrays () {
+        MoneyCalculator calculator = getCalculator();
+        for ( AllocatorStrategy strategy : AllocatorStrategy.values() ) {
+            for ( int len = 1; len < 20; len++ ) {
+                AllocationResult money = calculator.allocateLazily( strategy.getAllocator(), GBP_1243_21, len );
+                assertEquals( Arrays.asList( calculator.allocate( strategy.getAllocator(), GBP_1243_21, len ) ), money );
+                assertEquals( GBP_1243_21, Money.total( money ) );
+            }
+        }
+    }
+
+    @Test
+    public void testAllocateLazilyLarge () {
+        MoneyCalculator calculator = getCalculator();
+        AllocationResult money = calculator.allocateLazily( AllocatorStrategy.BACK_LOADING.getAllocator(), GBP_1243_21, 1000000 );
+        assertNotNull( money );
+        assertEquals( 1000000, money.size() );
+        assertEquals( GBP_0_00, money.get( 0 ) );
+        assertEquals( GBP_0_01, money.get( 999999 ) );
+        assertSame( money.get( 1 ), money.get( 999 ) );
+        assertEquals( GBP_1243_21, Money.total( money ) );
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.joda.money.Money;
+import org.junit.Test;
+
+import com.gigs2go.money.calculator.allocators.RatioAllocator;
+import com.gigs2go.money.calculator.allocators.RatioStrategy;
+
+/**
+ * Test Calculator ratio allocations
+ */
+public class TestCalculatorAllocateRatios extends AbstractCalculatorTest {
+    @Test( expected = IllegalArgumentException.class )
+    public void testAllocateNull () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.allocate( RatioStrategy.LARGEST_REMAINDER.getAllocator(), null, new int[] { 1 } );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testAllocateEmpty () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.allocate( RatioStrategy.LARGEST_REMAINDER.getAllocator(), GBP_10_00, new int[0] );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testAllocateNegative () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.allocate( RatioStrategy.LARGEST_REMAINDER.getAllocator(), GBP_10_00, new int[] { 1, -1 } );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testAllocateZeroes () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.allocate( RatioStrategy.LARGEST_REMAINDER.getAllocator(), GBP_10_00, new int[] { 0, 0 } );
+    }
+
+    @Test
+    public void testAllocateEqual () {
+        MoneyCalculator calculator = getCalculator();
+        Money[] money = calculator.allocate( RatioStrategy.LARGEST_REMAINDER.getAllocator(), GBP_10_00, new int[] { 1, 1, 1 } );
+        assertArrayEquals( new Money[] { GBP_3_34, GBP_3_33, GBP_3_33 }, money );
+    }
+
+    @Test
+    public void testAllocateBeyondLong () {
+        Money money = Money.parse( "GBP 1234567890123456789.01" );
+        int[] ratios = { 500, 300, 200 };
+        Money[] shares = { Money.parse( "GBP 617283945061728394.50" ), Money.parse( "GBP 370370367037037036.70" ),
+                Money.parse( "GBP 246913578024691357.80" ) };
+        Money penny = Money.parse( "GBP 0.01" );
+        assertArrayEquals( new Money[] { shares[0].plus( penny ), shares[1], shares[2] },
+                RatioStrategy.LARGEST_REMAINDER.getAllocator().allocate( money, ratios ) );
+        assertArrayEquals( new Money[] { shares[0].plus( penny ), shares[1], shares[2] },
+                RatioStrategy.FRONT_LOADING.getAllocator().allocate( money, ratios ) );
+        assertArrayEquals( new Money[] { shares[0], shares[1], shares[2].plus( penny ) },
+                RatioStrategy.BACK_LOADING.getAllocator().allocate( money, ratios ) );
+        assertArrayEquals( new Money[] { shares[0].plus( penny ).negated(), shares[1].negated(), shares[2].negated() },
+                RatioStrategy.LARGEST_REMAINDER.getAllocator().allocate( money.negated(), ratios ) );
+    }
+
+    @Test
+    public void testAllocatePercentages () {
+        MoneyCalculator calculator = getCalculator();
+        Money[] money = calculator.allocate( RatioStrategy.LARGEST_REMAINDER.getAllocator(), GBP_0_01, new int[] { 70, 20, 10 } );
+        assertArrayEquals( new Money[] { GBP_0_01, GBP_0_00, GBP_0_00 }, money );
+        money = calculator.allocate( RatioStrategy.LARGEST_REMAINDER.getAllocator(), GBP_10_01, new int[] { 70, 20, 10 } );
+        assertArrayEquals( new Money[] { GBP_7_01, GBP_2_00, GBP_1_00 }, money );
+    }
+
+    @Test
+    public void testAllocateLargestRemainder () {
+        MoneyCalculator calculator = getCalculator();
+        // 0.7, 1.4, 2.1 and 2.8 minor units
+        Money[] money = calculator.allocate( RatioStrategy.LARGEST_REMAINDER.getAllocator(), GBP_0_07, new int[] { 1, 2, 3, 4 } );
+        assertArrayEquals( new Money[] { GBP_0_01, GBP_0_01, GBP_0_02, GBP_0_03 }, money );
+    }
+
+    @Test
+    public void testAllocateFrontAndBack () {
+        MoneyCalculator calculator = getCalculator();
+        int[] ratios = { 0, 1, 1, 1, 0 };
+        assertArrayEquals( new Money[] { GBP_0_00, GBP_3_34, GBP_3_33, GBP_3_33, GBP_0_00 },
+                calculator.allocate( RatioStrategy.FRONT_LOADING.getAllocator(), GBP_10_00, ratios ) );
+        assertArrayEquals( new Money[] { GBP_0_00, GBP_3_33, GBP_3_33, GBP_3_34, GBP_0_00 },
+                calculator.allocate( RatioStrategy.BACK_LOADING.getAllocator(), GBP_10_00, ratios ) );
+    }
+
+    @Test
+    public void testAllocateBigDecimal () {
+        MoneyCalculator calculator = getCalculator();
+        BigDecimal[] ratios = { new BigDecimal( "0.5" ), new BigDecimal( "0.25" ), new BigDecimal( "0.25" ) };
+        assertArrayEquals( new Money[] { GBP_5_00, GBP_2_50, GBP_2_50 },
+                calculator.allocate( RatioStrategy.LARGEST_REMAINDER.getAllocator(), GBP_10_00, ratios ) );
+    }
+
+    @Test
+    public void testAllocateNegativeMoney () {
+        MoneyCalculator calculator = getCalculator();
+        Money[] money = calculator.allocate( RatioStrategy.LARGEST_REMAINDER.getAllocator(), GBP_10_00.negated(), new int[] { 1, 1, 1 } );
+        assertArrayEquals( new Money[] { GBP_3_34.negated(), GBP_3_33.negated(), GBP_3_33.negated() }, money );
+    }
+
+    @Test
+    public void testAllocateRandom () {
+        Random random = new Random( 20131018L );
+        for ( RatioStrategy strategy : RatioStrategy.values() ) {
+            RatioAllocator allocator = strategy.getAllocator();
+            for ( int i = 0; i < 200; i++ ) {
+                long minorUnits = random.nextLong() >> random.nextInt( 64 );
+                long[] ratios = new long[1 + random.nextInt( 500 )];
+                for ( int j = 0; j < ratios.length; j++ ) {
+                    ratios[j] = random.nextInt( 4 ) == 0 ? 0L : random.nextInt( 1000000 );
+                }
+                ratios[0] += 1;
+                long[] out = new long[ratios.length];
+                allocator.allocate( minorUnits, ratios, out, 0 );
+                BigInteger total = BigInteger.ZERO;
+                long sum = 0L;
+                for ( long ratio : ratios ) {
+                    sum += ratio;
+                }
+                for ( int j = 0; j < out.length; j++ ) {
+                    total = total.add( BigInteger.valueOf( out[j] ) );
+                    BigInteger exact = BigInteger.valueOf( minorUnits ).multiply( BigInteger.valueOf( ratios[j] ) ).divide( BigInteger.valueOf( sum ) );
+                    long difference = out[j] - exact.longValue();
+                    assertEquals( true, difference == 0 || (ratios[j] != 0 && difference == Long.signum( minorUnits )) );
+                }
+                assertEquals( BigInteger.valueOf( minorUnits ), total );
+            }
+        }
+    }
+
+}
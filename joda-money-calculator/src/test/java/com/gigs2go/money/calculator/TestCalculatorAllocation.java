@@ -0,0 +1,150 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import org.joda.money.Money;
+import org.junit.Test;
+
+import com.gigs2go.money.calculator.Allocation.Orientation;
+import com.gigs2go.money.calculator.allocators.AllocatorStrategy;
+
+/**
+ * Test Calculator minor unit and compact allocations
+ */
+public class TestCalculatorAllocation extends AbstractCalculatorTest {
+    private static final Money GBP_M10_00 = Money.parse( "GBP -10.00" );
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testAllocateNull () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.allocate( AllocatorStrategy.FRONT_LOADING.getAllocator(), null, 1, new long[1] );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testAllocateZero () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.allocate( AllocatorStrategy.FRONT_LOADING.getAllocator(), GBP_0_00, 0, new long[1] );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testAllocateTooSmall () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.allocate( AllocatorStrategy.REMAINDER.getAllocator(), GBP_10_00, 3, new long[3] );
+    }
+
+    @Test
+    public void testAllocateFront () {
+        MoneyCalculator calculator = getCalculator();
+        long[] out = new long[3];
+        assertEquals( 3, calculator.allocate( AllocatorStrategy.FRONT_LOADING.getAllocator(), GBP_10_00, 3, out ) );
+        assertArrayEquals( new long[] { 334, 333, 333 }, out );
+    }
+
+    @Test
+    public void testAllocateBack () {
+        MoneyCalculator calculator = getCalculator();
+        long[] out = new long[3];
+        assertEquals( 3, calculator.allocate( AllocatorStrategy.BACK_LOADING.getAllocator(), GBP_10_00, 3, out ) );
+        assertArrayEquals( new long[] { 333, 333, 334 }, out );
+    }
+
+    @Test
+    public void testAllocateRemainder () {
+        MoneyCalculator calculator = getCalculator();
+        long[] out = new long[4];
+        assertEquals( 4, calculator.allocate( AllocatorStrategy.REMAINDER.getAllocator(), GBP_10_00, 3, out ) );
+        assertArrayEquals( new long[] { 333, 333, 333, 1 }, out );
+    }
+
+    @Test
+    public void testAllocateOffset () {
+        long[] out = new long[5];
+        assertEquals( 3, AllocatorStrategy.BACK_LOADING.getAllocator().allocate( JPY_1000, 3, out, 2 ) );
+        assertArrayEquals( new long[] { 0, 0, 333, 333, 334 }, out );
+    }
+
+    @Test
+    public void testAllocateNegative () {
+        MoneyCalculator calculator = getCalculator();
+        long[] out = new long[3];
+        calculator.allocate( AllocatorStrategy.FRONT_LOADING.getAllocator(), GBP_M10_00, 3, out );
+        assertArrayEquals( new long[] { -334, -333, -333 }, out );
+        Money[] money = calculator.allocate( AllocatorStrategy.FRONT_LOADING.getAllocator(), GBP_M10_00, 3 );
+        assertEquals( GBP_M10_00, Money.total( money ) );
+    }
+
+    @Test
+    public void testAllocation () {
+        MoneyCalculator calculator = getCalculator();
+        Allocation allocation = calculator.allocation( AllocatorStrategy.FRONT_LOADING.getAllocator(), GBP_1243_21, 13 );
+        assertNotNull( allocation );
+        assertEquals( 13, allocation.size() );
+        assertEquals( 9563, allocation.getLow() );
+        assertEquals( 9564, allocation.getHigh() );
+        assertEquals( 10, allocation.getRemainderCount() );
+        assertEquals( Orientation.FRONT, allocation.getOrientation() );
+        assertEquals( GBP_95_64, allocation.getMoney( 9 ) );
+        assertEquals( GBP_95_63, allocation.getMoney( 10 ) );
+        Money[] money = allocation.toMoney();
+        assertSame( money[0], money[9] );
+        assertArrayEquals( calculator.allocate( AllocatorStrategy.FRONT_LOADING.getAllocator(), GBP_1243_21, 13 ), money );
+    }
+
+    @Test
+    public void testAllocationMatchesArrays () {
+        for ( AllocatorStrategy strategy : AllocatorStrategy.values() ) {
+            Allocator allocator = strategy.getAllocator();
+            for ( int len = 1; len < 20; len++ ) {
+                Allocation allocation = allocator.allocation( GBP_1243_21, len );
+                Money[] money = allocator.allocate( GBP_1243_21, len );
+                long[] out = new long[allocation.size()];
+                allocator.allocate( GBP_1243_21, len, out, 0 );
+                assertEquals( money.length, allocation.size() );
+                for ( int i = 0; i < money.length; i++ ) {
+                    assertEquals( money[i], allocation.getMoney( i ) );
+                    assertEquals( money[i].getAmountMinorLong(), out[i] );
+                }
+                assertEquals( GBP_1243_21, Money.total( money ) );
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultMethods () {
+        for ( AllocatorStrategy strategy : AllocatorStrategy.values() ) {
+            final Allocator builtIn = strategy.getAllocator();
+            // Implements only the one abstract method
+            Allocator allocator = new Allocator() {
+                @Override
+                public Money[] allocate ( Money money, int len ) {
+                    return builtIn.allocate( money, len );
+                }
+            };
+            for ( Money amount : new Money[] { GBP_1243_21, GBP_M10_00, GBP_0_01, GBP_0_00 } ) {
+                for ( int len = 1; len < 20; len++ ) {
+                    // Without a remainder, FRONT and BACK are indistinguishable
+                    assertArrayEquals( builtIn.allocation( amount, len ).toMoney(), allocator.allocation( amount, len ).toMoney() );
+                    long[] expected = new long[builtIn.allocation( amount, len ).size()];
+                    long[] out = new long[expected.length];
+                    assertEquals( builtIn.allocate( amount, len, expected, 0 ), allocator.allocate( amount, len, out, 0 ) );
+                    assertArrayEquals( expected, out );
+                }
+            }
+        }
+    }
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void testDefaultAllocationUnsupported () {
+        Allocator allocator = new Allocator() {
+            @Override
+            public Money[] allocate ( Money money, int len ) {
+                return new Money[] { GBP_5_00, GBP_2_50, GBP_2_50, GBP_0_00 };
+            }
+        };
+        allocator.allocation( GBP_10_00, 4 );
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.joda.money.BigMoney;
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.Money;
+import org.junit.Test;
+
+/**
+ * Test the Calculator's long fast path against plain BigMoney arithmetic
+ */
+public class TestCalculatorCompact extends AbstractCalculatorTest {
+    private static final Money GBP_LARGE = Money.parse( "GBP 92233720368547.75" );
+
+    @Test
+    public void testOverflowAdd () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.set( GBP_LARGE );
+        calculator.add( GBP_LARGE );
+        MoneyCalculator.Result result = calculator.result();
+        assertNotNull( result );
+        assertEquals( GBP_LARGE.plus( GBP_LARGE ), result.getValue() );
+        assertEquals( BIG_GBP_0_00000, result.getRemainder() );
+    }
+
+    @Test
+    public void testOverflowMultiply () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.set( GBP_LARGE );
+        calculator.multiply( 1000L );
+        calculator.divide( 3000L );
+        MoneyCalculator.Result result = calculator.result();
+        assertNotNull( result );
+        assertEquals( Money.parse( "GBP 30744573456182.58" ), result.getValue() );
+        assertEquals( BigMoney.parse( "GBP 0.00333" ), result.getRemainder() );
+    }
+
+    @Test
+    public void testOverflowRemainderScale () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.set( GBP_LARGE );
+        calculator.setRemainderScale( 12 );
+        calculator.divide( LONG_3 );
+        MoneyCalculator.Result result = calculator.result();
+        assertNotNull( result );
+        assertEquals( Money.parse( "GBP 30744573456182.58" ), result.getValue() );
+        assertEquals( BigMoney.parse( "GBP 0.003333333333" ), result.getRemainder() );
+    }
+
+    @Test
+    public void testUnscaledLong () {
+        assertEquals( 1000L, ScaledArithmetic.unscaledLong( GBP_10_00 ) );
+        assertEquals( Long.MIN_VALUE, ScaledArithmetic.unscaledLong( Money.ofMinor( GBP, Long.MIN_VALUE ) ) );
+        assertEquals( 1000L, ScaledArithmetic.unscaledLong( JPY_1000 ) );
+    }
+
+    @Test( expected = ArithmeticException.class )
+    public void testUnscaledLongOverflow () {
+        ScaledArithmetic.unscaledLong( Money.ofMinor( GBP, Long.MAX_VALUE ).plusMinor( 1L ) );
+    }
+
+    @Test( expected = CurrencyMismatchException.class )
+    public void testCurrencyMismatch () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.set( GBP_1_23 );
+        calculator.add( JPY_1000 );
+    }
+
+    @Test( expected = ArithmeticException.class )
+    public void testRoundingNecessary () {
+        MoneyCalculator calculator = getCalculator( RoundingMode.UNNECESSARY );
+        calculator.set( GBP_10_00 );
+        calculator.divide( LONG_3 );
+    }
+
+    @Test
+    public void testRandomChains () {
+        Random random = new Random( 20131018L );
+        RoundingMode[] modes = { RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR, RoundingMode.HALF_UP,
+                RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN };
+        for ( int i = 0; i < 5000; i++ ) {
+            RoundingMode roundingMode = modes[random.nextInt( modes.length )];
+            Money initial = Money.ofMinor( random.nextBoolean() ? GBP : JPY, random.nextLong() >> random.nextInt( 64 ) );
+            MoneyCalculator calculator = getCalculator( roundingMode );
+            calculator.set( initial );
+            BigMoney expected = initial.toBigMoney().withScale( initial.getScale() + 3 );
+            for ( int step = 0; step < 6; step++ ) {
+                long operand = (random.nextLong() >> random.nextInt( 64 )) | 1L;
+                BigDecimal factor = BigDecimal.valueOf( operand, random.nextInt( 6 ) );
+                Money amount = Money.ofMinor( initial.getCurrencyUnit(), operand );
+                switch ( random.nextInt( 6 ) ) {
+                case 0:
+                    calculator.add( amount );
+                    expected = expected.plus( amount );
+                    break;
+                case 1:
+                    calculator.subtract( amount );
+                    expected = expected.minus( amount );
+                    break;
+                case 2:
+                    calculator.multiply( operand );
+                    expected = expected.multipliedBy( operand );
+                    break;
+                case 3:
+                    calculator.multiply( factor );
+                    expected = expected.multipliedBy( factor );
+                    break;
+                case 4:
+                    calculator.divide( operand );
+                    expected = expected.dividedBy( operand, roundingMode );
+                    break;
+                default:
+                    calculator.divide( factor );
+                    expected = expected.dividedBy( factor, roundingMode );
+                    break;
+                }
+            }
+            MoneyCalculator.Result result = calculator.result();
+            Money expectedValue = expected.withCurrencyScale( roundingMode ).toMoney();
+            assertEquals( expectedValue, result.getValue() );
+            assertEquals( expected.minus( expectedValue ).withScale( initial.getScale() + 3, roundingMode ), result.getRemainder() );
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.joda.money.BigMoney;
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.Money;
+import org.junit.Test;
+
+/**
+ * Test Calculator exact mode against BigDecimal rational arithmetic
+ */
+public class TestCalculatorExact extends AbstractCalculatorTest {
+    private MoneyCalculator getExactCalculator () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.setExact( true );
+        return calculator;
+    }
+
+    @Test
+    public void testDivideMultiply () {
+        MoneyCalculator calculator = getExactCalculator();
+        assertTrue( calculator.isExact() );
+        MoneyCalculator.Result result = calculator.set( GBP_10_00 ).divide( LONG_3 ).multiply( LONG_3 ).result();
+        assertEquals( GBP_10_00, result.getValue() );
+        assertTrue( result.getRemainder().isZero() );
+        assertTrue( calculator.isRemainderZero() );
+
+        // Not exact, the remainder of 10.00 / 3 is lost
+        MoneyCalculator inexact = getCalculator();
+        assertFalse( inexact.isExact() );
+        assertFalse( inexact.set( GBP_10_00 ).divide( LONG_3 ).multiply( LONG_3 ).isRemainderZero() );
+    }
+
+    @Test
+    public void testDivide () {
+        MoneyCalculator calculator = getExactCalculator();
+        MoneyCalculator.Result result = calculator.set( GBP_10_00 ).divide( LONG_3 ).result();
+        assertEquals( GBP_3_33, result.getValue() );
+        assertEquals( BigMoney.parse( "GBP 0.00333" ), result.getRemainder() );
+        assertEquals( 333L, calculator.resultMinorUnits() );
+        assertEquals( 334L, calculator.resultMinorUnits( RoundingMode.UP ) );
+        assertEquals( -667L, calculator.remainderUnscaled( RoundingMode.UP ) );
+        result = calculator.set( GBP_10_00 ).divide( 0.25 ).divide( new BigDecimal( "1E+1" ) ).result();
+        assertEquals( Money.parse( "GBP 4.00" ), result.getValue() );
+    }
+
+    @Test
+    public void testAdd () {
+        MoneyCalculator calculator = getExactCalculator();
+        MoneyCalculator.Result result = calculator.set( GBP_1_00 ).divide( LONG_3 ).add( GBP_1_00 ).subtract( GBP_0_01 ).result();
+        assertEquals( Money.parse( "GBP 1.32" ), result.getValue() );
+        assertEquals( BigMoney.parse( "GBP 0.00333" ), result.getRemainder() );
+    }
+
+    @Test( expected = CurrencyMismatchException.class )
+    public void testCurrencyMismatch () {
+        MoneyCalculator calculator = getExactCalculator();
+        calculator.set( Money.ofMinor( GBP, Long.MAX_VALUE ) ).divide( LONG_3 ).add( JPY_1000 );
+    }
+
+    @Test( expected = ArithmeticException.class )
+    public void testDivideByZero () {
+        getExactCalculator().set( GBP_1_00 ).divide( LONG_0 );
+    }
+
+    @Test
+    public void testClear () {
+        MoneyCalculator calculator = getExactCalculator();
+        calculator.set( GBP_1_00 ).divide( LONG_3 );
+        calculator.setExact( false );
+        assertEquals( GBP_10_00, calculator.set( GBP_10_00 ).result().getValue() );
+    }
+
+    @Test
+    public void testRandom () {
+        Random random = new Random( 20131026L );
+        RoundingMode[] modes = { RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR, RoundingMode.HALF_UP,
+                RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN };
+        MoneyCalculator calculator = getExactCalculator();
+        for ( int i = 0; i < 2000; i++ ) {
+            RoundingMode roundingMode = modes[random.nextInt( modes.length )];
+            Money amount = Money.ofMinor( GBP, random.nextLong() >> random.nextInt( 64 ) );
+            calculator.set( amount );
+            BigDecimal numerator = amount.getAmount();
+            BigInteger denominator = BigInteger.ONE;
+            // Long chains overflow a long denominator
+            for ( int j = random.nextInt( 12 ); j > 0; j-- ) {
+                switch ( random.nextInt( 3 ) ) {
+                case 0:
+                    long by = 1 + random.nextInt( 1000000 );
+                    calculator.divide( by );
+                    denominator = denominator.multiply( BigInteger.valueOf( by ) );
+                    break;
+                case 1:
+                    BigDecimal factor = BigDecimal.valueOf( random.nextInt( 100000 ) - 50000, 4 );
+                    calculator.multiply( factor );
+                    numerator = numerator.multiply( factor );
+                    break;
+                default:
+                    Money add = Money.ofMinor( GBP, random.nextInt() );
+                    calculator.add( add );
+                    numerator = numerator.add( add.getAmount().multiply( new BigDecimal( denominator ) ) );
+                    break;
+                }
+            }
+            BigDecimal divisor = new BigDecimal( denominator );
+            BigDecimal value = numerator.divide( divisor, 2, roundingMode );
+            BigDecimal remainder = numerator.subtract( value.multiply( divisor ) ).divide( divisor, calculator.getRemainderScale(), roundingMode );
+            MoneyCalculator.Result result = calculator.result( roundingMode );
+            assertEquals( Money.of( GBP, value ), result.getValue() );
+            assertEquals( BigMoney.of( GBP, remainder ), result.getRemainder() );
+            assertEquals( remainder.signum() == 0, calculator.isRemainderZero( roundingMode ) );
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.joda.money.BigMoney;
+import org.joda.money.Money;
+import org.junit.Test;
+
+/**
+ * Test MoneyCalculatorPool, reset() and reusable Results
+ */
+public class TestCalculatorPool extends AbstractCalculatorTest {
+    @Test
+    public void testReset () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.set( GBP_10_00 );
+        assertEquals( 5, calculator.result().getRemainder().getScale() );
+        // clear() retains the increased remainderScale, reset() does not
+        assertEquals( 5, calculator.clear().set( JPY_1000 ).result().getRemainder().getScale() );
+        assertEquals( 3, calculator.reset().set( JPY_1000 ).result().getRemainder().getScale() );
+    }
+
+    @Test
+    public void testResultRefill () {
+        MoneyCalculator calculator = getCalculator();
+        MoneyCalculator.Result result = new MoneyCalculator.Result();
+        assertSame( result, calculator.set( GBP_10_00 ).divide( LONG_3 ).result( result ) );
+        assertEquals( GBP_3_33, result.getValue() );
+        assertEquals( 333L, result.getValueMinorUnits() );
+        assertEquals( 333L, result.getRemainderUnscaled() );
+        assertEquals( 5, result.getRemainderScale() );
+        assertEquals( BigMoney.of( GBP, new BigDecimal( "0.00333" ) ), result.getRemainder() );
+
+        assertSame( result, calculator.set( GBP_10_02 ).divide( LONG_3 ).result( RoundingMode.UP, result ) );
+        assertEquals( GBP_3_34, result.getValue() );
+        assertEquals( BigMoney.of( GBP, new BigDecimal( "0.00000" ) ), result.getRemainder() );
+    }
+
+    @Test
+    public void testResultRefillOverflow () {
+        MoneyCalculator calculator = getCalculator();
+        MoneyCalculator.Result result = new MoneyCalculator.Result();
+        // Large enough to overflow a long at the remainderScale
+        Money large = Money.ofMinor( GBP, Long.MAX_VALUE / 10 );
+        MoneyCalculator.Result expected = calculator.set( large ).multiply( LONG_3 ).divide( 7L ).result();
+        calculator.set( large ).multiply( LONG_3 ).divide( 7L ).result( result );
+        assertEquals( expected.getValue(), result.getValue() );
+        assertEquals( expected.getRemainder(), result.getRemainder() );
+        assertEquals( expected.getValue().getAmountMinorLong(), result.getValueMinorUnits() );
+        assertEquals( expected.getRemainder().getAmount().unscaledValue().longValue(), result.getRemainderUnscaled() );
+        assertEquals( 5, result.getRemainderScale() );
+    }
+
+    @Test
+    public void testPool () throws InterruptedException {
+        final MoneyCalculatorPool pool = new MoneyCalculatorPool( RoundingMode.DOWN );
+        MoneyCalculator calculator = pool.get();
+        assertSame( calculator, pool.get() );
+        assertSame( pool.getResult(), pool.getResult() );
+        MoneyCalculator.Result result = calculator.set( GBP_10_02 ).divide( LONG_3 ).result( pool.getResult() );
+        assertEquals( GBP_3_34, result.getValue() );
+        assertEquals( 3, pool.get().set( JPY_1000 ).result().getRemainder().getScale() );
+
+        final AtomicReference<MoneyCalculator> other = new AtomicReference<MoneyCalculator>();
+        Thread thread = new Thread( new Runnable() {
+            @Override
+            public void run () {
+                other.set( pool.get() );
+            }
+        } );
+        thread.start();
+        thread.join();
+        assertNotSame( calculator, other.get() );
+
+        pool.remove();
+        assertNotSame( calculator, pool.get() );
+    }
+
+    @Test
+    public void testPoolResetsExact () {
+        MoneyCalculatorPool pool = new MoneyCalculatorPool();
+        pool.get().setExact( true );
+        assertFalse( pool.get().isExact() );
+    }
+}
@@ -0,0 +1,76 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.joda.money.Money;
+import org.junit.Test;
+
+/**
+ * Test Calculator multiply and divide by Rate against double and BigDecimal
+ */
+public class TestCalculatorRate extends AbstractCalculatorTest {
+    @Test
+    public void testOf () {
+        assertEquals( BigDecimal.valueOf( 1.0725 ), Rate.of( 1.0725 ).getValue() );
+        assertEquals( Rate.of( new BigDecimal( "1.0725" ) ), Rate.of( 1.0725 ) );
+        assertFalse( Rate.of( new BigDecimal( "123456789012345678901234567890.5" ) ).isCompact() );
+    }
+
+    @Test( expected = NumberFormatException.class )
+    public void testNaN () {
+        Rate.of( Double.NaN );
+    }
+
+    @Test
+    public void testMultiply () {
+        assertEquals( GBP_2_50, getCalculator().multiply( GBP_1_00, Rate.of( 2.5 ) ).result().getValue() );
+        assertEquals( GBP_1_00, getCalculator().divide( GBP_2_50, Rate.of( 2.5 ) ).result().getValue() );
+    }
+
+    @Test( expected = ArithmeticException.class )
+    public void testDivideByZero () {
+        getCalculator().set( GBP_1_00 ).divide( Rate.of( 0.0 ) );
+    }
+
+    @Test
+    public void testRandom () {
+        Random random = new Random( 20131027L );
+        RoundingMode[] modes = { RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR, RoundingMode.HALF_UP,
+                RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN };
+        for ( int i = 0; i < 2000; i++ ) {
+            RoundingMode roundingMode = modes[random.nextInt( modes.length )];
+            Money amount = Money.ofMinor( GBP, random.nextLong() >> random.nextInt( 64 ) );
+            double multiplier = random.nextDouble() * 10.0;
+            double divisor = 0.01 + random.nextDouble() * 100.0;
+            Rate multiplyRate = Rate.of( multiplier );
+            Rate divideRate = (random.nextBoolean() ? Rate.of( divisor ) : Rate.of( new BigDecimal( "1E+3" ) ));
+            MoneyCalculator.Result expected = new MoneyCalculator( roundingMode ).set( amount ).multiply( multiplier ).divide(
+                    divideRate.getValue() ).result();
+            MoneyCalculator.Result result = new MoneyCalculator( roundingMode ).set( amount ).multiply( multiplyRate ).divide( divideRate )
+                    .result();
+            assertEquals( expected.getValue(), result.getValue() );
+            assertEquals( expected.getRemainder(), result.getRemainder() );
+        }
+    }
+
+    @Test
+    public void testBatch () {
+        Rate rate = Rate.of( 1.0425 );
+        long[] amounts = { 100L, 12345L, -99999L, Long.MAX_VALUE / 2 };
+        long[] expected = new long[amounts.length];
+        long[] values = new long[amounts.length];
+        new BatchMoneyCalculator( GBP ).multiply( 1.0425 ).divide( 365L ).calculate( amounts, expected, null );
+        new BatchMoneyCalculator( GBP ).multiply( rate ).divide( 365L ).calculate( amounts, values, null );
+        for ( int i = 0; i < amounts.length; i++ ) {
+            assertEquals( expected[i], values[i] );
+        }
+        MoneyProgram program = new MoneyProgram.Builder().multiply( rate ).divide( Rate.of( 365.0 ) ).build();
+        assertEquals( getCalculator().set( GBP_10_00 ).multiply( rate ).divide( 365.0 ).result().getValue(), program.run( GBP_10_00 )
+                .getValue() );
+    }
+}
@@ -0,0 +1,69 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.joda.money.Money;
+import org.junit.Test;
+
+/**
+ * Test Calculator primitive result accessors against result()
+ */
+public class TestCalculatorResultMinorUnits extends AbstractCalculatorTest {
+    @Test
+    public void testDivide () {
+        MoneyCalculator calculator = getCalculator();
+        calculator.set( GBP_10_00 ).divide( LONG_3 );
+        assertEquals( 333L, calculator.resultMinorUnits() );
+        assertEquals( 334L, calculator.resultMinorUnits( RoundingMode.UP ) );
+        assertEquals( 333L, calculator.remainderUnscaled() );
+        assertEquals( -667L, calculator.remainderUnscaled( RoundingMode.UP ) );
+        assertEquals( 5, calculator.getRemainderScale() );
+        assertFalse( calculator.isRemainderZero() );
+        assertTrue( calculator.set( GBP_10_02 ).divide( LONG_3 ).isRemainderZero() );
+    }
+
+    @Test( expected = ArithmeticException.class )
+    public void testUnnecessary () {
+        getCalculator().set( GBP_10_00 ).divide( LONG_3 ).resultMinorUnits( RoundingMode.UNNECESSARY );
+    }
+
+    @Test( expected = ArithmeticException.class )
+    public void testTooLarge () {
+        getCalculator().set( Money.ofMinor( GBP, Long.MAX_VALUE ) ).multiply( LONG_3 ).resultMinorUnits();
+    }
+
+    @Test
+    public void testOverflow () {
+        MoneyCalculator calculator = getCalculator();
+        // Overflows a long at the remainderScale, but the result fits
+        calculator.set( Money.ofMinor( GBP, Long.MAX_VALUE / 10 ) ).multiply( LONG_3 ).divide( 7L );
+        MoneyCalculator.Result expected = calculator.result();
+        assertEquals( expected.getValue().getAmountMinorLong(), calculator.resultMinorUnits() );
+        assertEquals( expected.getRemainder().getAmount().unscaledValue().longValue(), calculator.remainderUnscaled() );
+        assertEquals( expected.getRemainder().isZero(), calculator.isRemainderZero() );
+    }
+
+    @Test
+    public void testRandom () {
+        Random random = new Random( 20131021L );
+        RoundingMode[] modes = { RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR, RoundingMode.HALF_UP,
+                RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN };
+        MoneyCalculator calculator = getCalculator();
+        for ( int i = 0; i < 2000; i++ ) {
+            RoundingMode roundingMode = modes[random.nextInt( modes.length )];
+            calculator.set( Money.ofMinor( GBP, random.nextLong() >> (12 + random.nextInt( 52 )) ) );
+            calculator.multiply( BigDecimal.valueOf( random.nextInt( 100000 ), 4 ) ).divide( 1 + random.nextInt( 1000 ) );
+            MoneyCalculator.Result expected = calculator.result( roundingMode );
+            assertEquals( expected.getValue().getAmountMinorLong(), calculator.resultMinorUnits( roundingMode ) );
+            assertEquals( expected.getRemainder().getAmount().unscaledValue().longValue(), calculator.remainderUnscaled( roundingMode ) );
+            assertEquals( expected.getRemainder().getScale(), calculator.getRemainderScale() );
+            assertEquals( expected.getRemainder().isZero(), calculator.isRemainderZero( roundingMode ) );
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.joda.money.Money;
+import org.junit.Test;
+
+/**
+ * Test CurrencyConverter, RateTable and MoneyCalculator.convert()
+ */
+public class TestCurrencyConverter extends AbstractCalculatorTest {
+    private static final RateTable RATES = new RateTable.Builder().put( GBP, JPY, new BigDecimal( "150.25" ) ).put( JPY, GBP, 0.0066 )
+            .build();
+
+    @Test
+    public void testRateTable () {
+        assertEquals( 2, RATES.size() );
+        assertEquals( new BigDecimal( "150.25" ), RATES.getRate( GBP, JPY ).getValue() );
+        assertEquals( new BigDecimal( "1.5025" ), RATES.getMinorUnitRate( GBP, JPY ).getValue() );
+        assertEquals( new BigDecimal( "0.66" ), RATES.getMinorUnitRate( JPY, GBP ).getValue() );
+        assertTrue( RATES.contains( GBP, GBP ) );
+        assertEquals( 0, BigDecimal.ONE.compareTo( RATES.getRate( GBP, GBP ).getValue() ) );
+        assertFalse( new RateTable.Builder().put( GBP, JPY, 150.25 ).build().contains( JPY, GBP ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testMissingRate () {
+        new RateTable.Builder().put( GBP, JPY, 150.25 ).build().getRate( JPY, GBP );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testInvalidRate () {
+        new RateTable.Builder().put( GBP, JPY, 0.0 );
+    }
+
+    @Test
+    public void testConvert () {
+        MoneyCalculator.Result result = new CurrencyConverter( RATES ).convert( GBP_10_00, JPY );
+        assertEquals( Money.ofMajor( JPY, 1503 ), result.getValue() );
+        assertEquals( 0, new BigDecimal( "-0.5" ).compareTo( result.getRemainder().getAmount() ) );
+        assertEquals( JPY, result.getRemainder().getCurrencyUnit() );
+        assertEquals( GBP_10_00, new CurrencyConverter( RATES ).convert( GBP_10_00, GBP ).getValue() );
+    }
+
+    @Test
+    public void testCalculatorConvert () {
+        assertEquals( Money.ofMajor( JPY, 1503 ), getCalculator().set( GBP_10_00 ).convert( RATES, JPY ).result().getValue() );
+        // 1502.5 * 0.0066 = 9.9165, rounded once
+        assertEquals( Money.parse( "GBP 9.92" ), getCalculator().set( GBP_10_00 ).convert( RATES, JPY ).convert( RATES, GBP ).result()
+                .getValue() );
+        assertEquals( Money.parse( "GBP 19.92" ), getCalculator().set( GBP_10_00 ).convert( RATES, JPY ).convert( RATES, GBP ).add(
+                GBP_10_00 ).result().getValue() );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testCalculatorMissingRate () {
+        getCalculator().set( GBP_10_00 ).convert( new RateTable.Builder().build(), JPY );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testCalculatorConvertUnset () {
+        getCalculator().convert( RATES, JPY );
+    }
+
+    @Test
+    public void testSetRateTable () {
+        CurrencyConverter converter = new CurrencyConverter( RATES );
+        RateTable updated = new RateTable.Builder().put( GBP, JPY, 200 ).build();
+        assertSame( RATES, converter.setRateTable( updated ) );
+        assertSame( updated, converter.getRateTable() );
+        assertEquals( Money.ofMajor( JPY, 2000 ), converter.convert( GBP_10_00, JPY ).getValue() );
+    }
+
+    @Test
+    public void testBatch () {
+        Random random = new Random( 20131102L );
+        RoundingMode[] modes = { RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR, RoundingMode.HALF_UP,
+                RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN };
+        for ( RoundingMode roundingMode : modes ) {
+            CurrencyConverter converter = new CurrencyConverter( RATES, roundingMode );
+            long[] amounts = new long[500];
+            for ( int i = 0; i < amounts.length; i++ ) {
+                amounts[i] = random.nextLong() >> (1 + random.nextInt( 63 ));
+            }
+            amounts[0] = Long.MAX_VALUE / 2;
+            long[] values = new long[amounts.length];
+            long[] remainders = new long[amounts.length];
+            converter.convert( GBP, JPY, amounts, values, remainders );
+            for ( int i = 0; i < amounts.length; i++ ) {
+                MoneyCalculator.Result expected = converter.convert( Money.ofMinor( GBP, amounts[i] ), JPY );
+                assertEquals( expected.getValue(), Money.ofMinor( JPY, values[i] ) );
+                assertEquals( expected.getRemainder().getAmount(), BigDecimal.valueOf( remainders[i], 3 ) );
+            }
+        }
+    }
+}
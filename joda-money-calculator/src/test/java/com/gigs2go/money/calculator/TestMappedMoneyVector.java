@@ -0,0 +1,162 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gigs2go.money.calculator.allocators.AllocatorStrategy;
+
+/**
+ * Test MappedMoneyVector against MoneyVector
+ */
+public class TestMappedMoneyVector extends AbstractCalculatorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPersist () throws IOException {
+        File file = folder.newFile( "gbp.jmv" );
+        MappedMoneyVector vector = MappedMoneyVector.create( file.toPath(), GBP, 3L );
+        vector.set( 0L, GBP_10_00 ).set( 1L, 123L ).set( 2L, Long.MIN_VALUE );
+        vector.close();
+        assertEquals( MappedMoneyVector.HEADER_SIZE + 24L, file.length() );
+
+        vector = MappedMoneyVector.openReadOnly( file.toPath() );
+        assertEquals( GBP, vector.getCurrencyUnit() );
+        assertEquals( 3L, vector.size() );
+        assertEquals( GBP_10_00, vector.get( 0L ) );
+        assertEquals( GBP_1_23, vector.get( 1L ) );
+        assertEquals( Long.MIN_VALUE, vector.getMinorUnits( 2L ) );
+        assertEquals( Money.ofMinor( GBP, Long.MIN_VALUE + 1123L ), vector.total() );
+        vector.close();
+    }
+
+    @Test( expected = ReadOnlyBufferException.class )
+    public void testReadOnly () throws IOException {
+        File file = folder.newFile( "gbp.jmv" );
+        MappedMoneyVector.create( file.toPath(), GBP, 1L ).close();
+        MappedMoneyVector vector = MappedMoneyVector.openReadOnly( file.toPath() );
+        try {
+            vector.set( 0L, 1L );
+        } finally {
+            vector.close();
+        }
+    }
+
+    @Test( expected = IOException.class )
+    public void testNotAVector () throws IOException {
+        File file = folder.newFile( "other.jmv" );
+        Files.write( file.toPath(), new byte[MappedMoneyVector.HEADER_SIZE] );
+        MappedMoneyVector.open( file.toPath() );
+    }
+
+    @Test( expected = IOException.class )
+    public void testUnknownCurrency () throws IOException {
+        File file = folder.newFile( "xyz.jmv" );
+        MappedMoneyVector.create( file.toPath(), GBP, 1L ).close();
+        byte[] bytes = Files.readAllBytes( file.toPath() );
+        bytes[4] = 'Q';
+        bytes[5] = 'Q';
+        bytes[6] = 'Q';
+        Files.write( file.toPath(), bytes );
+        MappedMoneyVector.open( file.toPath() );
+    }
+
+    @Test( expected = IndexOutOfBoundsException.class )
+    public void testIndex () throws IOException {
+        MappedMoneyVector vector = MappedMoneyVector.create( folder.newFile( "gbp.jmv" ).toPath(), GBP, 1L );
+        try {
+            vector.getMinorUnits( 1L );
+        } finally {
+            vector.close();
+        }
+    }
+
+    @Test
+    public void testCalculate () throws IOException {
+        Random random = new Random( 20131023L );
+        long[] amounts = new long[20000];
+        for ( int i = 0; i < amounts.length; i++ ) {
+            amounts[i] = random.nextLong() >> (8 + random.nextInt( 56 ));
+        }
+        MappedMoneyVector vector = MappedMoneyVector.create( folder.newFile( "gbp.jmv" ).toPath(), GBP, amounts.length );
+        vector.write( 0L, amounts, 0, amounts.length );
+        MoneyVector expected = MoneyVector.of( GBP, amounts );
+        assertEquals( expected.sum(), vector.total() );
+        MoneyCalculator.Result average = new MoneyCalculator().set( expected.sum() ).divide( 3L ).result();
+        MoneyCalculator.Result result = vector.sum( new MoneyCalculator() ).divide( 3L ).result();
+        assertEquals( average.getValue(), result.getValue() );
+        assertEquals( average.getRemainder(), result.getRemainder() );
+
+        BigDecimal factor = new BigDecimal( "0.9731" );
+        vector.scale( factor, RoundingMode.HALF_EVEN, vector );
+        long[] scaled = new long[amounts.length];
+        vector.read( 0L, scaled, 0, scaled.length );
+        MoneyVector expectedScaled = expected.scale( factor, RoundingMode.HALF_EVEN );
+        for ( int i = 0; i < amounts.length; i++ ) {
+            assertEquals( expectedScaled.getMinorUnits( i ), scaled[i] );
+        }
+
+        assertArrayEquals( AllocatorStrategy.FRONT_LOADING.getAllocator().allocate( vector.get( 7L ), 12 ),
+                vector.allocate( 7L, AllocatorStrategy.FRONT_LOADING.getAllocator(), 12 ).toMoney() );
+        vector.close();
+    }
+
+    @Test
+    public void testAllocate () throws IOException {
+        MappedMoneyVector vector = MappedMoneyVector.create( folder.newFile( "gbp.jmv" ).toPath(), GBP, 1L );
+        try {
+            vector.set( 0L, GBP_10_01 );
+            Allocator allocator = AllocatorStrategy.REMAINDER.getAllocator();
+            assertArrayEquals( allocator.allocate( GBP_10_01, 3 ), vector.allocate( 0L, allocator, 3 ).toMoney() );
+        } finally {
+            vector.close();
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testAllocateZero () throws IOException {
+        MappedMoneyVector vector = MappedMoneyVector.create( folder.newFile( "gbp.jmv" ).toPath(), GBP, 1L );
+        try {
+            vector.allocate( 0L, AllocatorStrategy.REMAINDER.getAllocator(), 0 );
+        } finally {
+            vector.close();
+        }
+    }
+
+    @Test
+    public void testScaleInPlaceOverflow () throws IOException {
+        long[] amounts = new long[20000];
+        Arrays.fill( amounts, 100L );
+        amounts[amounts.length - 1] = Long.MAX_VALUE / 2;
+        MappedMoneyVector vector = MappedMoneyVector.create( folder.newFile( "gbp.jmv" ).toPath(), GBP, amounts.length );
+        try {
+            vector.write( 0L, amounts, 0, amounts.length );
+            try {
+                vector.scale( new BigDecimal( 3 ), RoundingMode.HALF_EVEN, vector );
+                fail( "Expected ArithmeticException" );
+            } catch ( ArithmeticException e ) {
+                // Expected
+            }
+            long[] unchanged = new long[amounts.length];
+            vector.read( 0L, unchanged, 0, unchanged.length );
+            assertArrayEquals( amounts, unchanged );
+        } finally {
+            vector.close();
+        }
+    }
+}
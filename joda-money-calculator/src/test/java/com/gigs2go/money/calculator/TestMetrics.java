@@ -0,0 +1,104 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.RoundingMode;
+
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gigs2go.money.calculator.MetricsRecorder.Event;
+import com.gigs2go.money.calculator.allocators.AllocatorStrategy;
+import com.gigs2go.money.calculator.allocators.RatioStrategy;
+
+/**
+ * Test Metrics with the InMemoryMetricsRecorder
+ */
+public class TestMetrics extends AbstractCalculatorTest {
+    private InMemoryMetricsRecorder recorder;
+
+    @Before
+    public void install () {
+        recorder = new InMemoryMetricsRecorder();
+        Metrics.setRecorder( recorder );
+    }
+
+    @After
+    public void uninstall () {
+        Metrics.setRecorder( null );
+    }
+
+    @Test
+    public void testDisabled () {
+        Metrics.setRecorder( null );
+        assertNull( Metrics.getRecorder() );
+        getCalculator().set( GBP_10_00 ).divide( LONG_3 ).result();
+        assertEquals( 0L, recorder.getCount( Event.SET ) );
+    }
+
+    @Test
+    public void testEvents () {
+        assertSame( recorder, Metrics.getRecorder() );
+        MoneyCalculator calculator = getCalculator();
+        calculator.set( GBP_10_00 ).add( GBP_1_00 ).subtract( GBP_1_00 ).multiply( LONG_3 ).divide( LONG_6 ).result();
+        calculator.set( GBP_10_02 ).divide( LONG_3 ).result( RoundingMode.DOWN );
+        assertEquals( 2L, recorder.getCount( Event.SET ) );
+        assertEquals( 1L, recorder.getCount( Event.ADD ) );
+        assertEquals( 1L, recorder.getCount( Event.SUBTRACT ) );
+        assertEquals( 1L, recorder.getCount( Event.MULTIPLY ) );
+        assertEquals( 2L, recorder.getCount( Event.DIVIDE ) );
+        assertEquals( 2L, recorder.getCount( Event.RESULT ) );
+        assertEquals( 0L, recorder.getCount( Event.PROMOTION ) );
+        assertEquals( 1L, recorder.getCount( RoundingMode.HALF_UP ) );
+        assertEquals( 1L, recorder.getCount( RoundingMode.DOWN ) );
+        assertEquals( 0L, recorder.getNonZeroRemainderCount() );
+        assertTrue( recorder.getResultNanos() >= 0L );
+
+        calculator.set( GBP_10_00 ).divide( LONG_3 ).result();
+        assertEquals( 1L, recorder.getNonZeroRemainderCount() );
+        calculator.set( Money.ofMinor( GBP, Long.MAX_VALUE ) ).multiply( LONG_3 );
+        assertEquals( 1L, recorder.getCount( Event.PROMOTION ) );
+
+        recorder.reset();
+        assertEquals( 0L, recorder.getCount( Event.SET ) );
+    }
+
+    @Test
+    public void testAllocations () {
+        AllocatorStrategy.FRONT_LOADING.getAllocator().allocate( GBP_10_00, 3 );
+        AllocatorStrategy.REMAINDER.getAllocator().allocate( GBP_10_00, 3, new long[4], 0 );
+        AllocatorStrategy.BACK_LOADING.getAllocator().allocation( GBP_10_00, 1000 );
+        RatioStrategy.LARGEST_REMAINDER.getAllocator().allocate( GBP_10_00, new int[] { 1, 2 } );
+        long[] histogram = recorder.getAllocationHistogram();
+        // 3 is in bucket 2, 1000 in bucket 10, 2 in bucket 2
+        assertEquals( 3L, histogram[2] );
+        assertEquals( 1L, histogram[10] );
+        assertEquals( 4L, recorder.getCount( Event.ALLOCATION ) );
+    }
+
+    @Test
+    public void testRecord () {
+        Metrics.recordEvent( Event.PROMOTION );
+        Metrics.recordAllocation( 5 );
+        assertEquals( 1L, recorder.getCount( Event.PROMOTION ) );
+        assertEquals( 1L, recorder.getCount( Event.ALLOCATION ) );
+        assertEquals( 1L, recorder.getAllocationHistogram()[3] );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testRecordCalculatorEvent () {
+        Metrics.recordEvent( Event.ADD );
+    }
+
+    @Test
+    public void testRatioPromotion () {
+        RatioStrategy.LARGEST_REMAINDER.getAllocator().allocate( Money.parse( "GBP 1234567890123456789.01" ), new int[] { 1, 2 } );
+        assertEquals( 1L, recorder.getCount( Event.PROMOTION ) );
+        assertEquals( 1L, recorder.getCount( Event.ALLOCATION ) );
+    }
+}
@@ -0,0 +1,80 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.money.BigMoney;
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.Money;
+import org.junit.Test;
+
+/**
+ * Test MoneyAccumulator
+ */
+public class TestMoneyAccumulator extends AbstractCalculatorTest {
+    @Test( expected = CurrencyMismatchException.class )
+    public void testCurrencyMismatch () {
+        new MoneyAccumulator( GBP ).add( JPY_1000 );
+    }
+
+    @Test
+    public void testEmpty () {
+        MoneyCalculator.Result result = new MoneyAccumulator( GBP ).sum();
+        assertEquals( GBP_0_00, result.getValue() );
+        assertEquals( BigMoney.of( GBP, new BigDecimal( "0.00000" ) ), result.getRemainder() );
+    }
+
+    @Test
+    public void testAddSubtract () {
+        MoneyAccumulator accumulator = new MoneyAccumulator( GBP );
+        accumulator.add( GBP_10_00 ).add( GBP_3_33 ).subtract( GBP_1_00 ).add( 7L );
+        assertEquals( Money.parse( "GBP 12.40" ), accumulator.total() );
+        MoneyCalculator.Result expected = new MoneyCalculator().set( GBP_10_00 ).add( GBP_3_33 ).subtract( GBP_1_00 ).add( GBP_0_07 ).result();
+        MoneyCalculator.Result result = accumulator.sum();
+        assertEquals( expected.getValue(), result.getValue() );
+        assertEquals( expected.getRemainder(), result.getRemainder() );
+        assertEquals( GBP_0_00, accumulator.reset().total() );
+    }
+
+    @Test
+    public void testRemainderScale () {
+        MoneyAccumulator accumulator = new MoneyAccumulator( GBP, 7, RoundingMode.DOWN );
+        assertEquals( BigMoney.of( GBP, new BigDecimal( "0.0000000" ) ), accumulator.add( GBP_2_50 ).sum().getRemainder() );
+    }
+
+    @Test
+    public void testOverflow () {
+        MoneyAccumulator accumulator = new MoneyAccumulator( GBP );
+        accumulator.add( Long.MAX_VALUE ).add( Long.MAX_VALUE ).add( 2L );
+        assertEquals( Money.of( GBP, new BigDecimal( "184467440737095516.16" ) ), accumulator.total() );
+        accumulator.subtract( Money.ofMinor( GBP, Long.MIN_VALUE ) );
+        assertEquals( Money.of( GBP, new BigDecimal( "276701161105643274.24" ) ), accumulator.total() );
+        accumulator.subtract( Money.of( GBP, new BigDecimal( "276701161105643274.24" ) ) );
+        assertEquals( GBP_0_00, accumulator.sum().getValue() );
+    }
+
+    @Test
+    public void testConcurrent () throws InterruptedException {
+        final MoneyAccumulator accumulator = new MoneyAccumulator( GBP );
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        for ( int thread = 0; thread < 8; thread++ ) {
+            executor.execute( new Runnable() {
+                @Override
+                public void run () {
+                    for ( int i = 0; i < 10000; i++ ) {
+                        accumulator.add( GBP_3_33 );
+                        accumulator.subtract( GBP_1_00 );
+                    }
+                }
+            } );
+        }
+        executor.shutdown();
+        executor.awaitTermination( 1, TimeUnit.MINUTES );
+        assertEquals( Money.parse( "GBP 186400.00" ), accumulator.total() );
+    }
+}
@@ -0,0 +1,125 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.joda.money.BigMoney;
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.Money;
+import org.junit.Test;
+
+import com.gigs2go.money.calculator.allocators.AllocatorStrategy;
+
+/**
+ * Test MoneyCodec round trips and in-place reads
+ */
+public class TestMoneyCodec extends AbstractCalculatorTest {
+    private static final Money GBP_HUGE = Money.of( GBP, new BigDecimal( "123456789012345678901234567890.12" ) );
+
+    @Test
+    public void testMoney () {
+        ByteBuffer buffer = ByteBuffer.allocate( 256 );
+        Money[] amounts = { GBP_10_00, GBP_0_00, GBP_HUGE, GBP_HUGE.negated(), JPY_1000, Money.ofMinor( GBP, Long.MIN_VALUE ) };
+        for ( Money amount : amounts ) {
+            MoneyCodec.writeMoney( buffer, amount );
+        }
+        // GBP is 826 and 1000 zig-zags to 2000, both needing two bytes
+        assertEquals( 5, MoneyCodec.getLength( buffer, 0 ) );
+        buffer.flip();
+        int position = 0;
+        for ( Money amount : amounts ) {
+            assertEquals( amount.getCurrencyUnit(), MoneyCodec.getCurrencyUnit( buffer, position ) );
+            assertEquals( amount.getScale(), MoneyCodec.getScale( buffer, position ) );
+            if ( amount != GBP_HUGE && amount.getAmount().unscaledValue().bitLength() < 64 ) {
+                assertEquals( amount.getAmountMinorLong(), MoneyCodec.getUnscaledValue( buffer, position ) );
+            }
+            position += MoneyCodec.getLength( buffer, position );
+            assertEquals( 0, buffer.position() );
+        }
+        assertEquals( buffer.limit(), position );
+        for ( Money amount : amounts ) {
+            assertEquals( amount, MoneyCodec.readMoney( buffer ) );
+        }
+        assertEquals( buffer.limit(), buffer.position() );
+    }
+
+    @Test( expected = ArithmeticException.class )
+    public void testUnscaledTooLarge () {
+        ByteBuffer buffer = ByteBuffer.allocate( 64 );
+        MoneyCodec.writeMoney( buffer, GBP_HUGE );
+        MoneyCodec.getUnscaledValue( buffer, 0 );
+    }
+
+    @Test
+    public void testResult () {
+        ByteBuffer buffer = ByteBuffer.allocate( 256 );
+        MoneyCalculator.Result result = getCalculator().set( GBP_10_00 ).divide( LONG_3 ).result();
+        MoneyCodec.writeResult( buffer, result );
+        MoneyCodec.writeResult( buffer, getCalculator().result() );
+        buffer.flip();
+        MoneyCalculator.Result read = MoneyCodec.readResult( buffer );
+        assertEquals( result.getValue(), read.getValue() );
+        assertEquals( result.getRemainder(), read.getRemainder() );
+        assertEquals( BigMoney.parse( "GBP 0.00333" ), read.getRemainder() );
+        read = MoneyCodec.readResult( buffer );
+        assertNull( read.getValue() );
+        assertNull( read.getRemainder() );
+    }
+
+    @Test
+    public void testAllocation () {
+        ByteBuffer buffer = ByteBuffer.allocate( 256 );
+        Money[] allocation = AllocatorStrategy.FRONT_LOADING.getAllocator().allocate( GBP_10_01, 1000 );
+        MoneyCodec.writeAllocation( buffer, allocation );
+        // One run of 0.02, then a run of 0.01
+        assertEquals( 10, buffer.position() );
+        buffer.flip();
+        assertEquals( GBP, MoneyCodec.getCurrencyUnit( buffer, 0 ) );
+        assertEquals( 1000, MoneyCodec.getAllocationSize( buffer, 0 ) );
+        assertEquals( 2L, MoneyCodec.getAllocationMinorUnits( buffer, 0, 0 ) );
+        assertEquals( 1L, MoneyCodec.getAllocationMinorUnits( buffer, 0, 999 ) );
+        Money[] read = MoneyCodec.readAllocation( buffer.duplicate() );
+        assertArrayEquals( allocation, read );
+        assertSame( read[1], read[2] );
+        long[] minorUnits = new long[1001];
+        assertEquals( 1000, MoneyCodec.readAllocation( buffer, minorUnits, 1 ) );
+        assertEquals( 0L, minorUnits[0] );
+        assertEquals( 2L, minorUnits[1] );
+        assertEquals( 1L, minorUnits[1000] );
+    }
+
+    @Test
+    public void testAllocationRandom () {
+        Random random = new Random( 20131024L );
+        ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 );
+        for ( int i = 0; i < 200; i++ ) {
+            Money amount = Money.ofMinor( GBP, random.nextLong() >> random.nextInt( 64 ) );
+            Money[] allocation = AllocatorStrategy.values()[random.nextInt( AllocatorStrategy.values().length )].getAllocator().allocate( amount,
+                    1 + random.nextInt( 24 ) );
+            buffer.clear();
+            MoneyCodec.writeAllocation( buffer, allocation );
+            buffer.flip();
+            for ( int j = 0; j < allocation.length; j++ ) {
+                assertEquals( allocation[j].getAmountMinorLong(), MoneyCodec.getAllocationMinorUnits( buffer, 0, j ) );
+            }
+            assertArrayEquals( allocation, MoneyCodec.readAllocation( buffer ) );
+        }
+        buffer.clear();
+        Money[] huge = { GBP_HUGE, GBP_HUGE, GBP_0_01 };
+        MoneyCodec.writeAllocation( buffer, huge );
+        buffer.flip();
+        assertEquals( 1L, MoneyCodec.getAllocationMinorUnits( buffer, 0, 2 ) );
+        assertArrayEquals( huge, MoneyCodec.readAllocation( buffer ) );
+    }
+
+    @Test( expected = CurrencyMismatchException.class )
+    public void testAllocationMixed () {
+        MoneyCodec.writeAllocation( ByteBuffer.allocate( 64 ), new Money[] { GBP_1_00, JPY_1000 } );
+    }
+}
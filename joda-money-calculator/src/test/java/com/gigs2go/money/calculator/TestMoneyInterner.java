@@ -0,0 +1,72 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.math.RoundingMode;
+
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Test;
+
+import com.gigs2go.money.calculator.allocators.AllocatorStrategy;
+
+/**
+ * Test MoneyInterner
+ */
+public class TestMoneyInterner extends AbstractCalculatorTest {
+    @After
+    public void restore () {
+        MoneyInterner.setRange( MoneyInterner.DEFAULT_MIN, MoneyInterner.DEFAULT_MAX );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testInvalidRange () {
+        MoneyInterner.setRange( 1L, 0L );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testRangeTooLarge () {
+        MoneyInterner.setRange( Long.MIN_VALUE, Long.MAX_VALUE );
+    }
+
+    @Test
+    public void testDefaultRange () {
+        assertSame( MoneyInterner.ofMinor( GBP, 100L ), MoneyInterner.ofMinor( GBP, 100L ) );
+        assertSame( MoneyInterner.ofMinor( GBP, -1L ), MoneyInterner.ofMinor( GBP, -1L ) );
+        assertNotSame( MoneyInterner.ofMinor( GBP, 1000L ), MoneyInterner.ofMinor( GBP, 1000L ) );
+    }
+
+    @Test
+    public void testOfMinor () {
+        MoneyInterner.setRange( 0L, 10000L );
+        Money money = MoneyInterner.ofMinor( GBP, 1000L );
+        assertEquals( GBP_10_00, money );
+        assertSame( money, MoneyInterner.ofMinor( GBP, 1000L ) );
+        assertSame( money, MoneyInterner.intern( GBP_10_00 ) );
+        assertEquals( JPY_1000, MoneyInterner.ofMinor( JPY, 1000L ) );
+        assertNotSame( MoneyInterner.ofMinor( GBP, 1000000L ), MoneyInterner.ofMinor( GBP, 1000000L ) );
+    }
+
+    @Test
+    public void testRange () {
+        MoneyInterner.setRange( 0L, 10L );
+        assertEquals( 0L, MoneyInterner.getMin() );
+        assertEquals( 10L, MoneyInterner.getMax() );
+        assertSame( MoneyInterner.ofMinor( GBP, 10L ), MoneyInterner.ofMinor( GBP, 10L ) );
+        assertNotSame( MoneyInterner.ofMinor( GBP, 11L ), MoneyInterner.ofMinor( GBP, 11L ) );
+        assertNotSame( MoneyInterner.ofMinor( GBP, -1L ), MoneyInterner.ofMinor( GBP, -1L ) );
+    }
+
+    @Test
+    public void testShared () {
+        MoneyInterner.setRange( 0L, 10000L );
+        Money[] first = AllocatorStrategy.FRONT_LOADING.getAllocator().allocate( GBP_10_00, 3 );
+        Money[] second = AllocatorStrategy.BACK_LOADING.getAllocator().allocate( GBP_10_00, 3 );
+        assertSame( first[0], second[2] );
+        assertSame( first[1], second[0] );
+        assertSame( first[1], getCalculator().set( GBP_10_00 ).divide( LONG_3 ).result().getValue() );
+        assertSame( first[0], getCalculator().set( GBP_10_00 ).divide( LONG_3 ).result( RoundingMode.UP ).getValue() );
+    }
+}
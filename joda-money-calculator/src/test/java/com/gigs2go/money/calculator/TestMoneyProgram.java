@@ -0,0 +1,130 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.Money;
+import org.junit.Test;
+
+/**
+ * Test MoneyProgram against MoneyCalculator
+ */
+public class TestMoneyProgram extends AbstractCalculatorTest {
+    @Test( expected = CurrencyMismatchException.class )
+    public void testBuilderCurrencyMismatch () {
+        new MoneyProgram.Builder().add( GBP_1_00 ).subtract( JPY_1000 );
+    }
+
+    @Test( expected = CurrencyMismatchException.class )
+    public void testRunCurrencyMismatch () {
+        new MoneyProgram.Builder().add( GBP_1_00 ).build().run( JPY_1000 );
+    }
+
+    @Test( expected = ArithmeticException.class )
+    public void testDivideZero () {
+        new MoneyProgram.Builder().divide( LONG_0 ).build().run( GBP_1_00 );
+    }
+
+    @Test
+    public void testRun () {
+        MoneyProgram program = new MoneyProgram.Builder().multiply( new BigDecimal( "1.0425" ) ).divide( 365L ).add( GBP_0_02 ).build();
+        assertEquals( 3, program.size() );
+        MoneyCalculator.Result expected = getCalculator().set( GBP_10_00 ).multiply( new BigDecimal( "1.0425" ) ).divide( 365L ).add( GBP_0_02 )
+                .result();
+        MoneyCalculator.Result result = new MoneyCalculator.Result();
+        assertSame( result, program.run( GBP_10_00, result ) );
+        assertEquals( expected.getValue(), result.getValue() );
+        assertEquals( expected.getRemainder(), result.getRemainder() );
+    }
+
+    @Test
+    public void testAnyCurrency () {
+        MoneyProgram program = new MoneyProgram.Builder().divide( LONG_3 ).build();
+        assertEquals( GBP_3_33, program.run( GBP_10_00 ).getValue() );
+        assertEquals( JPY_333, program.run( JPY_1000 ).getValue() );
+        assertEquals( 3, program.run( JPY_1000 ).getRemainderScale() );
+        assertEquals( GBP_3_34, program.run( GBP_10_02 ).getValue() );
+    }
+
+    @Test
+    public void testMergedOverflow () {
+        // Each multiply fits, but the merged multiplier does not
+        MoneyProgram program = new MoneyProgram.Builder().multiply( 1000000000L ).multiply( 1000000000L ).multiply( 100L ).divide( 1000000000L )
+                .divide( 1000000000L ).divide( 100L ).build();
+        assertEquals( GBP_3_33, program.run( GBP_3_33 ).getValue() );
+    }
+
+    @Test
+    public void testRandomChains () {
+        Random random = new Random( 20131019L );
+        RoundingMode[] modes = { RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR, RoundingMode.HALF_UP,
+                RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN };
+        for ( int i = 0; i < 500; i++ ) {
+            RoundingMode roundingMode = modes[random.nextInt( modes.length )];
+            int remainderScale = random.nextInt( 8 );
+            MoneyProgram.Builder builder = new MoneyProgram.Builder( remainderScale, roundingMode );
+            int[] kinds = new int[2 + random.nextInt( 5 )];
+            long[] operands = new long[kinds.length];
+            for ( int step = 0; step < kinds.length; step++ ) {
+                // Mostly multiplies, so that they are merged
+                kinds[step] = random.nextInt( 10 );
+                operands[step] = (random.nextLong() >> (44 + random.nextInt( 20 ))) | 1L;
+                switch ( kinds[step] ) {
+                case 0:
+                    builder.add( Money.ofMinor( GBP, operands[step] ) );
+                    break;
+                case 1:
+                    builder.divide( operands[step] );
+                    break;
+                case 2:
+                    builder.divide( BigDecimal.valueOf( operands[step], 2 ) );
+                    break;
+                case 3:
+                case 4:
+                case 5:
+                    builder.multiply( operands[step] );
+                    break;
+                default:
+                    builder.multiply( BigDecimal.valueOf( operands[step], 3 ) );
+                    break;
+                }
+            }
+            MoneyProgram program = builder.build();
+            MoneyCalculator calculator = new MoneyCalculator( remainderScale, roundingMode );
+            for ( int j = 0; j < 20; j++ ) {
+                Money amount = Money.ofMinor( GBP, random.nextLong() >> random.nextInt( 64 ) );
+                calculator.set( amount );
+                for ( int step = 0; step < kinds.length; step++ ) {
+                    switch ( kinds[step] ) {
+                    case 0:
+                        calculator.add( Money.ofMinor( GBP, operands[step] ) );
+                        break;
+                    case 1:
+                        calculator.divide( operands[step] );
+                        break;
+                    case 2:
+                        calculator.divide( BigDecimal.valueOf( operands[step], 2 ) );
+                        break;
+                    case 3:
+                    case 4:
+                    case 5:
+                        calculator.multiply( operands[step] );
+                        break;
+                    default:
+                        calculator.multiply( BigDecimal.valueOf( operands[step], 3 ) );
+                        break;
+                    }
+                }
+                MoneyCalculator.Result expected = calculator.result();
+                MoneyCalculator.Result result = program.run( amount );
+                assertEquals( expected.getValue(), result.getValue() );
+                assertEquals( expected.getRemainder(), result.getRemainder() );
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.Money;
+import org.junit.Test;
+
+import com.gigs2go.money.calculator.allocators.AllocatorStrategy;
+
+/**
+ * Test MoneyVector against Money and MoneyCalculator
+ */
+public class TestMoneyVector extends AbstractCalculatorTest {
+    private static final Money GBP_MAX = Money.ofMinor( GBP, Long.MAX_VALUE );
+
+    @Test( expected = CurrencyMismatchException.class )
+    public void testCurrencyMismatch () {
+        new MoneyVector( GBP, 1 ).set( 0, JPY_1000 );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testSizeMismatch () {
+        new MoneyVector( GBP, 1 ).add( new MoneyVector( GBP, 2 ) );
+    }
+
+    @Test
+    public void testBasics () {
+        MoneyVector vector = MoneyVector.of( GBP, GBP_10_00, GBP_1_23, GBP_0_00 );
+        assertEquals( 3, vector.size() );
+        assertEquals( GBP, vector.getCurrencyUnit() );
+        assertEquals( GBP_1_23, vector.get( 1 ) );
+        assertEquals( 123L, vector.getMinorUnits( 1 ) );
+        assertEquals( Money.parse( "GBP 11.23" ), vector.sum() );
+        assertArrayEquals( new Money[] { GBP_10_00, GBP_1_23, GBP_0_00 }, vector.toMoney() );
+        assertEquals( 0, vector.getOverflowCount() );
+    }
+
+    @Test
+    public void testOverflow () {
+        MoneyVector vector = MoneyVector.of( GBP, Long.MAX_VALUE, Long.MIN_VALUE, 1L );
+        assertFalse( vector.isOverflow( 0 ) );
+        assertTrue( vector.isOverflow( 1 ) );
+        assertEquals( Long.MIN_VALUE, vector.getMinorUnits( 1 ) );
+        assertEquals( Money.ofMinor( GBP, Long.MIN_VALUE ), vector.get( 1 ) );
+        assertEquals( GBP_MAX.plus( Money.ofMinor( GBP, Long.MIN_VALUE ) ).plus( GBP_0_01 ), vector.sum() );
+
+        vector.add( MoneyVector.of( GBP, 1L, 0L, 0L ) );
+        assertTrue( vector.isOverflow( 0 ) );
+        assertEquals( GBP_MAX.plus( GBP_0_01 ), vector.get( 0 ) );
+        assertEquals( 2, vector.getOverflowCount() );
+        vector.subtract( MoneyVector.of( GBP, 2L, -1L, 0L ) );
+        assertFalse( vector.isOverflow( 0 ) );
+        assertFalse( vector.isOverflow( 1 ) );
+        assertEquals( GBP_MAX.minus( GBP_0_01 ), vector.get( 0 ) );
+        assertEquals( 0, vector.getOverflowCount() );
+    }
+
+    @Test( expected = ArithmeticException.class )
+    public void testOverflowMinorUnits () {
+        MoneyVector vector = MoneyVector.of( GBP, GBP_MAX.plus( GBP_0_01 ) );
+        vector.getMinorUnits( 0 );
+    }
+
+    @Test
+    public void testScale () {
+        Random random = new Random( 20131022L );
+        long[] amounts = new long[1000];
+        for ( int i = 0; i < amounts.length; i++ ) {
+            amounts[i] = random.nextLong() >> random.nextInt( 64 );
+        }
+        amounts[0] = Long.MAX_VALUE;
+        MoneyVector vector = MoneyVector.of( GBP, amounts );
+        BigDecimal factor = new BigDecimal( "1.0425" );
+        MoneyVector scaled = vector.scale( factor, RoundingMode.HALF_EVEN );
+        MoneyCalculator calculator = new MoneyCalculator( RoundingMode.HALF_EVEN );
+        for ( int i = 0; i < amounts.length; i++ ) {
+            assertEquals( calculator.set( vector.get( i ) ).multiply( factor ).result().getValue(), scaled.get( i ) );
+        }
+        assertTrue( scaled.getOverflowCount() > 0 );
+        // Overflowing amounts take the slow path
+        MoneyVector again = scaled.scale( factor, RoundingMode.HALF_EVEN );
+        for ( int i = 0; i < amounts.length; i++ ) {
+            assertEquals( calculator.set( scaled.get( i ) ).multiply( factor ).result().getValue(), again.get( i ) );
+        }
+    }
+
+    @Test
+    public void testAllocate () {
+        MoneyVector vector = MoneyVector.of( GBP, GBP_10_00, GBP_MAX.plus( GBP_10_00 ) );
+        Allocator allocator = AllocatorStrategy.REMAINDER.getAllocator();
+        assertArrayEquals( allocator.allocate( GBP_10_00, 3 ), vector.allocate( 0, allocator, 3 ).toMoney() );
+        assertArrayEquals( allocator.allocate( vector.get( 1 ), 3 ), vector.allocate( 1, allocator, 3 ).toMoney() );
+        MoneyVector min = MoneyVector.of( GBP, Long.MIN_VALUE ).allocate( 0, AllocatorStrategy.FRONT_LOADING.getAllocator(), 1 );
+        assertEquals( Money.ofMinor( GBP, Long.MIN_VALUE ), min.get( 0 ) );
+    }
+
+    @Test
+    public void testAllocateSize () {
+        // Writes each division twice, so needs more than len + 1 elements
+        Allocator allocator = new Allocator() {
+            @Override
+            public Money[] allocate ( Money money, int len ) {
+                Money[] divisions = AllocatorStrategy.FRONT_LOADING.getAllocator().allocate( money, len );
+                Money[] result = new Money[len * 2];
+                for ( int i = 0; i < len; i++ ) {
+                    result[i] = result[len + i] = divisions[i];
+                }
+                return result;
+            }
+
+            @Override
+            public int size ( int len ) {
+                return len * 2;
+            }
+        };
+        assertArrayEquals( allocator.allocate( GBP_10_00, 3 ), MoneyVector.of( GBP, GBP_10_00 ).allocate( 0, allocator, 3 ).toMoney() );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testAllocateZero () {
+        MoneyVector.of( GBP, GBP_10_00 ).allocate( 0, AllocatorStrategy.REMAINDER.getAllocator(), 0 );
+    }
+}
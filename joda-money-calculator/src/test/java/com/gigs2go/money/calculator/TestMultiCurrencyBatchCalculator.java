@@ -0,0 +1,62 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Test;
+
+/**
+ * Test MultiCurrencyBatchCalculator against MoneyProgram
+ */
+public class TestMultiCurrencyBatchCalculator extends AbstractCalculatorTest {
+    private static final CurrencyUnit[] CURRENCIES = { GBP, JPY, CurrencyUnit.USD, CurrencyUnit.EUR, CurrencyUnit.of( "BHD" ),
+            CurrencyUnit.of( "KWD" ) };
+
+    @Test( expected = CurrencyMismatchException.class )
+    public void testCurrencyMismatch () {
+        MoneyProgram program = new MoneyProgram.Builder().add( GBP_1_00 ).build();
+        new MultiCurrencyBatchCalculator( program ).calculate( new Money[] { GBP_1_00, JPY_1000 } );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testValuesTooShort () {
+        MoneyProgram program = new MoneyProgram.Builder().divide( LONG_3 ).build();
+        new MultiCurrencyBatchCalculator( program ).calculate( new Money[] { GBP_1_00, JPY_1000 }, new long[1], null );
+    }
+
+    @Test
+    public void testRemainderScale () {
+        MultiCurrencyBatchCalculator calculator = new MultiCurrencyBatchCalculator( new MoneyProgram.Builder().build() );
+        assertEquals( 5, calculator.getRemainderScale( GBP ) );
+        assertEquals( 3, calculator.getRemainderScale( JPY ) );
+        assertEquals( 6, calculator.getRemainderScale( CurrencyUnit.of( "BHD" ) ) );
+    }
+
+    @Test
+    public void testMixed () {
+        MoneyProgram program = new MoneyProgram.Builder().multiply( new BigDecimal( "1.0425" ) ).divide( 365L ).build();
+        MultiCurrencyBatchCalculator calculator = new MultiCurrencyBatchCalculator( program );
+        Random random = new Random( 20131020L );
+        Money[] amounts = new Money[1000];
+        for ( int i = 0; i < amounts.length; i++ ) {
+            amounts[i] = Money.ofMinor( CURRENCIES[random.nextInt( CURRENCIES.length )], random.nextLong() >> random.nextInt( 64 ) );
+        }
+        MoneyCalculator.Result[] results = calculator.calculate( amounts );
+        long[] values = new long[amounts.length];
+        long[] remainders = new long[amounts.length];
+        calculator.calculate( amounts, values, remainders );
+        for ( int i = 0; i < amounts.length; i++ ) {
+            MoneyCalculator.Result expected = program.run( amounts[i] );
+            assertEquals( expected.getValue(), results[i].getValue() );
+            assertEquals( expected.getRemainder(), results[i].getRemainder() );
+            assertEquals( expected.getValueMinorUnits(), values[i] );
+            assertEquals( expected.getRemainderUnscaled(), remainders[i] );
+            assertEquals( expected.getRemainderScale(), calculator.getRemainderScale( amounts[i].getCurrencyUnit() ) );
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.joda.money.Money;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.gigs2go.money.calculator.Allocation.Orientation;
+
+/**
+ * Test parallel batches and allocations against their sequential equivalents
+ */
+public class TestParallelism extends AbstractCalculatorTest {
+    private static ForkJoinPool pool;
+    private static Parallelism parallelism;
+
+    @BeforeClass
+    public static void createPool () {
+        pool = new ForkJoinPool( 4 );
+        parallelism = Parallelism.of( pool, 7 );
+    }
+
+    @AfterClass
+    public static void shutdownPool () {
+        pool.shutdown();
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testThresholdZero () {
+        Parallelism.of( pool, 0 );
+    }
+
+    @Test( expected = NullPointerException.class )
+    public void testPoolNull () {
+        Parallelism.of( null, 1 );
+    }
+
+    @Test( expected = ArithmeticException.class )
+    public void testDivideZero () {
+        new BatchMoneyCalculator( GBP ).divide( LONG_0 ).calculate( new long[100], new long[100], null, parallelism );
+    }
+
+    @Test
+    public void testBatch () {
+        Random random = new Random( 20131018L );
+        long[] amounts = new long[1000];
+        for ( int i = 0; i < amounts.length; i++ ) {
+            amounts[i] = random.nextLong() >> random.nextInt( 64 );
+        }
+        // Includes amounts which overflow, and fall back to a MoneyCalculator
+        BatchMoneyCalculator batch = new BatchMoneyCalculator( GBP ).multiply( new BigDecimal( "1.0425" ) ).divide( 365L );
+        long[] values = new long[amounts.length];
+        long[] remainders = new long[amounts.length];
+        batch.calculate( amounts, values, remainders );
+        long[] parallelValues = new long[amounts.length];
+        long[] parallelRemainders = new long[amounts.length];
+        batch.calculate( amounts, parallelValues, parallelRemainders, parallelism );
+        assertArrayEquals( values, parallelValues );
+        assertArrayEquals( remainders, parallelRemainders );
+
+        Money[] money = new Money[amounts.length];
+        for ( int i = 0; i < amounts.length; i++ ) {
+            money[i] = Money.ofMinor( GBP, amounts[i] );
+        }
+        batch.calculate( money, parallelValues, parallelRemainders, parallelism );
+        assertArrayEquals( values, parallelValues );
+        assertArrayEquals( remainders, parallelRemainders );
+    }
+
+    @Test
+    public void testAllocation () {
+        long[] amounts = { 1000L, -1000L, 1L, 0L, 99999L };
+        for ( Orientation orientation : Orientation.values() ) {
+            for ( long amount : amounts ) {
+                for ( int len = 1; len < 100; len += 7 ) {
+                    int size = Allocation.size( len, orientation );
+                    long[] expected = new long[size + 1];
+                    Allocation.fill( amount, len, orientation, expected, 1 );
+                    long[] actual = new long[size + 1];
+                    Allocation.fill( amount, len, orientation, actual, 1, parallelism );
+                    assertArrayEquals( expected, actual );
+                    actual = new long[size + 1];
+                    Allocation.of( GBP, amount, len, orientation ).toMinorUnits( actual, 1, parallelism );
+                    assertArrayEquals( expected, actual );
+                }
+            }
+        }
+    }
+}
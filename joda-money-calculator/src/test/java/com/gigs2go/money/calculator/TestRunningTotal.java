@@ -0,0 +1,158 @@
+package com.gigs2go.money.calculator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.joda.money.CurrencyMismatchException;
+import org.joda.money.Money;
+import org.junit.Test;
+
+/**
+ * Test RunningTotal against MoneyCalculator
+ */
+public class TestRunningTotal extends AbstractCalculatorTest {
+    @Test( expected = CurrencyMismatchException.class )
+    public void testCurrencyMismatch () {
+        new RunningTotal( GBP, 10 ).add( JPY_1000 );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testTimeOrder () {
+        new RunningTotal( GBP, 10 ).add( GBP_1_00, 2L ).add( GBP_1_00, 1L );
+    }
+
+    @Test
+    public void testResult () {
+        RunningTotal total = new RunningTotal( GBP, 10, 5, RoundingMode.DOWN );
+        total.add( GBP_10_00 ).add( GBP_1_23 ).add( GBP_1_00.negated() );
+        MoneyCalculator.Result expected = new MoneyCalculator( 5, RoundingMode.DOWN ).set( GBP_10_00 ).add( GBP_1_23 ).subtract( GBP_1_00 )
+                .result();
+        MoneyCalculator.Result result = total.result();
+        assertEquals( expected.getValue(), result.getValue() );
+        assertEquals( expected.getRemainder(), result.getRemainder() );
+        assertEquals( Money.parse( "GBP 10.23" ), total.getTotal() );
+        assertEquals( 3L, total.getCount() );
+    }
+
+    @Test
+    public void testRollback () {
+        RunningTotal total = new RunningTotal( GBP, 4 );
+        total.add( GBP_10_00, 1L );
+        RunningTotal.Checkpoint checkpoint = total.checkpoint();
+        total.add( GBP_1_00, 2L ).add( GBP_2_00, 3L );
+        total.rollback( checkpoint );
+        assertEquals( GBP_10_00, total.getTotal() );
+        assertEquals( 1L, total.getCount() );
+        total.add( GBP_5_00, 2L );
+        assertEquals( Money.parse( "GBP 15.00" ), total.getTotal() );
+        assertEquals( GBP_5_00.getAmountMinorLong(), total.getLastMinorUnits( 1 ) );
+        assertEquals( 1500L, total.getLastMinorUnits( 2 ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testRollbackTooOld () {
+        RunningTotal total = new RunningTotal( GBP, 2 );
+        RunningTotal.Checkpoint checkpoint = total.checkpoint();
+        total.add( GBP_1_00, 1L ).add( GBP_1_00, 2L ).add( GBP_1_00, 3L );
+        total.rollback( checkpoint );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testLastTooMany () {
+        RunningTotal total = new RunningTotal( GBP, 2 );
+        total.add( GBP_1_00, 1L ).add( GBP_1_00, 2L ).add( GBP_1_00, 3L );
+        total.getLastMinorUnits( 3 );
+    }
+
+    @Test
+    public void testSince () {
+        RunningTotal total = new RunningTotal( GBP, 3 );
+        total.add( GBP_1_00, 10L ).add( GBP_2_00, 20L ).add( GBP_5_00, 20L ).add( GBP_10_00, 30L );
+        assertEquals( 1700L, total.getMinorUnitsSince( 11L ) );
+        assertEquals( 1700L, total.getMinorUnitsSince( 20L ) );
+        assertEquals( 1000L, total.getMinorUnitsSince( 21L ) );
+        assertEquals( 0L, total.getMinorUnitsSince( 31L ) );
+        assertEquals( GBP_10_00, total.resultSince( 30L ).getValue() );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testSinceTooOld () {
+        RunningTotal total = new RunningTotal( GBP, 3 );
+        total.add( GBP_1_00, 10L ).add( GBP_2_00, 20L ).add( GBP_5_00, 20L ).add( GBP_10_00, 30L );
+        total.getMinorUnitsSince( 10L );
+    }
+
+    @Test
+    public void testOverflow () {
+        RunningTotal total = new RunningTotal( GBP, 8 );
+        total.add( Long.MAX_VALUE, 0L ).add( Long.MAX_VALUE, 0L );
+        RunningTotal.Checkpoint checkpoint = total.checkpoint();
+        total.add( Long.MIN_VALUE, 0L );
+        assertEquals( Money.ofMinor( GBP, Long.MAX_VALUE ).plus( Money.ofMinor( GBP, Long.MAX_VALUE ) ).plus( Money.ofMinor( GBP,
+                Long.MIN_VALUE ) ), total.getTotal() );
+        total.rollback( checkpoint );
+        assertEquals( Money.ofMinor( GBP, Long.MAX_VALUE ).plus( Money.ofMinor( GBP, Long.MAX_VALUE ) ), total.getTotal() );
+        // The window fits, even though the prefix sums wrapped
+        assertEquals( Long.MAX_VALUE, total.getLastMinorUnits( 1 ) );
+    }
+
+    @Test( expected = ArithmeticException.class )
+    public void testWindowOverflow () {
+        RunningTotal total = new RunningTotal( GBP, 8 );
+        total.add( Long.MAX_VALUE, 0L ).add( 1L, 1L );
+        total.getLastMinorUnits( 2 );
+    }
+
+    @Test( expected = ArithmeticException.class )
+    public void testWindowSinceOverflow () {
+        RunningTotal total = new RunningTotal( GBP, 8 );
+        total.add( Long.MIN_VALUE, 0L ).add( -1L, 1L );
+        total.getMinorUnitsSince( 0L );
+    }
+
+    @Test
+    public void testClockSetBack () {
+        RunningTotal total = new RunningTotal( GBP, 8 );
+        // A posting 'in the future', as if the clock has since been set back
+        long future = System.currentTimeMillis() + 3600000L;
+        total.add( GBP_1_00, future ).add( GBP_1_00 );
+        assertEquals( GBP_2_00, total.getTotal() );
+        assertEquals( 200L, total.getMinorUnitsSince( future ) );
+    }
+
+    @Test
+    public void testRandom () {
+        Random random = new Random( 20131025L );
+        RunningTotal total = new RunningTotal( GBP, 64 );
+        long[] postings = new long[5000];
+        int count = 0;
+        RunningTotal.Checkpoint checkpoint = total.checkpoint();
+        int checkpointCount = 0;
+        for ( int i = 0; i < 10000; i++ ) {
+            int action = random.nextInt( 100 );
+            if ( action < 2 ) {
+                checkpoint = total.checkpoint();
+                checkpointCount = count;
+            } else if ( action < 3 && count - checkpointCount <= total.getRetainedCount() ) {
+                total.rollback( checkpoint );
+                count = checkpointCount;
+            } else if ( count < postings.length ) {
+                postings[count++] = random.nextInt( 200000 ) - 100000;
+                total.add( postings[count - 1], i );
+            }
+            long sum = 0L;
+            for ( int j = 0; j < count; j++ ) {
+                sum += postings[j];
+            }
+            assertEquals( sum, total.getTotal().getAmountMinorLong() );
+            int n = random.nextInt( total.getRetainedCount() + 1 );
+            long last = 0L;
+            for ( int j = count - n; j < count; j++ ) {
+                last += postings[j];
+            }
+            assertEquals( last, total.getLastMinorUnits( n ) );
+        }
+    }
+}